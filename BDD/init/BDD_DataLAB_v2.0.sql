@@ -41,9 +41,13 @@ CREATE TABLE `Participante` (
   `estado_ficha` enum('COMPLETA','INCOMPLETA','NO_COMPLETABLE') NOT NULL DEFAULT 'INCOMPLETA',
   `fecha_inclusion` date NOT NULL,
   `observacion` text DEFAULT NULL,
+  `fecha_modificacion` datetime(6) DEFAULT NULL,
   PRIMARY KEY (`id_participante`),
   UNIQUE KEY `codigo_participante` (`codigo_participante`),
   KEY `id_reclutador` (`id_reclutador`),
+  KEY `idx_participante_fecha_modificacion` (`fecha_modificacion`),
+  KEY `idx_participante_grupo_estado` (`grupo`,`estado_ficha`,`fecha_inclusion`),
+  KEY `idx_participante_fecha_inclusion` (`fecha_inclusion`),
   CONSTRAINT `fk_participante_usuario` FOREIGN KEY (`id_reclutador`) REFERENCES `Usuario` (`id_usuario`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
@@ -69,14 +73,29 @@ CREATE TABLE `Respuesta` (
   `id_participante` INT(11) NOT NULL,
   `id_variable` INT(11) NOT NULL,
   `valor_ingresado` text DEFAULT NULL,
+  `valor_codificado` text DEFAULT NULL,
+  `huella_codificacion` INT(11) DEFAULT NULL,
+  `fecha_modificacion` datetime(6) DEFAULT NULL,
   PRIMARY KEY (`id_respuesta`),
   UNIQUE KEY `participante_variable_unique` (`id_participante`,`id_variable`),
   KEY `id_variable` (`id_variable`),
+  KEY `idx_respuesta_fecha_modificacion` (`fecha_modificacion`),
+  KEY `idx_respuesta_variable_huella` (`id_variable`,`huella_codificacion`),
   CONSTRAINT `fk_respuesta_participante` FOREIGN KEY (`id_participante`) REFERENCES `Participante` (`id_participante`) ON DELETE CASCADE,
   CONSTRAINT `fk_respuesta_variable` FOREIGN KEY (`id_variable`) REFERENCES `Variable` (`id_variable`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
 
+-- Bajas de participantes para la exportación incremental (sin FK: el participante ya no existe)
+CREATE TABLE `Participante_Eliminado` (
+  `id_eliminado` INT(11) NOT NULL AUTO_INCREMENT,
+  `id_participante` INT(11) NOT NULL,
+  `codigo_participante` varchar(50) DEFAULT NULL,
+  `fecha_eliminacion` datetime(6) NOT NULL,
+  PRIMARY KEY (`id_eliminado`),
+  KEY `idx_participante_eliminado_fecha` (`fecha_eliminacion`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
 CREATE TABLE `Auditoria` (
   `id_auditoria` INT(11) NOT NULL AUTO_INCREMENT,
   `id_usuario` INT(11) NOT NULL,
@@ -42,7 +42,7 @@ public class CorsConfig {
         configuration.setAllowCredentials(true);
         
         // Exponer headers
-        configuration.setExposedHeaders(List.of("Authorization"));
+        configuration.setExposedHeaders(List.of("Authorization", "X-Export-Cursor", "X-Diccionario-Version"));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -52,6 +52,8 @@ public class SecurityConfig {
                         .requestMatchers("/actuator/health").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                         .requestMatchers("/error").permitAll()
+                        // Los jobs tienen dueño: se listan, cancelan y descargan con sesión
+                        .requestMatchers("/api/export/jobs/**").authenticated()
                         .requestMatchers("/api/export/**").permitAll()
 
                         // Todo lo demás requiere autenticación
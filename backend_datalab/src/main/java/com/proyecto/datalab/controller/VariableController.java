@@ -52,4 +52,14 @@ public class VariableController {
         return variableService.actualizarEstadoObligatorio(codigo, esObligatoria);
     }
 
+    @org.springframework.web.bind.annotation.PatchMapping("/{codigo}/opciones")
+    public Variable actualizarOpciones(
+            @org.springframework.web.bind.annotation.PathVariable String codigo,
+            @RequestBody Map<String, String> body) {
+        if (!body.containsKey("opciones")) {
+            throw new IllegalArgumentException("El campo 'opciones' es requerido");
+        }
+        return variableService.actualizarOpciones(codigo, body.get("opciones"));
+    }
+
 }
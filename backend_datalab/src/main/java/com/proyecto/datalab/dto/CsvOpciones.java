@@ -0,0 +1,56 @@
+package com.proyecto.datalab.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Opciones de las exportaciones CSV: separador de campos ({@code ,} por
+ * defecto; también {@code ;}, {@code |} o {@code tab}) y BOM UTF-8 para que
+ * Excel reconozca los acentos. Se enlaza desde la URL
+ * (?separador=;&bom=true).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CsvOpciones {
+    private String separador;
+    private boolean bom;
+
+    public static CsvOpciones porDefecto() {
+        return new CsvOpciones();
+    }
+
+    /**
+     * Carácter separador. Lanza IllegalArgumentException si no es uno de los
+     * soportados.
+     */
+    public char caracterSeparador() {
+        if (separador == null || separador.isEmpty())
+            return ',';
+        return switch (separador.equalsIgnoreCase("tab") ? "\t" : separador) {
+            case "," -> ',';
+            case ";" -> ';';
+            case "|" -> '|';
+            case "\t" -> '\t';
+            default -> throw new IllegalArgumentException(
+                    "Separador CSV no soportado: " + separador + " (use , ; | o tab)");
+        };
+    }
+
+    public boolean isPorDefecto() {
+        return caracterSeparador() == ',' && !bom;
+    }
+
+    /**
+     * Representación estable para claves de caché; vacía con las opciones
+     * por defecto.
+     */
+    public String clave() {
+        if (isPorDefecto())
+            return "";
+        return "separador=" + (int) caracterSeparador() + ";bom=" + bom;
+    }
+}
@@ -0,0 +1,24 @@
+package com.proyecto.datalab.dto;
+
+import com.proyecto.datalab.service.export.ExportFormat;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ExportJobRequest {
+
+    @NotNull(message = "Debe indicar el formato de exportación")
+    private ExportFormat formato;
+
+    /** Opcional: solo los participantes que cumplen el filtro. */
+    private ParticipanteFiltro filtro;
+
+    /** Opcional: solo las variables de estas secciones o códigos. */
+    private VariableSeleccion seleccion;
+
+    /** Opcional: separador y BOM de los formatos CSV. */
+    private CsvOpciones csv;
+}
@@ -0,0 +1,22 @@
+package com.proyecto.datalab.dto;
+
+import java.time.LocalDateTime;
+
+import com.proyecto.datalab.enums.GrupoParticipante;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Datos de cabecera de un participante (sin respuestas): lo que necesita el
+ * CRF individual para armar la clave de caché y el encabezado del PDF.
+ */
+@Getter
+@AllArgsConstructor
+public class ParticipanteCabecera {
+    private final Integer idParticipante;
+    private final String codigoParticipante;
+    private final String nombreCompleto;
+    private final GrupoParticipante grupo;
+    private final LocalDateTime fechaModificacion;
+}
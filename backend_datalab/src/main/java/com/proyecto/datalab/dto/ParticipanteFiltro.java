@@ -0,0 +1,49 @@
+package com.proyecto.datalab.dto;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import com.proyecto.datalab.enums.EstadoFicha;
+import com.proyecto.datalab.enums.GrupoParticipante;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtros opcionales sobre participantes para las exportaciones. Un campo
+ * nulo no filtra. Se enlaza desde los parámetros de la URL con los mismos
+ * nombres (?grupo=CASO&estadoFicha=COMPLETA&fechaInclusionDesde=2025-01-01).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParticipanteFiltro {
+    private GrupoParticipante grupo;
+    private EstadoFicha estadoFicha;
+    private Integer idReclutador;
+
+    /** Fecha de inclusión mínima, inclusive. */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fechaInclusionDesde;
+
+    /** Fecha de inclusión máxima, inclusive. */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fechaInclusionHasta;
+
+    public boolean isVacio() {
+        return grupo == null && estadoFicha == null && idReclutador == null
+                && fechaInclusionDesde == null && fechaInclusionHasta == null;
+    }
+
+    /**
+     * Representación estable del filtro para claves de caché; vacía si no
+     * filtra nada.
+     */
+    public String clave() {
+        return isVacio() ? "" : toString();
+    }
+}
@@ -0,0 +1,20 @@
+package com.proyecto.datalab.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Fila plana para la exportación NDJSON por participante: datos de cabecera
+ * del participante más una respuesta. idVariable y valorIngresado son nulos
+ * para participantes sin respuestas.
+ */
+@Getter
+@AllArgsConstructor
+public class RegistroTupla {
+    private final int idParticipante;
+    private final String codigoParticipante;
+    private final String grupo;
+    private final String estadoFicha;
+    private final Integer idVariable;
+    private final String valorIngresado;
+}
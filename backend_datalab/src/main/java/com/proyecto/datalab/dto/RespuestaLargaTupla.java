@@ -0,0 +1,21 @@
+package com.proyecto.datalab.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Fila plana para la exportación en formato largo: una respuesta con el
+ * código y grupo de su participante. valorCodificado y huellaCodificacion
+ * son los guardados en la respuesta (pueden estar vencidos o faltar).
+ */
+@Getter
+@AllArgsConstructor
+public class RespuestaLargaTupla {
+    private final int idParticipante;
+    private final String codigoParticipante;
+    private final String grupo;
+    private final int idVariable;
+    private final String valorIngresado;
+    private final String valorCodificado;
+    private final Integer huellaCodificacion;
+}
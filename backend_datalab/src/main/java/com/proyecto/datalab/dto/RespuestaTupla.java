@@ -0,0 +1,28 @@
+package com.proyecto.datalab.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Fila plana de lectura (participante, variable, valor) usada por las
+ * exportaciones y lecturas masivas. No es una entidad administrada.
+ * idVariable y codigoVariable son nulos para participantes sin respuestas.
+ * valorCodificado y huellaCodificacion solo se leen cuando la exportación
+ * usa valores codificados; en el resto de las lecturas son nulos.
+ */
+@Getter
+@AllArgsConstructor
+public class RespuestaTupla {
+    private final int idParticipante;
+    private final String codigoParticipante;
+    private final Integer idVariable;
+    private final String codigoVariable;
+    private final String valorIngresado;
+    private final String valorCodificado;
+    private final Integer huellaCodificacion;
+
+    public RespuestaTupla(int idParticipante, String codigoParticipante, Integer idVariable, String codigoVariable,
+            String valorIngresado) {
+        this(idParticipante, codigoParticipante, idVariable, codigoVariable, valorIngresado, null, null);
+    }
+}
@@ -0,0 +1,17 @@
+package com.proyecto.datalab.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Cantidad de respuestas de un participante y fecha de la última
+ * modificación. Cambia cada vez que se agrega o edita una respuesta.
+ */
+@Getter
+@AllArgsConstructor
+public class RespuestasVersion {
+    private final Long cantidad;
+    private final LocalDateTime ultimaModificacion;
+}
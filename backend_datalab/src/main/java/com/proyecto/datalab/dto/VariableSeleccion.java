@@ -0,0 +1,63 @@
+package com.proyecto.datalab.dto;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.proyecto.datalab.entity.Variable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Columnas a exportar: variables de las secciones indicadas más las
+ * variables indicadas por código (sin distinguir mayúsculas). Si ambas
+ * listas están vacías se exportan todas. Se enlaza desde la URL
+ * (?seccion=Antropometría&codigoVariable=edad,fuma).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariableSeleccion {
+    private List<String> seccion;
+    private List<String> codigoVariable;
+
+    public boolean isVacia() {
+        return normalizar(seccion).isEmpty() && normalizar(codigoVariable).isEmpty();
+    }
+
+    public boolean incluye(Variable v) {
+        if (isVacia())
+            return true;
+        return contiene(seccion, v.getSeccion()) || contiene(codigoVariable, v.getCodigoVariable());
+    }
+
+    /**
+     * Representación estable para claves de caché: el orden y las mayúsculas
+     * de los parámetros no cambian el contenido exportado.
+     */
+    public String clave() {
+        if (isVacia())
+            return "";
+        return "seccion=" + normalizar(seccion) + ";codigoVariable=" + normalizar(codigoVariable);
+    }
+
+    private static boolean contiene(List<String> valores, String valor) {
+        return valor != null && normalizar(valores).contains(valor.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private static Set<String> normalizar(List<String> valores) {
+        Set<String> normalizados = new TreeSet<>();
+        if (valores == null)
+            return normalizados;
+        for (String valor : valores) {
+            if (valor != null && !valor.isBlank())
+                normalizados.add(valor.trim().toLowerCase(Locale.ROOT));
+        }
+        return normalizados;
+    }
+}
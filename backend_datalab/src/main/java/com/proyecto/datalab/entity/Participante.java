@@ -1,6 +1,7 @@
 package com.proyecto.datalab.entity;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -16,10 +17,13 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.Getter;
@@ -29,7 +33,11 @@ import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "Participante")
+@Table(name = "Participante", indexes = {
+        @Index(name = "idx_participante_fecha_modificacion", columnList = "fecha_modificacion"),
+        @Index(name = "idx_participante_grupo_estado", columnList = "grupo, estado_ficha, fecha_inclusion"),
+        @Index(name = "idx_participante_fecha_inclusion", columnList = "fecha_inclusion")
+})
 @Data
 @NoArgsConstructor
 @Getter
@@ -74,6 +82,11 @@ public class Participante {
     @Column(name = "observacion", columnDefinition = "text")
     private String observacion;
 
+    // Última escritura de los datos del participante (no de sus respuestas)
+    @Column(name = "fecha_modificacion")
+    @JsonIgnore
+    private LocalDateTime fechaModificacion;
+
     @OneToMany(mappedBy = "participante", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     // @JsonIgnore - Removed to allow frontend to receive answers
     private List<Respuesta> respuestas;
@@ -81,4 +94,10 @@ public class Participante {
     @OneToMany(mappedBy = "participante", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Auditoria> auditorias;
+
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        fechaModificacion = LocalDateTime.now();
+    }
 }
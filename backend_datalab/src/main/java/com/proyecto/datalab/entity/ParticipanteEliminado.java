@@ -0,0 +1,48 @@
+package com.proyecto.datalab.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Marca (tombstone) de un participante eliminado. Permite que la exportación
+ * incremental informe las bajas a quienes mantienen una copia local.
+ */
+@Entity
+@Table(name = "Participante_Eliminado", indexes = {
+        @Index(name = "idx_participante_eliminado_fecha", columnList = "fecha_eliminacion")
+})
+@Data
+@NoArgsConstructor
+public class ParticipanteEliminado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_eliminado")
+    private Integer idEliminado;
+
+    @Column(name = "id_participante", nullable = false)
+    private Integer idParticipante;
+
+    @Column(name = "codigo_participante", length = 50)
+    private String codigoParticipante;
+
+    @Column(name = "fecha_eliminacion", nullable = false, updatable = false)
+    private LocalDateTime fechaEliminacion;
+
+    @PrePersist
+    protected void onCreate() {
+        if (fechaEliminacion == null) {
+            fechaEliminacion = LocalDateTime.now();
+        }
+    }
+}
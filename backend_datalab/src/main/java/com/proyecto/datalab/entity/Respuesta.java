@@ -1,5 +1,7 @@
 package com.proyecto.datalab.entity;
 
+import java.time.LocalDateTime;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Column;
@@ -8,9 +10,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import lombok.Data;
@@ -19,6 +24,9 @@ import lombok.NoArgsConstructor;
 @Entity
 @Table(name = "Respuesta", uniqueConstraints = {
         @UniqueConstraint(columnNames = { "id_participante", "id_variable" })
+}, indexes = {
+        @Index(name = "idx_respuesta_fecha_modificacion", columnList = "fecha_modificacion"),
+        @Index(name = "idx_respuesta_variable_huella", columnList = "id_variable, huella_codificacion")
 })
 @Data
 @NoArgsConstructor
@@ -43,6 +51,28 @@ public class Respuesta {
     @Column(name = "valor_ingresado", columnDefinition = "text")
     private String valorIngresado;
 
+    // Valor según VariableCodingService al momento de escribir; las
+    // exportaciones codificadas lo leen tal cual si la huella sigue vigente
+    @Lob
+    @Column(name = "valor_codificado", columnDefinition = "text")
+    @JsonIgnore
+    private String valorCodificado;
+
+    @Column(name = "huella_codificacion")
+    @JsonIgnore
+    private Integer huellaCodificacion;
+
+    // Última escritura; la usa la exportación incremental de cambios
+    @Column(name = "fecha_modificacion")
+    @JsonIgnore
+    private LocalDateTime fechaModificacion;
+
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        fechaModificacion = LocalDateTime.now();
+    }
+
     @com.fasterxml.jackson.annotation.JsonProperty("codigoVariable")
     public String getCodigoVariable() {
         return variable != null ? variable.getCodigoVariable() : null;
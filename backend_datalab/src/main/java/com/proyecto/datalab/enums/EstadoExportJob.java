@@ -0,0 +1,9 @@
+package com.proyecto.datalab.enums;
+
+public enum EstadoExportJob {
+    EN_COLA,
+    EN_PROCESO,
+    COMPLETADO,
+    FALLIDO,
+    CANCELADO
+}
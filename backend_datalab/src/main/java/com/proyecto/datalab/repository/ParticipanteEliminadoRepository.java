@@ -0,0 +1,15 @@
+package com.proyecto.datalab.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.proyecto.datalab.entity.ParticipanteEliminado;
+
+@Repository
+public interface ParticipanteEliminadoRepository extends JpaRepository<ParticipanteEliminado, Integer> {
+
+    List<ParticipanteEliminado> findByFechaEliminacionGreaterThanEqualOrderByFechaEliminacion(LocalDateTime desde);
+}
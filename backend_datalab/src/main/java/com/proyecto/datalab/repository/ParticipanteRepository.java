@@ -1,10 +1,15 @@
 package com.proyecto.datalab.repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.proyecto.datalab.dto.ParticipanteCabecera;
 import com.proyecto.datalab.entity.Participante;
 import com.proyecto.datalab.entity.Usuario;
 import com.proyecto.datalab.enums.EstadoFicha;
@@ -21,4 +26,13 @@ public interface ParticipanteRepository extends JpaRepository<Participante, Inte
     long countByEstadoFicha(EstadoFicha estadoFicha);
 
     List<Participante> findTop20ByOrderByFechaInclusionDesc();
+
+    // Solo la fecha: evita cargar participantes con sus respuestas (EAGER)
+    @Query("SELECT p.fechaInclusion FROM Participante p WHERE p.fechaInclusion >= :desde")
+    List<LocalDate> findFechasInclusionDesde(@Param("desde") LocalDate desde);
+
+    // Cabecera para el CRF individual, también sin cargar las respuestas
+    @Query("SELECT new com.proyecto.datalab.dto.ParticipanteCabecera(p.idParticipante, p.codigoParticipante, "
+            + "p.nombreCompleto, p.grupo, p.fechaModificacion) FROM Participante p WHERE p.idParticipante = :id")
+    Optional<ParticipanteCabecera> findCabeceraById(@Param("id") Integer id);
 }
@@ -0,0 +1,85 @@
+package com.proyecto.datalab.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Mantenimiento en SQL nativo de los valores codificados guardados en
+ * Respuesta. Las actualizaciones no pasan por Hibernate, así que no cambian
+ * fecha_modificacion: recodificar no es una modificación de los datos.
+ */
+@Repository
+public class RespuestaCodificacionRepository {
+
+    // Recorre solo el índice (id_variable, huella_codificacion)
+    private static final String SQL_HUELLAS = "SELECT id_variable, huella_codificacion FROM Respuesta "
+            + "GROUP BY id_variable, huella_codificacion";
+
+    private static final String SQL_PENDIENTES = "SELECT id_respuesta, valor_ingresado FROM Respuesta "
+            + "WHERE id_variable = ? AND (huella_codificacion IS NULL OR huella_codificacion <> ?) "
+            + "AND id_respuesta > ? ORDER BY id_respuesta LIMIT ?";
+
+    // Si el valor ingresado cambió mientras tanto, la escritura ya guardó su propio valor codificado
+    private static final String SQL_ACTUALIZAR = "UPDATE Respuesta SET valor_codificado = ?, huella_codificacion = ? "
+            + "WHERE id_respuesta = ? AND (valor_ingresado = ? OR (valor_ingresado IS NULL AND ? IS NULL))";
+
+    /**
+     * Combinación de variable y huella presente en la tabla (huella nula si
+     * la respuesta nunca se codificó).
+     */
+    public record HuellaGuardada(int idVariable, Integer huella) {
+    }
+
+    /**
+     * Respuesta cuyo valor codificado falta o está vencido.
+     */
+    public record Pendiente(int idRespuesta, String valorIngresado) {
+    }
+
+    /**
+     * Valor codificado calculado para una {@link Pendiente}.
+     */
+    public record Recodificada(int idRespuesta, String valorIngresado, String valorCodificado, int huella) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RespuestaCodificacionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public List<HuellaGuardada> findHuellas() {
+        return jdbcTemplate.query(SQL_HUELLAS,
+                (rs, rowNum) -> new HuellaGuardada(rs.getInt(1), rs.getObject(2, Integer.class)));
+    }
+
+    /**
+     * Hasta {@code limite} respuestas de la variable sin codificar o con una
+     * huella distinta de {@code huella}, con id mayor a {@code despuesDe}
+     * (continuación por keyset).
+     */
+    public List<Pendiente> findPendientes(int idVariable, int huella, int despuesDe, int limite) {
+        return jdbcTemplate.query(SQL_PENDIENTES,
+                (rs, rowNum) -> new Pendiente(rs.getInt(1), rs.getString(2)),
+                idVariable, huella, despuesDe, limite);
+    }
+
+    /**
+     * Guarda los valores en un batch; devuelve cuántas filas se actualizaron.
+     */
+    public int actualizar(List<Recodificada> recodificadas) {
+        List<Object[]> args = new ArrayList<>(recodificadas.size());
+        for (Recodificada r : recodificadas)
+            args.add(new Object[] { r.valorCodificado(), r.huella(), r.idRespuesta(), r.valorIngresado(),
+                    r.valorIngresado() });
+        int total = 0;
+        for (int filas : jdbcTemplate.batchUpdate(SQL_ACTUALIZAR, args))
+            total += Math.max(filas, 0);
+        return total;
+    }
+}
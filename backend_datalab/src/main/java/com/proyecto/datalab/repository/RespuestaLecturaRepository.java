@@ -0,0 +1,300 @@
+package com.proyecto.datalab.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.proyecto.datalab.dto.CrfTupla;
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.dto.RegistroTupla;
+import com.proyecto.datalab.dto.RespuestaLargaTupla;
+import com.proyecto.datalab.dto.RespuestaTupla;
+
+/**
+ * Lecturas masivas de respuestas en SQL nativo sobre JDBC.
+ * No pasan por Hibernate: no se hidratan entidades Respuesta/Variable ni se
+ * registran en el contexto de persistencia, por lo que no hay dirty checking.
+ * Si se invoca dentro de una transacción JPA usa la misma conexión.
+ */
+@Repository
+public class RespuestaLecturaRepository {
+
+    private static final String SQL_TUPLAS_SELECT = "SELECT p.id_participante, p.codigo_participante, "
+            + "r.id_variable, v.codigo_variable, r.valor_ingresado";
+
+    private static final String SQL_TUPLAS_CODIFICADAS = ", r.valor_codificado, r.huella_codificacion";
+
+    private static final String SQL_TUPLAS_SIN_CODIFICAR = ", NULL, NULL";
+
+    private static final String SQL_TUPLAS_FROM = " FROM Participante p "
+            + "LEFT JOIN Respuesta r ON r.id_participante = p.id_participante";
+
+    private static final String SQL_TUPLAS_JOIN_VARIABLE = " LEFT JOIN Variable v ON v.id_variable = r.id_variable";
+
+    private static final String SQL_CONTAR_PARTICIPANTES = "SELECT COUNT(*) FROM Participante p";
+
+    // Participantes con datos o respuestas modificados desde una fecha. La
+    // tabla derivada usa los índices de fecha_modificacion, así el costo
+    // depende del volumen de cambios y no del tamaño del estudio.
+    private static final String SQL_TUPLAS_MODIFICADAS = "SELECT p.id_participante, p.codigo_participante, "
+            + "r.id_variable, v.codigo_variable, r.valor_ingresado, NULL, NULL "
+            + "FROM (SELECT id_participante FROM Participante WHERE fecha_modificacion >= ? "
+            + "UNION SELECT id_participante FROM Respuesta WHERE fecha_modificacion >= ?) c "
+            + "JOIN Participante p ON p.id_participante = c.id_participante "
+            + "LEFT JOIN Respuesta r ON r.id_participante = p.id_participante "
+            + "LEFT JOIN Variable v ON v.id_variable = r.id_variable "
+            + "ORDER BY p.id_participante";
+
+    private static final String SQL_CRF_SELECT = "SELECT p.id_participante, p.codigo_participante, "
+            + "p.nombre_completo, p.grupo, r.id_variable, r.valor_ingresado "
+            + "FROM Participante p "
+            + "LEFT JOIN Respuesta r ON r.id_participante = p.id_participante";
+
+    private static final String SQL_REGISTROS_SELECT = "SELECT p.id_participante, p.codigo_participante, "
+            + "p.grupo, p.estado_ficha, r.id_variable, r.valor_ingresado ";
+
+    // Recorre Respuesta en el orden de su índice único (id_participante,
+    // id_variable): sin agrupar ni ordenar en memoria en la base
+    private static final String SQL_LARGO_SELECT = "SELECT p.id_participante, p.codigo_participante, p.grupo, "
+            + "r.id_variable, r.valor_ingresado, r.valor_codificado, r.huella_codificacion "
+            + "FROM Respuesta r JOIN Participante p ON p.id_participante = r.id_participante";
+
+    private static final String SQL_LARGO_ORDEN = " ORDER BY r.id_participante, r.id_variable";
+
+    private static final String SQL_VALORES_POR_CODIGO = "SELECT r.valor_ingresado "
+            + "FROM Respuesta r JOIN Variable v ON v.id_variable = r.id_variable "
+            + "WHERE UPPER(v.codigo_variable) = UPPER(?)";
+
+    private static final RowMapper<RespuestaTupla> TUPLA_MAPPER = (rs, rowNum) -> new RespuestaTupla(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getObject(3, Integer.class),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getObject(7, Integer.class));
+
+    private static final RowMapper<CrfTupla> CRF_MAPPER = (rs, rowNum) -> new CrfTupla(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getObject(5, Integer.class),
+            rs.getString(6));
+
+    private static final RowMapper<RegistroTupla> REGISTRO_MAPPER = (rs, rowNum) -> new RegistroTupla(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getObject(5, Integer.class),
+            rs.getString(6));
+
+    private static final RowMapper<RespuestaLargaTupla> LARGO_MAPPER = (rs, rowNum) -> new RespuestaLargaTupla(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getInt(4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getObject(7, Integer.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param fetchSize Integer.MIN_VALUE hace que MySQL entregue las filas en
+     *                  streaming en vez de materializar todo el resultado.
+     */
+    public RespuestaLecturaRepository(DataSource dataSource,
+            @Value("${datalab.export.fetch-size:-2147483648}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Cursor de solo avance con una tupla por respuesta, ordenado por
+     * participante y restringido por {@code filtro} (null = todos). Los
+     * participantes sin respuestas aparecen una vez con variable y valor
+     * nulos. El filtro se aplica en el WHERE sobre Participante, así que solo
+     * se leen las respuestas de los participantes seleccionados.
+     * {@code idVariables} limita las respuestas leídas (null = todas); esa
+     * condición va en el JOIN y no en el WHERE para que los participantes sin
+     * esas respuestas sigan apareciendo una vez. Con {@code codificados} se
+     * leen además el valor codificado guardado y su huella; si no, esas
+     * columnas vienen nulas y no se transfieren. El stream debe cerrarse.
+     */
+    public Stream<RespuestaTupla> streamTuplas(ParticipanteFiltro filtro, List<Integer> idVariables,
+            boolean codificados) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SQL_TUPLAS_SELECT)
+                .append(codificados ? SQL_TUPLAS_CODIFICADAS : SQL_TUPLAS_SIN_CODIFICAR)
+                .append(SQL_TUPLAS_FROM);
+        if (idVariables != null) {
+            if (idVariables.isEmpty()) {
+                sql.append(" AND 1 = 0");
+            } else {
+                sql.append(" AND r.id_variable IN (")
+                        .append(String.join(",", Collections.nCopies(idVariables.size(), "?")))
+                        .append(')');
+                args.addAll(idVariables);
+            }
+        }
+        sql.append(SQL_TUPLAS_JOIN_VARIABLE).append(where(filtro, args)).append(" ORDER BY p.id_participante");
+        return jdbcTemplate.queryForStream(sql.toString(), TUPLA_MAPPER, args.toArray());
+    }
+
+    /**
+     * Cantidad de participantes que cumplen {@code filtro} (null = todos).
+     */
+    public long countParticipantes(ParticipanteFiltro filtro) {
+        List<Object> args = new ArrayList<>();
+        Long total = jdbcTemplate.queryForObject(SQL_CONTAR_PARTICIPANTES + where(filtro, args), Long.class,
+                args.toArray());
+        return total != null ? total : 0L;
+    }
+
+    /**
+     * Igual que {@link #streamTuplas(ParticipanteFiltro, List, boolean)} sin
+     * valores codificados, pero solo para participantes cuyos datos o alguna
+     * respuesta cambiaron desde {@code desde}. Se entregan todas las
+     * respuestas de cada participante, no solo las modificadas.
+     */
+    public Stream<RespuestaTupla> streamTuplasModificadasDesde(LocalDateTime desde) {
+        return jdbcTemplate.queryForStream(SQL_TUPLAS_MODIFICADAS, TUPLA_MAPPER, desde, desde);
+    }
+
+    /**
+     * Cursor para generar CRF en lote: una fila por respuesta con los datos de
+     * cabecera del participante, ordenado por participante y restringido por
+     * {@code filtro}. El stream debe cerrarse.
+     */
+    public Stream<CrfTupla> streamCrfTuplas(ParticipanteFiltro filtro) {
+        List<Object> args = new ArrayList<>();
+        String sql = SQL_CRF_SELECT + where(filtro, args) + " ORDER BY p.id_participante";
+        return jdbcTemplate.queryForStream(sql, CRF_MAPPER, args.toArray());
+    }
+
+    /**
+     * Filas de CRF de un solo participante (ver
+     * {@link #streamCrfTuplas(ParticipanteFiltro)}); vacía si no existe.
+     */
+    public List<CrfTupla> findCrfTuplas(int idParticipante) {
+        return jdbcTemplate.query(SQL_CRF_SELECT + " WHERE p.id_participante = ?", CRF_MAPPER, idParticipante);
+    }
+
+    /**
+     * Cursor por keyset para la exportación NDJSON: como
+     * {@link #streamTuplas(ParticipanteFiltro, List, boolean)} pero con grupo
+     * y estado del participante, y solo para participantes con id mayor a
+     * {@code despuesDe}. Con {@code limite} se leen a lo sumo esa cantidad de
+     * participantes; el corte se hace sobre Participante en una tabla
+     * derivada, así que nunca deja a un participante a medias. La
+     * continuación usa la clave primaria y no un OFFSET, de modo que retomar
+     * cuesta lo mismo al principio que al final. El stream debe cerrarse.
+     */
+    public Stream<RegistroTupla> streamRegistros(ParticipanteFiltro filtro, List<Integer> idVariables,
+            int despuesDe, Integer limite) {
+        List<Object> whereArgs = new ArrayList<>();
+        String where = where(filtro, whereArgs);
+        where += (where.isEmpty() ? " WHERE " : " AND ") + "p.id_participante > ?";
+        whereArgs.add(despuesDe);
+
+        // Los parámetros se agregan en el orden en que aparecen en el SQL
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SQL_REGISTROS_SELECT);
+        if (limite != null) {
+            sql.append("FROM (SELECT p.id_participante FROM Participante p").append(where)
+                    .append(" ORDER BY p.id_participante LIMIT ?) k ")
+                    .append("JOIN Participante p ON p.id_participante = k.id_participante ");
+            args.addAll(whereArgs);
+            args.add(limite);
+            where = "";
+            whereArgs.clear();
+        } else {
+            sql.append("FROM Participante p ");
+        }
+        sql.append("LEFT JOIN Respuesta r ON r.id_participante = p.id_participante");
+        if (idVariables != null) {
+            if (idVariables.isEmpty()) {
+                sql.append(" AND 1 = 0");
+            } else {
+                sql.append(" AND r.id_variable IN (")
+                        .append(String.join(",", Collections.nCopies(idVariables.size(), "?")))
+                        .append(')');
+                args.addAll(idVariables);
+            }
+        }
+        sql.append(where).append(" ORDER BY p.id_participante");
+        args.addAll(whereArgs);
+        return jdbcTemplate.queryForStream(sql.toString(), REGISTRO_MAPPER, args.toArray());
+    }
+
+    /**
+     * Cursor para la exportación en formato largo: una tupla por respuesta,
+     * en el orden del índice único de Respuesta (participante, variable), con
+     * el código y grupo del participante y el valor codificado guardado. A
+     * diferencia de {@link #streamTuplas(ParticipanteFiltro, List, boolean)}
+     * los participantes sin respuestas no aparecen. {@code idVariables}
+     * limita las variables leídas (null = todas). El stream debe cerrarse.
+     */
+    public Stream<RespuestaLargaTupla> streamRespuestasLargo(ParticipanteFiltro filtro, List<Integer> idVariables) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SQL_LARGO_SELECT);
+        if (idVariables != null) {
+            if (idVariables.isEmpty()) {
+                sql.append(" AND 1 = 0");
+            } else {
+                sql.append(" AND r.id_variable IN (")
+                        .append(String.join(",", Collections.nCopies(idVariables.size(), "?")))
+                        .append(')');
+                args.addAll(idVariables);
+            }
+        }
+        sql.append(where(filtro, args)).append(SQL_LARGO_ORDEN);
+        return jdbcTemplate.queryForStream(sql.toString(), LARGO_MAPPER, args.toArray());
+    }
+
+    /**
+     * Valores ingresados para una variable, sin importar mayúsculas del código.
+     */
+    public List<String> findValoresByCodigoVariable(String codigoVariable) {
+        return jdbcTemplate.queryForList(SQL_VALORES_POR_CODIGO, String.class, codigoVariable);
+    }
+
+    // Condiciones sobre el alias p (Participante); los valores van como parámetros
+    private static String where(ParticipanteFiltro filtro, List<Object> args) {
+        if (filtro == null || filtro.isVacio())
+            return "";
+        List<String> condiciones = new ArrayList<>();
+        if (filtro.getGrupo() != null) {
+            condiciones.add("p.grupo = ?");
+            args.add(filtro.getGrupo().name());
+        }
+        if (filtro.getEstadoFicha() != null) {
+            condiciones.add("p.estado_ficha = ?");
+            args.add(filtro.getEstadoFicha().name());
+        }
+        if (filtro.getIdReclutador() != null) {
+            condiciones.add("p.id_reclutador = ?");
+            args.add(filtro.getIdReclutador());
+        }
+        if (filtro.getFechaInclusionDesde() != null) {
+            condiciones.add("p.fecha_inclusion >= ?");
+            args.add(filtro.getFechaInclusionDesde());
+        }
+        if (filtro.getFechaInclusionHasta() != null) {
+            condiciones.add("p.fecha_inclusion <= ?");
+            args.add(filtro.getFechaInclusionHasta());
+        }
+        return " WHERE " + String.join(" AND ", condiciones);
+    }
+}
@@ -3,8 +3,11 @@ package com.proyecto.datalab.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.proyecto.datalab.dto.RespuestasVersion;
 import com.proyecto.datalab.entity.Respuesta;
 
 @Repository
@@ -13,4 +16,9 @@ public interface RespuestaRepository extends JpaRepository<Respuesta, Integer> {
     Optional<Respuesta> findByParticipante_IdParticipanteAndVariable_IdVariable(Integer idParticipante, Integer idVariable);
 
     java.util.List<Respuesta> findByParticipante_IdParticipante(Integer idParticipante);
+
+    // Clave del caché de CRF: solo recorre las filas del participante (índice único)
+    @Query("SELECT new com.proyecto.datalab.dto.RespuestasVersion(COUNT(r), MAX(r.fechaModificacion)) "
+            + "FROM Respuesta r WHERE r.participante.idParticipante = :idParticipante")
+    RespuestasVersion findVersionByParticipante(@Param("idParticipante") Integer idParticipante);
 }
@@ -15,15 +15,18 @@ import org.springframework.data.domain.Sort;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.proyecto.datalab.entity.Participante;
+import com.proyecto.datalab.entity.ParticipanteEliminado;
 import com.proyecto.datalab.entity.Respuesta;
 import com.proyecto.datalab.entity.Usuario;
 import com.proyecto.datalab.entity.Variable;
 import com.proyecto.datalab.enums.EstadoFicha;
 import com.proyecto.datalab.enums.GrupoParticipante;
+import com.proyecto.datalab.repository.ParticipanteEliminadoRepository;
 import com.proyecto.datalab.repository.ParticipanteRepository;
 import com.proyecto.datalab.repository.RespuestaRepository;
 import com.proyecto.datalab.repository.UsuarioRepository;
 import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.export.StudyDataVersion;
 import com.proyecto.datalab.web.dto.CrfListadoDTO;
 import com.proyecto.datalab.web.dto.CrfRespuestaDTO;
 
@@ -42,17 +45,26 @@ public class ParticipanteService {
         private final UsuarioRepository usuarioRepository;
         private final VariableRepository variableRepository;
         private final AuditoriaService auditoriaService;
+        private final StudyDataVersion studyDataVersion;
+        private final ParticipanteEliminadoRepository participanteEliminadoRepository;
+        private final VariableCodingService variableCodingService;
 
         public ParticipanteService(ParticipanteRepository participanteRepository,
                         RespuestaRepository respuestaRepository,
                         UsuarioRepository usuarioRepository,
                         VariableRepository variableRepository,
-                        AuditoriaService auditoriaService) {
+                        AuditoriaService auditoriaService,
+                        StudyDataVersion studyDataVersion,
+                        ParticipanteEliminadoRepository participanteEliminadoRepository,
+                        VariableCodingService variableCodingService) {
                 this.participanteRepository = participanteRepository;
                 this.respuestaRepository = respuestaRepository;
                 this.usuarioRepository = usuarioRepository;
                 this.variableRepository = variableRepository;
                 this.auditoriaService = auditoriaService;
+                this.studyDataVersion = studyDataVersion;
+                this.participanteEliminadoRepository = participanteEliminadoRepository;
+                this.variableCodingService = variableCodingService;
         }
 
         /**
@@ -102,6 +114,7 @@ public class ParticipanteService {
                                 "Participante",
                                 "Se creo el participante ID: " + participanteGuardado.getIdParticipante());
 
+                studyDataVersion.bump();
                 return participanteRepository.save(participanteGuardado);
         }
 
@@ -172,6 +185,8 @@ public class ParticipanteService {
                         respuesta.setParticipante(participante);
                         respuesta.setVariable(variable);
                         respuesta.setValorIngresado(valor);
+                        // El valor codificado se guarda junto al crudo: la exportación codificada no recodifica
+                        variableCodingService.codificar(respuesta);
 
                         respuestaRepository.save(respuesta);
                         existentes.put(variable.getIdVariable(), valor);
@@ -191,6 +206,7 @@ public class ParticipanteService {
                 boolean completo = isFichaCompleta(existentes, participante.getGrupo());
                 participante.setEstadoFicha(completo ? EstadoFicha.COMPLETA : EstadoFicha.INCOMPLETA);
                 participanteRepository.save(participante);
+                studyDataVersion.bump();
         }
 
         private boolean isFichaCompleta(Map<Integer, String> respuestasActuales, GrupoParticipante grupo) {
@@ -290,6 +306,7 @@ public class ParticipanteService {
                 participante.setObservacion(justificacion.trim());
 
                 Participante actualizado = participanteRepository.save(participante);
+                studyDataVersion.bump();
 
                 auditoriaService.registrarAccion(
                                 editor,
@@ -304,7 +321,15 @@ public class ParticipanteService {
 
         @Transactional
         public void eliminarParticipante(Integer participanteId) {
-                participanteRepository.findById(participanteId).ifPresent(participanteRepository::delete);
+                participanteRepository.findById(participanteId).ifPresent(participante -> {
+                        // Tombstone para que la exportación incremental informe la baja
+                        ParticipanteEliminado eliminado = new ParticipanteEliminado();
+                        eliminado.setIdParticipante(participante.getIdParticipante());
+                        eliminado.setCodigoParticipante(participante.getCodigoParticipante());
+                        participanteEliminadoRepository.save(eliminado);
+                        participanteRepository.delete(participante);
+                });
+                studyDataVersion.bump();
         }
 
         /**
@@ -8,6 +8,7 @@ import com.proyecto.datalab.entity.Variable;
 import com.proyecto.datalab.repository.ParticipanteRepository;
 import com.proyecto.datalab.repository.RespuestaRepository;
 import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.export.StudyDataVersion;
 
 import jakarta.transaction.Transactional;
 
@@ -17,11 +18,15 @@ public class RespuestaService {
     private final ParticipanteRepository participanteRepository;
     private final RespuestaRepository respuestaRepository;
     private final VariableRepository variableRepository;
+    private final StudyDataVersion studyDataVersion;
+    private final VariableCodingService variableCodingService;
 
-    RespuestaService(RespuestaRepository respuestaRepository, ParticipanteRepository participanteRepository, VariableRepository variableRepository) {
+    RespuestaService(RespuestaRepository respuestaRepository, ParticipanteRepository participanteRepository, VariableRepository variableRepository, StudyDataVersion studyDataVersion, VariableCodingService variableCodingService) {
         this.respuestaRepository = respuestaRepository;
         this.participanteRepository = participanteRepository;
         this.variableRepository = variableRepository;
+        this.studyDataVersion = studyDataVersion;
+        this.variableCodingService = variableCodingService;
     }
 
     @Transactional
@@ -37,7 +42,9 @@ public class RespuestaService {
         newRespuesta.setParticipante(participante);
         newRespuesta.setValorIngresado(valorRespuesta);
         newRespuesta.setVariable(columna);
+        variableCodingService.codificar(newRespuesta);
 
+        studyDataVersion.bump();
         return respuestaRepository.save(newRespuesta);
     }
 
@@ -48,8 +55,10 @@ public class RespuestaService {
 
             if (request.getValorIngresado() !=null && !request.getValorIngresado().isEmpty()) {
                 respuesta.setValorIngresado(request.getValorIngresado());
+                variableCodingService.codificar(respuesta);
             }
 
+        studyDataVersion.bump();
         return respuestaRepository.save(respuesta);
     }
 }
@@ -1,13 +1,42 @@
 package com.proyecto.datalab.service;
 
 import org.springframework.stereotype.Service;
+import com.proyecto.datalab.entity.Respuesta;
 import com.proyecto.datalab.entity.Variable;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class VariableCodingService {
 
+    /**
+     * Versión de las reglas de encodeValue. Cambiarla al modificar las reglas
+     * hace que los valores codificados guardados queden vencidos y se vuelvan
+     * a calcular (ver RecodificacionService).
+     */
+    public static final int VERSION_REGLAS = 1;
+
+    /**
+     * Huella de todo lo que determina la codificación de la variable (reglas,
+     * código y opciones). Un valor codificado guardado con otra huella está
+     * vencido.
+     */
+    public int huella(Variable variable) {
+        String codigo = variable.getCodigoVariable();
+        return Objects.hash(VERSION_REGLAS, codigo != null ? codigo.toLowerCase() : null, variable.getOpciones());
+    }
+
+    /**
+     * Calcula y guarda en la respuesta el valor codificado de su valor
+     * ingresado, junto con la huella de la variable.
+     */
+    public void codificar(Respuesta respuesta) {
+        Variable variable = respuesta.getVariable();
+        respuesta.setValorCodificado(encodeValue(variable, respuesta.getValorIngresado()));
+        respuesta.setHuellaCodificacion(huella(variable));
+    }
+
     /**
      * Transforma un valor crudo a su codigo segun reglas definidas.
      */
@@ -5,6 +5,8 @@ import org.springframework.stereotype.Service;
 import com.proyecto.datalab.dto.VariableCreateRequest;
 import com.proyecto.datalab.entity.Variable;
 import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.export.RecodificacionService;
+import com.proyecto.datalab.service.export.StudyDataVersion;
 
 import jakarta.transaction.Transactional;
 import java.util.List;
@@ -14,9 +16,14 @@ import org.springframework.data.domain.Sort;
 public class VariableService {
 
     private final VariableRepository variableRepository;
+    private final StudyDataVersion studyDataVersion;
+    private final RecodificacionService recodificacionService;
 
-    VariableService(VariableRepository variableRepository) {
+    VariableService(VariableRepository variableRepository, StudyDataVersion studyDataVersion,
+            RecodificacionService recodificacionService) {
         this.variableRepository = variableRepository;
+        this.studyDataVersion = studyDataVersion;
+        this.recodificacionService = recodificacionService;
     }
 
     @Transactional
@@ -33,6 +40,7 @@ public class VariableService {
         variable.setEsObligatoria(request.isEsObligatoria());
         variable.setReglaValidacion(request.getReglaValidacion());
 
+        studyDataVersion.bumpCatalogo();
         return variableRepository.save(variable);
     }
 
@@ -48,6 +56,7 @@ public class VariableService {
     @Transactional
     public void eliminarVariable(String codigo) {
         variableRepository.deleteByCodigoVariable(codigo);
+        studyDataVersion.bumpCatalogo();
     }
 
     @Transactional
@@ -55,6 +64,22 @@ public class VariableService {
         Variable variable = variableRepository.findByCodigoVariable(codigo)
                 .orElseThrow(() -> new RuntimeException("Variable no encontrada: " + codigo));
         variable.setEsObligatoria(esObligatoria);
+        studyDataVersion.bumpCatalogo();
+        return variableRepository.save(variable);
+    }
+
+    /**
+     * Cambia las opciones de la variable. Como cambian sus códigos, los
+     * valores codificados guardados de sus respuestas se recalculan en
+     * segundo plano.
+     */
+    @Transactional
+    public Variable actualizarOpciones(String codigo, String opciones) {
+        Variable variable = variableRepository.findByCodigoVariable(codigo)
+                .orElseThrow(() -> new RuntimeException("Variable no encontrada: " + codigo));
+        variable.setOpciones(opciones);
+        studyDataVersion.bumpCatalogo();
+        recodificacionService.programar();
         return variableRepository.save(variable);
     }
 }
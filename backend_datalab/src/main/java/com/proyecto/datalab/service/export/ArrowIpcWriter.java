@@ -0,0 +1,541 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import org.apache.arrow.flatbuf.Block;
+import org.apache.arrow.flatbuf.Buffer;
+import org.apache.arrow.flatbuf.DictionaryBatch;
+import org.apache.arrow.flatbuf.DictionaryEncoding;
+import org.apache.arrow.flatbuf.Endianness;
+import org.apache.arrow.flatbuf.Field;
+import org.apache.arrow.flatbuf.FieldNode;
+import org.apache.arrow.flatbuf.FloatingPoint;
+import org.apache.arrow.flatbuf.Footer;
+import org.apache.arrow.flatbuf.Int;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.MetadataVersion;
+import org.apache.arrow.flatbuf.Precision;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.Type;
+import org.apache.arrow.flatbuf.Utf8;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Escritor Arrow IPC en formato stream (.arrows) o archivo (Feather v2 /
+ * .arrow). Las filas se acumulan en buffers columnares de tamaño fijo y se
+ * escriben como un record batch cada {@code filasPorLote} filas, así que la
+ * memoria depende del tamaño del lote y no del total. Los buffers quedan con
+ * el layout de Arrow, de modo que pandas / R pueden mapear el archivo sin
+ * interpretar nada.
+ *
+ * Las columnas categóricas se codifican con diccionario (índices int32). En
+ * el stream los valores que no están entre las opciones se agregan como
+ * diccionarios delta antes del lote que los usa; en el archivo el
+ * diccionario completo se escribe al final, antes del footer.
+ */
+@Slf4j
+public final class ArrowIpcWriter {
+
+    private static final int CONTINUACION = 0xFFFFFFFF;
+    private static final byte[] MAGIA = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final int ALINEACION = 8;
+    // Valores fuera de las opciones que se aceptan por columna antes de dejarlos nulos
+    private static final int MAX_EXTRAS = 10_000;
+
+    public enum Tipo {
+        UTF8,
+        FLOAT64,
+        /** Índices int32 sobre un diccionario utf8. */
+        DICCIONARIO
+    }
+
+    /**
+     * Definición de una columna.
+     */
+    public static final class Columna {
+        private final String nombre;
+        private final Tipo tipo;
+        private final List<String> opciones;
+        private final ToIntFunction<String> codificador;
+
+        private Columna(String nombre, Tipo tipo, List<String> opciones, ToIntFunction<String> codificador) {
+            this.nombre = nombre;
+            this.tipo = tipo;
+            this.opciones = opciones;
+            this.codificador = codificador;
+        }
+
+        public static Columna texto(String nombre) {
+            return new Columna(nombre, Tipo.UTF8, null, null);
+        }
+
+        /**
+         * Valores con coma o punto decimal; lo que no se pueda interpretar
+         * queda nulo.
+         */
+        public static Columna numerica(String nombre) {
+            return new Columna(nombre, Tipo.FLOAT64, null, null);
+        }
+
+        /**
+         * @param opciones    entradas iniciales del diccionario (índice 0, 1, ...)
+         * @param codificador índice del valor crudo, o -1 si no coincide con
+         *                    ninguna opción; esos valores se agregan al
+         *                    diccionario con su texto original
+         */
+        public static Columna categorica(String nombre, List<String> opciones, ToIntFunction<String> codificador) {
+            return new Columna(nombre, Tipo.DICCIONARIO, List.copyOf(opciones), codificador);
+        }
+    }
+
+    private final OutputStream out;
+    private final Columna[] columnas;
+    private final boolean archivo;
+    private final int filasPorLote;
+    private long posicion;
+    private boolean iniciado;
+
+    // Lote en construcción: una entrada por columna, null si no aplica al tipo
+    private int filas;
+    private final byte[][] validez;
+    private final int[] nulos;
+    private final double[][] numeros;
+    private final int[][] indices;
+    private final int[][] offsets;
+    private final byte[][] datos;
+    private final ByteBuffer scratch;
+
+    // Diccionarios: entradas acumuladas, cuántas ya se enviaron y valores ya resueltos
+    private final List<List<String>> entradas = new ArrayList<>();
+    private final int[] enviadas;
+    private final List<Map<String, Integer>> memo = new ArrayList<>();
+
+    // Bloques del footer (offset, largo de metadatos, largo del cuerpo)
+    private final List<long[]> bloquesDiccionarios = new ArrayList<>();
+    private final List<long[]> bloquesLotes = new ArrayList<>();
+
+    /**
+     * @param archivo true para formato archivo (Feather v2), false para stream
+     */
+    public ArrowIpcWriter(OutputStream out, List<Columna> columnas, boolean archivo, int filasPorLote) {
+        this.out = out;
+        this.columnas = columnas.toArray(new Columna[0]);
+        this.archivo = archivo;
+        this.filasPorLote = Math.max(1, filasPorLote);
+
+        int k = this.columnas.length;
+        this.validez = new byte[k][];
+        this.nulos = new int[k];
+        this.numeros = new double[k][];
+        this.indices = new int[k][];
+        this.offsets = new int[k][];
+        this.datos = new byte[k][];
+        this.enviadas = new int[k];
+        for (int c = 0; c < k; c++) {
+            validez[c] = new byte[(this.filasPorLote + 7) / 8];
+            switch (this.columnas[c].tipo) {
+                case FLOAT64 -> numeros[c] = new double[this.filasPorLote];
+                case DICCIONARIO -> indices[c] = new int[this.filasPorLote];
+                case UTF8 -> {
+                    offsets[c] = new int[this.filasPorLote + 1];
+                    datos[c] = new byte[1024];
+                }
+            }
+            boolean categorica = this.columnas[c].tipo == Tipo.DICCIONARIO;
+            entradas.add(categorica ? new ArrayList<>(this.columnas[c].opciones) : null);
+            memo.add(categorica ? new HashMap<>() : null);
+        }
+        this.scratch = ByteBuffer.allocate(this.filasPorLote * 8).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Agrega una fila. {@code valores} tiene una posición por columna (null o
+     * vacío = nulo) y puede reutilizarse después de la llamada.
+     */
+    public void addRow(String[] valores) throws IOException {
+        if (!iniciado)
+            iniciar();
+        int fila = filas;
+        for (int c = 0; c < columnas.length; c++) {
+            String valor = valores[c];
+            boolean valido = switch (columnas[c].tipo) {
+                case UTF8 -> putTexto(c, fila, valor);
+                case FLOAT64 -> putNumero(c, fila, valor);
+                case DICCIONARIO -> putIndice(c, fila, valor);
+            };
+            if (valido)
+                validez[c][fila >> 3] |= (byte) (1 << (fila & 7));
+            else
+                nulos[c]++;
+        }
+        if (++filas == filasPorLote)
+            escribirLote();
+    }
+
+    /**
+     * Escribe el último lote y el cierre del formato. No cierra {@code out}.
+     */
+    public void finish() throws IOException {
+        if (!iniciado)
+            iniciar();
+        if (filas > 0)
+            escribirLote();
+
+        if (archivo) {
+            // Un único diccionario completo por columna; el footer indica dónde está
+            for (int c = 0; c < columnas.length; c++) {
+                if (columnas[c].tipo == Tipo.DICCIONARIO)
+                    bloquesDiccionarios.add(escribirDiccionario(c, 0, false));
+            }
+        }
+        escribirInt(CONTINUACION);
+        escribirInt(0);
+
+        if (archivo) {
+            FlatBufferBuilder b = new FlatBufferBuilder(1024);
+            int schema = schema(b);
+            int diccionarios = bloques(b, bloquesDiccionarios, true);
+            int lotes = bloques(b, bloquesLotes, false);
+            Footer.startFooter(b);
+            Footer.addVersion(b, MetadataVersion.V5);
+            Footer.addSchema(b, schema);
+            Footer.addDictionaries(b, diccionarios);
+            Footer.addRecordBatches(b, lotes);
+            b.finish(Footer.endFooter(b));
+            byte[] footer = b.sizedByteArray();
+            escribir(footer, footer.length);
+            escribirInt(footer.length);
+            escribir(MAGIA, MAGIA.length);
+        }
+        out.flush();
+    }
+
+    private void iniciar() throws IOException {
+        iniciado = true;
+        if (archivo) {
+            escribir(MAGIA, MAGIA.length);
+            rellenar(MAGIA.length);
+        }
+        FlatBufferBuilder b = new FlatBufferBuilder(1024);
+        int schema = schema(b);
+        escribirMensaje(b, MessageHeader.Schema, schema, 0);
+
+        // En el stream el diccionario debe preceder al primer lote que lo usa
+        if (!archivo) {
+            for (int c = 0; c < columnas.length; c++) {
+                if (columnas[c].tipo == Tipo.DICCIONARIO)
+                    escribirDiccionario(c, 0, false);
+            }
+        }
+    }
+
+    // --- Celdas ---
+
+    private boolean putTexto(int c, int fila, String valor) {
+        int inicio = offsets[c][fila];
+        int fin = inicio;
+        boolean valido = valor != null && !valor.isEmpty();
+        if (valido) {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            if (inicio + bytes.length > datos[c].length)
+                datos[c] = Arrays.copyOf(datos[c], Math.max(datos[c].length * 2, inicio + bytes.length));
+            System.arraycopy(bytes, 0, datos[c], inicio, bytes.length);
+            fin += bytes.length;
+        }
+        offsets[c][fila + 1] = fin;
+        return valido;
+    }
+
+    private boolean putNumero(int c, int fila, String valor) {
+        numeros[c][fila] = 0;
+        double d = ValorParser.numero(valor);
+        if (Double.isNaN(d))
+            return false;
+        numeros[c][fila] = d;
+        return true;
+    }
+
+    private boolean putIndice(int c, int fila, String valor) {
+        indices[c][fila] = 0;
+        if (valor == null || valor.isBlank())
+            return false;
+        Map<String, Integer> conocidos = memo.get(c);
+        Integer indice = conocidos.get(valor);
+        if (indice == null) {
+            indice = columnas[c].codificador.applyAsInt(valor);
+            if (indice < 0)
+                indice = agregarEntrada(c, valor.trim());
+            if (conocidos.size() < MAX_EXTRAS)
+                conocidos.put(valor, indice);
+        }
+        if (indice < 0)
+            return false;
+        indices[c][fila] = indice;
+        return true;
+    }
+
+    // Valor fuera de las opciones: se agrega al diccionario (o -1 si ya no hay lugar)
+    private int agregarEntrada(int c, String texto) {
+        List<String> lista = entradas.get(c);
+        int idx = lista.indexOf(texto);
+        if (idx >= 0)
+            return idx;
+        if (lista.size() - columnas[c].opciones.size() >= MAX_EXTRAS) {
+            log.warn("Arrow: la columna {} superó {} valores fuera de las opciones; el resto queda nulo",
+                    columnas[c].nombre, MAX_EXTRAS);
+            return -1;
+        }
+        lista.add(texto);
+        return lista.size() - 1;
+    }
+
+    // --- Mensajes ---
+
+    private void escribirLote() throws IOException {
+        if (!archivo) {
+            for (int c = 0; c < columnas.length; c++) {
+                if (columnas[c].tipo == Tipo.DICCIONARIO && entradas.get(c).size() > enviadas[c])
+                    escribirDiccionario(c, enviadas[c], true);
+            }
+        }
+
+        int n = filas;
+        List<Long> largos = new ArrayList<>(columnas.length * 3);
+        for (int c = 0; c < columnas.length; c++) {
+            largos.add((long) (n + 7) / 8);
+            switch (columnas[c].tipo) {
+                case UTF8 -> {
+                    largos.add(4L * (n + 1));
+                    largos.add((long) offsets[c][n]);
+                }
+                case FLOAT64 -> largos.add(8L * n);
+                case DICCIONARIO -> largos.add(4L * n);
+            }
+        }
+
+        FlatBufferBuilder b = new FlatBufferBuilder(1024);
+        RecordBatch.startNodesVector(b, columnas.length);
+        for (int c = columnas.length - 1; c >= 0; c--)
+            FieldNode.createFieldNode(b, n, nulos[c]);
+        int nodos = b.endVector();
+        long cuerpo = buffers(b, largos);
+        int buffers = b.endVector();
+        RecordBatch.startRecordBatch(b);
+        RecordBatch.addLength(b, n);
+        RecordBatch.addNodes(b, nodos);
+        RecordBatch.addBuffers(b, buffers);
+        int lote = RecordBatch.endRecordBatch(b);
+
+        long inicio = posicion;
+        int metadatos = escribirMensaje(b, MessageHeader.RecordBatch, lote, cuerpo);
+        for (int c = 0; c < columnas.length; c++) {
+            escribirBuffer(validez[c], (n + 7) / 8);
+            switch (columnas[c].tipo) {
+                case UTF8 -> {
+                    escribirInts(offsets[c], n + 1);
+                    escribirBuffer(datos[c], offsets[c][n]);
+                }
+                case FLOAT64 -> {
+                    scratch.clear();
+                    scratch.asDoubleBuffer().put(numeros[c], 0, n);
+                    escribirBuffer(scratch.array(), 8 * n);
+                }
+                case DICCIONARIO -> escribirInts(indices[c], n);
+            }
+        }
+        if (archivo)
+            bloquesLotes.add(new long[] { inicio, metadatos, cuerpo });
+
+        // Reinicio del lote
+        filas = 0;
+        for (int c = 0; c < columnas.length; c++) {
+            Arrays.fill(validez[c], (byte) 0);
+            nulos[c] = 0;
+        }
+    }
+
+    /**
+     * Escribe las entradas {@code desde}..fin del diccionario de la columna
+     * {@code c} como un lote utf8 de una sola columna.
+     */
+    private long[] escribirDiccionario(int c, int desde, boolean delta) throws IOException {
+        List<String> lista = entradas.get(c);
+        int n = lista.size() - desde;
+        int[] offs = new int[n + 1];
+        byte[][] textos = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            textos[i] = lista.get(desde + i).getBytes(StandardCharsets.UTF_8);
+            offs[i + 1] = offs[i] + textos[i].length;
+        }
+        byte[] validos = new byte[(n + 7) / 8];
+        Arrays.fill(validos, (byte) 0xFF);
+
+        FlatBufferBuilder b = new FlatBufferBuilder(256);
+        RecordBatch.startNodesVector(b, 1);
+        FieldNode.createFieldNode(b, n, 0);
+        int nodos = b.endVector();
+        long cuerpo = buffers(b, List.of((long) validos.length, 4L * (n + 1), (long) offs[n]));
+        int buffers = b.endVector();
+        RecordBatch.startRecordBatch(b);
+        RecordBatch.addLength(b, n);
+        RecordBatch.addNodes(b, nodos);
+        RecordBatch.addBuffers(b, buffers);
+        int lote = RecordBatch.endRecordBatch(b);
+        int diccionario = DictionaryBatch.createDictionaryBatch(b, c, lote, delta);
+
+        long inicio = posicion;
+        int metadatos = escribirMensaje(b, MessageHeader.DictionaryBatch, diccionario, cuerpo);
+        escribirBuffer(validos, validos.length);
+        escribirInts(offs, n + 1);
+        int escritos = 0;
+        for (byte[] texto : textos) {
+            escribir(texto, texto.length);
+            escritos += texto.length;
+        }
+        rellenar(escritos);
+        enviadas[c] = lista.size();
+        return new long[] { inicio, metadatos, cuerpo };
+    }
+
+    /**
+     * Vector de buffers del lote (offset y largo dentro del cuerpo, cada uno
+     * alineado a 8 bytes). Deja el vector abierto y devuelve el largo total
+     * del cuerpo.
+     */
+    private static long buffers(FlatBufferBuilder b, List<Long> largos) {
+        long[] desplazamientos = new long[largos.size()];
+        long total = 0;
+        for (int i = 0; i < largos.size(); i++) {
+            desplazamientos[i] = total;
+            total += alinear(largos.get(i));
+        }
+        RecordBatch.startBuffersVector(b, largos.size());
+        for (int i = largos.size() - 1; i >= 0; i--)
+            Buffer.createBuffer(b, desplazamientos[i], largos.get(i));
+        return total;
+    }
+
+    private int schema(FlatBufferBuilder b) {
+        int[] campos = new int[columnas.length];
+        for (int c = 0; c < columnas.length; c++) {
+            Columna columna = columnas[c];
+            int nombre = b.createString(columna.nombre != null ? columna.nombre : "");
+            byte tipo;
+            int detalle;
+            if (columna.tipo == Tipo.FLOAT64) {
+                tipo = Type.FloatingPoint;
+                detalle = FloatingPoint.createFloatingPoint(b, Precision.DOUBLE);
+            } else {
+                tipo = Type.Utf8;
+                Utf8.startUtf8(b);
+                detalle = Utf8.endUtf8(b);
+            }
+            int diccionario = 0;
+            if (columna.tipo == Tipo.DICCIONARIO) {
+                int indice = Int.createInt(b, 32, true);
+                diccionario = DictionaryEncoding.createDictionaryEncoding(b, c, indice, false, (short) 0);
+            }
+            int hijos = Field.createChildrenVector(b, new int[0]);
+            Field.startField(b);
+            Field.addName(b, nombre);
+            Field.addNullable(b, true);
+            Field.addTypeType(b, tipo);
+            Field.addType(b, detalle);
+            if (diccionario != 0)
+                Field.addDictionary(b, diccionario);
+            Field.addChildren(b, hijos);
+            campos[c] = Field.endField(b);
+        }
+        int vector = Schema.createFieldsVector(b, campos);
+        Schema.startSchema(b);
+        Schema.addEndianness(b, Endianness.Little);
+        Schema.addFields(b, vector);
+        return Schema.endSchema(b);
+    }
+
+    private static int bloques(FlatBufferBuilder b, List<long[]> bloques, boolean diccionarios) {
+        if (diccionarios)
+            Footer.startDictionariesVector(b, bloques.size());
+        else
+            Footer.startRecordBatchesVector(b, bloques.size());
+        for (int i = bloques.size() - 1; i >= 0; i--) {
+            long[] bloque = bloques.get(i);
+            Block.createBlock(b, bloque[0], (int) bloque[1], bloque[2]);
+        }
+        return b.endVector();
+    }
+
+    /**
+     * Marca de continuación, largo y flatbuffer del mensaje, alineado a 8
+     * bytes. Devuelve el largo total de los metadatos (lo que el footer llama
+     * metaDataLength).
+     */
+    private int escribirMensaje(FlatBufferBuilder b, byte tipo, int cabecera, long cuerpo) throws IOException {
+        Message.startMessage(b);
+        Message.addVersion(b, MetadataVersion.V5);
+        Message.addHeaderType(b, tipo);
+        Message.addHeader(b, cabecera);
+        Message.addBodyLength(b, cuerpo);
+        b.finish(Message.endMessage(b));
+        byte[] mensaje = b.sizedByteArray();
+
+        int largo = (int) alinear(8 + mensaje.length) - 8;
+        escribirInt(CONTINUACION);
+        escribirInt(largo);
+        escribir(mensaje, mensaje.length);
+        rellenar(mensaje.length);
+        return 8 + largo;
+    }
+
+    // --- Primitivas ---
+
+    private void escribirBuffer(byte[] bytes, int largo) throws IOException {
+        escribir(bytes, largo);
+        rellenar(largo);
+    }
+
+    private void escribirInts(int[] valores, int n) throws IOException {
+        scratch.clear();
+        ByteBuffer buffer = n * 4 <= scratch.capacity() ? scratch
+                : ByteBuffer.allocate(n * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(valores, 0, n);
+        escribirBuffer(buffer.array(), n * 4);
+    }
+
+    private void escribirInt(int valor) throws IOException {
+        scratch.clear();
+        scratch.putInt(valor);
+        escribir(scratch.array(), 4);
+    }
+
+    private void escribir(byte[] bytes, int largo) throws IOException {
+        out.write(bytes, 0, largo);
+        posicion += largo;
+    }
+
+    // Ceros hasta el próximo múltiplo de 8, según lo ya escrito del bloque
+    private void rellenar(long escrito) throws IOException {
+        int relleno = (int) (alinear(escrito) - escrito);
+        if (relleno > 0)
+            escribir(new byte[relleno], relleno);
+    }
+
+    private static long alinear(long largo) {
+        return (largo + ALINEACION - 1) / ALINEACION * ALINEACION;
+    }
+}
@@ -0,0 +1,50 @@
+package com.proyecto.datalab.service.export;
+
+/**
+ * Valores mal formados por columna detectados al escribir una exportación
+ * tipada: cuántos hubo y el primero de ellos como ejemplo. Se acumula en la
+ * misma pasada que escribe las filas.
+ */
+public final class CalidadDatos {
+
+    private final long[] invalidos;
+    private final String[] ejemplos;
+    private final String[] participantes;
+
+    public CalidadDatos(int columnas) {
+        this.invalidos = new long[columnas];
+        this.ejemplos = new String[columnas];
+        this.participantes = new String[columnas];
+    }
+
+    /**
+     * Registra un valor de la columna {@code col} que no calzó con su tipo.
+     */
+    public void invalido(int col, String codigoParticipante, String valor) {
+        if (invalidos[col]++ == 0) {
+            ejemplos[col] = valor;
+            participantes[col] = codigoParticipante;
+        }
+    }
+
+    public long getInvalidos(int col) {
+        return invalidos[col];
+    }
+
+    /** Primer valor mal formado de la columna, o null si no hubo. */
+    public String getEjemplo(int col) {
+        return ejemplos[col];
+    }
+
+    /** Participante del primer valor mal formado, o null si no hubo. */
+    public String getParticipante(int col) {
+        return participantes[col];
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (long n : invalidos)
+            total += n;
+        return total;
+    }
+}
@@ -0,0 +1,104 @@
+package com.proyecto.datalab.service.export;
+
+import java.util.Arrays;
+
+/**
+ * Contadores del export codificado acumulados en la misma pasada que escribe
+ * las filas: ceros, unos y vacíos por columna y, para variables categóricas
+ * u ordinales, la frecuencia de cada código. Usa arreglos primitivos para no
+ * retener la matriz codificada en memoria.
+ */
+public final class CodedSummary {
+
+    // Los códigos de opciones son chicos; uno mayor (p. ej. un número que no
+    // pasó por el codificador) cuenta como "otros" en vez de agrandar el arreglo
+    private static final int MAX_CODIGO = 9999;
+
+    private final ExportPlan plan;
+    private final long[] ceros;
+    private final long[] unos;
+    private final long[] vacios;
+    // Frecuencia por código (índice = código); null si la columna no es categórica
+    private final long[][] frecuencias;
+    // Valores no vacíos que no son un código entero (texto que no calzó con opciones)
+    private final long[] otros;
+
+    public CodedSummary(ExportPlan plan, boolean[] categoricas) {
+        int n = plan.size();
+        this.plan = plan;
+        this.ceros = new long[n];
+        this.unos = new long[n];
+        this.vacios = new long[n];
+        this.otros = new long[n];
+        this.frecuencias = new long[n][];
+        for (int col = 0; col < n; col++) {
+            if (categoricas[col])
+                frecuencias[col] = new long[4];
+        }
+    }
+
+    /**
+     * Registra el valor codificado de la columna {@code col} para la fila actual.
+     */
+    public void accept(int col, String coded) {
+        if (coded == null || coded.isEmpty()) {
+            vacios[col]++;
+            return;
+        }
+        if (coded.equals("0"))
+            ceros[col]++;
+        else if (coded.equals("1"))
+            unos[col]++;
+
+        long[] freq = frecuencias[col];
+        if (freq == null)
+            return;
+        int codigo = ValorParser.codigo(coded);
+        if (codigo < 0 || codigo > MAX_CODIGO) {
+            otros[col]++;
+            return;
+        }
+        if (codigo >= freq.length) {
+            freq = Arrays.copyOf(freq, Math.max(codigo + 1, freq.length * 2));
+            frecuencias[col] = freq;
+        }
+        freq[codigo]++;
+    }
+
+    public ExportPlan getPlan() {
+        return plan;
+    }
+
+    public long getCeros(int col) {
+        return ceros[col];
+    }
+
+    public long getUnos(int col) {
+        return unos[col];
+    }
+
+    public long getVacios(int col) {
+        return vacios[col];
+    }
+
+    public long getOtros(int col) {
+        return otros[col];
+    }
+
+    public boolean isCategorica(int col) {
+        return frecuencias[col] != null;
+    }
+
+    /**
+     * Frecuencias por código de una columna categórica (índice = código).
+     */
+    public long[] getFrecuencias(int col) {
+        long[] freq = frecuencias[col];
+        if (freq == null)
+            return new long[0];
+        int last = freq.length;
+        while (last > 0 && freq[last - 1] == 0)
+            last--;
+        return Arrays.copyOf(freq, last);
+    }
+}
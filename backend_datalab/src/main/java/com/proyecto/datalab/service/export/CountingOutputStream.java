@@ -0,0 +1,30 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Cuenta los bytes escritos y los reporta al {@link ExportProgress}.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    private final ExportProgress progress;
+
+    public CountingOutputStream(OutputStream out, ExportProgress progress) {
+        super(out);
+        this.progress = progress;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        progress.addBytes(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        progress.addBytes(len);
+    }
+}
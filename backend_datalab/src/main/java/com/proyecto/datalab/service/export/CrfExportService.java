@@ -0,0 +1,180 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.proyecto.datalab.dto.CrfTupla;
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.repository.RespuestaLecturaRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Exportación de CRF en lote como ZIP. Un único hilo recorre el cursor de
+ * respuestas (ordenado por participante) y entrega cada participante completo
+ * a un pool acotado que genera los PDF en paralelo; cada PDF terminado se
+ * agrega al ZIP de la respuesta en orden de finalización. La cantidad de PDF
+ * pendientes por petición está limitada, así que la memoria no depende del
+ * número de participantes.
+ */
+@Service
+public class CrfExportService {
+
+    private final RespuestaLecturaRepository respuestaLecturaRepository;
+    private final CrfPdfService crfPdfService;
+    private final CrfPdfRenderer crfPdfRenderer;
+    private final ExportMetrics exportMetrics;
+    private final ThreadPoolExecutor executor;
+    private final int maxPendientes;
+
+    private record CrfPdf(String nombreArchivo, byte[] contenido) {
+    }
+
+    public CrfExportService(RespuestaLecturaRepository respuestaLecturaRepository,
+            CrfPdfService crfPdfService,
+            CrfPdfRenderer crfPdfRenderer,
+            ExportMetrics exportMetrics,
+            @Value("${datalab.export.crf.threads:0}") int threads) {
+        this.respuestaLecturaRepository = respuestaLecturaRepository;
+        this.crfPdfService = crfPdfService;
+        this.crfPdfRenderer = crfPdfRenderer;
+        this.exportMetrics = exportMetrics;
+
+        // 0 = un hilo por núcleo disponible
+        int hilos = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.maxPendientes = hilos * 2;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "crf-pdf-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Escribe en {@code out} un ZIP con un PDF por participante que cumpla
+     * {@code filtro}. Si un PDF falla o el cliente se desconecta, se cancelan
+     * los pendientes y el error se propaga.
+     */
+    @Transactional(readOnly = true)
+    public void writeZip(OutputStream out, ParticipanteFiltro filtro) throws IOException {
+        // Una sola plantilla compartida por todos los PDF
+        CrfTemplate plantilla = crfPdfService.plantilla();
+        ExportProgress progress = new ExportProgress();
+        exportMetrics.medicion("CRF_ZIP", filtro).columnas(plantilla.getPlan().size())
+                .medir(out, progress, o -> writeZip(o, filtro, plantilla, progress));
+    }
+
+    private void writeZip(OutputStream out, ParticipanteFiltro filtro, CrfTemplate plantilla,
+            ExportProgress progress) throws IOException {
+        ExportPlan plan = plantilla.getPlan();
+        CompletionService<CrfPdf> completion = new ExecutorCompletionService<>(executor);
+        Set<Future<CrfPdf>> pendientes = new HashSet<>();
+        ZipOutputStream zip = new ZipOutputStream(out);
+
+        try (Stream<CrfTupla> filas = respuestaLecturaRepository.streamCrfTuplas(filtro)) {
+            Iterator<CrfTupla> it = filas.iterator();
+            String[] valores = plan.newRowBuffer();
+            CrfTupla actual = null;
+
+            while (it.hasNext()) {
+                CrfTupla fila = it.next();
+                if (actual == null || fila.getIdParticipante() != actual.getIdParticipante()) {
+                    if (actual != null)
+                        enviar(completion, pendientes, zip, actual, plantilla, valores, progress);
+                    actual = fila;
+                    Arrays.fill(valores, null);
+                }
+                int col = plan.columnaDe(fila.getIdVariable());
+                if (col >= 0)
+                    valores[col] = fila.getValorIngresado();
+            }
+            if (actual != null)
+                enviar(completion, pendientes, zip, actual, plantilla, valores, progress);
+
+            while (!pendientes.isEmpty())
+                escribirSiguiente(completion, pendientes, zip, progress);
+            zip.finish();
+            zip.flush();
+        } finally {
+            for (Future<CrfPdf> pendiente : pendientes)
+                pendiente.cancel(true);
+        }
+    }
+
+    private void enviar(CompletionService<CrfPdf> completion, Set<Future<CrfPdf>> pendientes, ZipOutputStream zip,
+            CrfTupla participante, CrfTemplate plantilla, String[] valores, ExportProgress progress)
+            throws IOException {
+        // El buffer de fila se reutiliza: cada tarea recibe su propia copia
+        String[] copia = valores.clone();
+        String codigo = participante.getCodigoParticipante();
+        String nombreArchivo = "crf_" + (codigo != null ? codigo : participante.getIdParticipante()) + ".pdf";
+
+        pendientes.add(completion.submit(() -> {
+            ByteArrayOutputStream pdf = new ByteArrayOutputStream(16 * 1024);
+            crfPdfRenderer.render(plantilla, codigo, participante.getNombreCompleto(), participante.getGrupo(), copia,
+                    pdf);
+            return new CrfPdf(nombreArchivo, pdf.toByteArray());
+        }));
+
+        if (pendientes.size() >= maxPendientes)
+            escribirSiguiente(completion, pendientes, zip, progress);
+    }
+
+    private void escribirSiguiente(CompletionService<CrfPdf> completion, Set<Future<CrfPdf>> pendientes,
+            ZipOutputStream zip, ExportProgress progress) throws IOException {
+        CrfPdf pdf;
+        try {
+            Future<CrfPdf> terminado = completion.take();
+            pendientes.remove(terminado);
+            pdf = terminado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Exportación de CRF interrumpida");
+        } catch (ExecutionException e) {
+            throw new IOException("No se pudo generar un CRF", e.getCause());
+        }
+
+        // Los PDF ya vienen comprimidos: se guardan sin volver a comprimir
+        CRC32 crc = new CRC32();
+        crc.update(pdf.contenido());
+        ZipEntry entry = new ZipEntry(pdf.nombreArchivo());
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(pdf.contenido().length);
+        entry.setCompressedSize(pdf.contenido().length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(pdf.contenido());
+        zip.closeEntry();
+        progress.onRow();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,86 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.OutputStream;
+
+import org.springframework.stereotype.Component;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+
+/**
+ * Genera el PDF del CRF de un participante a partir de una {@link CrfTemplate}.
+ * No guarda estado entre llamadas, así que puede usarse desde varios hilos a
+ * la vez; las filas por grupo ya vienen calculadas en la plantilla y las
+ * fuentes se crean una sola vez.
+ */
+@Component
+public class CrfPdfRenderer {
+
+    private static final Font TITULO = new Font(Font.FontFamily.HELVETICA, 16, Font.BOLD);
+    private static final Font CELDA = new Font();
+
+    /**
+     * @param grupo   nombre del grupo (CASO / CONTROL) o null
+     * @param valores una posición por columna del plan de {@code plantilla}
+     */
+    public void render(CrfTemplate plantilla, String codigoParticipante, String nombreCompleto, String grupo,
+            String[] valores, OutputStream out) throws DocumentException {
+        Document document = new Document();
+        PdfWriter.getInstance(document, out);
+        document.open();
+
+        Paragraph title = new Paragraph("CRF - Ficha de Participante", TITULO);
+        title.setAlignment(Element.ALIGN_CENTER);
+        document.add(title);
+        document.add(new Paragraph(" "));
+
+        PdfPTable info = new PdfPTable(2);
+        info.setWidthPercentage(100);
+        addInfoCell(info, "Código", safe(codigoParticipante));
+        addInfoCell(info, "Nombre", safe(nombreCompleto));
+        addInfoCell(info, "Grupo", safe(grupo));
+        document.add(info);
+        document.add(new Paragraph(" "));
+
+        CrfTemplate.Layout layout = plantilla.layout(grupo);
+        PdfPTable table = new PdfPTable(2);
+        table.setWidthPercentage(100);
+        addCell(table, "Enunciado");
+        addCell(table, "Valor");
+
+        for (int fila = 0; fila < layout.size(); fila++) {
+            addCell(table, layout.enunciados()[fila]);
+
+            // codigo_participante se completa aunque no tenga respuesta
+            String val = valores[layout.columnas()[fila]];
+            if (fila == layout.filaCodigo() && (val == null || val.isEmpty()))
+                val = codigoParticipante;
+            addCell(table, safe(val));
+        }
+
+        document.add(table);
+        document.close();
+    }
+
+    private void addCell(PdfPTable table, String value) {
+        PdfPCell cell = new PdfPCell(new Phrase(value, CELDA));
+        cell.setPadding(5);
+        table.addCell(cell);
+    }
+
+    private void addInfoCell(PdfPTable table, String label, String value) {
+        table.addCell(label);
+        table.addCell(value);
+    }
+
+    private String safe(String s) {
+        return s == null ? "" : s;
+    }
+}
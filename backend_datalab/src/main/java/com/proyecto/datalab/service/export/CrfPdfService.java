@@ -0,0 +1,133 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.itextpdf.text.DocumentException;
+import com.proyecto.datalab.dto.CrfTupla;
+import com.proyecto.datalab.dto.ParticipanteCabecera;
+import com.proyecto.datalab.dto.RespuestasVersion;
+import com.proyecto.datalab.repository.RespuestaLecturaRepository;
+import com.proyecto.datalab.repository.RespuestaRepository;
+
+/**
+ * CRF en PDF de un participante. La {@link CrfTemplate} se arma una vez por
+ * versión del catálogo de variables y la comparten el CRF individual y el ZIP
+ * en lote.
+ *
+ * Los PDF individuales se guardan en memoria (LRU acotado) con clave versión
+ * del catálogo + última modificación del participante + cantidad y última
+ * modificación de sus respuestas. La clave se lee de la base en cada pedido,
+ * así que una respuesta nueva o editada invalida el PDF, incluso si se
+ * escribió desde otra instancia. Las respuestas solo se leen (como tuplas,
+ * sin hidratar entidades) cuando el PDF no está en caché.
+ */
+@Service
+public class CrfPdfService {
+
+    private final ExportService exportService;
+    private final RespuestaRepository respuestaRepository;
+    private final RespuestaLecturaRepository respuestaLecturaRepository;
+    private final CrfPdfRenderer crfPdfRenderer;
+    private final StudyDataVersion studyDataVersion;
+    private final ExportMetrics exportMetrics;
+    private final Map<Integer, PdfCacheado> cache;
+
+    private volatile CrfTemplate plantilla;
+
+    private record PdfCacheado(String clave, byte[] contenido) {
+    }
+
+    public CrfPdfService(ExportService exportService,
+            RespuestaRepository respuestaRepository,
+            RespuestaLecturaRepository respuestaLecturaRepository,
+            CrfPdfRenderer crfPdfRenderer,
+            StudyDataVersion studyDataVersion,
+            ExportMetrics exportMetrics,
+            @Value("${datalab.export.crf.cache.max-entries:200}") int maxEntradas) {
+        this.exportService = exportService;
+        this.respuestaRepository = respuestaRepository;
+        this.respuestaLecturaRepository = respuestaLecturaRepository;
+        this.crfPdfRenderer = crfPdfRenderer;
+        this.studyDataVersion = studyDataVersion;
+        this.exportMetrics = exportMetrics;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, PdfCacheado> eldest) {
+                return size() > maxEntradas;
+            }
+        };
+    }
+
+    /**
+     * Plantilla vigente; se rearma solo si cambió el catálogo de variables.
+     */
+    public CrfTemplate plantilla() {
+        long version = studyDataVersion.catalogo();
+        CrfTemplate actual = plantilla;
+        if (actual == null || actual.getVersion() != version) {
+            // La versión se lee antes que las variables: si cambian en medio, se rearma en el próximo pedido
+            actual = CrfTemplate.of(ExportPlan.of(exportService.getAllVariablesSorted()), version);
+            plantilla = actual;
+        }
+        return actual;
+    }
+
+    /**
+     * PDF del CRF de {@code participante}, desde el caché si sus respuestas
+     * no cambiaron desde la última impresión.
+     */
+    @Transactional(readOnly = true)
+    public byte[] pdfParticipante(ParticipanteCabecera participante) throws IOException {
+        CrfTemplate plantilla = plantilla();
+        Integer id = participante.getIdParticipante();
+        String clave = clave(participante, plantilla);
+
+        synchronized (cache) {
+            PdfCacheado cacheado = cache.get(id);
+            if (cacheado != null && cacheado.clave().equals(clave))
+                return cacheado.contenido();
+        }
+
+        ExportPlan plan = plantilla.getPlan();
+        String[] valores = plan.newRowBuffer();
+        for (CrfTupla fila : respuestaLecturaRepository.findCrfTuplas(id)) {
+            if (fila.getIdVariable() == null)
+                continue;
+            int col = plan.columnaDe(fila.getIdVariable());
+            if (col >= 0)
+                valores[col] = fila.getValorIngresado();
+        }
+
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream(16 * 1024);
+        ExportProgress progress = new ExportProgress();
+        exportMetrics.medicion("CRF_PDF", null).columnas(plan.size()).medir(pdf, progress, o -> {
+            try {
+                crfPdfRenderer.render(plantilla, participante.getCodigoParticipante(),
+                        participante.getNombreCompleto(),
+                        participante.getGrupo() != null ? participante.getGrupo().name() : null, valores, o);
+            } catch (DocumentException e) {
+                throw new IOException("No se pudo generar el CRF del participante " + id, e);
+            }
+            progress.onRow();
+        });
+        byte[] contenido = pdf.toByteArray();
+
+        synchronized (cache) {
+            cache.put(id, new PdfCacheado(clave, contenido));
+        }
+        return contenido;
+    }
+
+    private String clave(ParticipanteCabecera participante, CrfTemplate plantilla) {
+        RespuestasVersion respuestas = respuestaRepository.findVersionByParticipante(participante.getIdParticipante());
+        return plantilla.getVersion() + "|" + participante.getFechaModificacion()
+                + "|" + (respuestas != null ? respuestas.getCantidad() + "|" + respuestas.getUltimaModificacion() : "");
+    }
+}
@@ -0,0 +1,95 @@
+package com.proyecto.datalab.service.export;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.enums.GrupoParticipante;
+
+/**
+ * Plantilla del CRF calculada una vez por versión del catálogo de variables:
+ * el {@link ExportPlan} para llenar los valores y, por grupo, qué columnas se
+ * imprimen y con qué enunciado. Es inmutable, así que la comparten todos los
+ * PDF que se generan en paralelo.
+ */
+public final class CrfTemplate {
+
+    private static final String AMBOS = "Ambos";
+    private static final String CODIGO_PARTICIPANTE = "codigo_participante";
+
+    /**
+     * Filas del CRF para un grupo: {@code columnas[i]} es la columna del plan
+     * de la fila i. {@code filaCodigo} es la fila de codigo_participante, o -1.
+     */
+    public record Layout(int[] columnas, String[] enunciados, int filaCodigo) {
+
+        public int size() {
+            return columnas.length;
+        }
+    }
+
+    private final long version;
+    private final ExportPlan plan;
+    private final Map<GrupoParticipante, Layout> porGrupo;
+    private final Layout sinGrupo;
+
+    private CrfTemplate(long version, ExportPlan plan, Map<GrupoParticipante, Layout> porGrupo, Layout sinGrupo) {
+        this.version = version;
+        this.plan = plan;
+        this.porGrupo = porGrupo;
+        this.sinGrupo = sinGrupo;
+    }
+
+    /**
+     * @param version versión del catálogo con la que se armó {@code plan}
+     */
+    public static CrfTemplate of(ExportPlan plan, long version) {
+        Map<GrupoParticipante, Layout> porGrupo = new EnumMap<>(GrupoParticipante.class);
+        for (GrupoParticipante grupo : GrupoParticipante.values())
+            porGrupo.put(grupo, layout(plan, grupo.name()));
+        return new CrfTemplate(version, plan, porGrupo, layout(plan, ""));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public ExportPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Filas que corresponden a {@code grupo} (CASO / CONTROL); sin grupo solo
+     * se imprimen las variables que aplican a ambos.
+     */
+    public Layout layout(String grupo) {
+        if (grupo == null || grupo.isEmpty())
+            return sinGrupo;
+        for (Map.Entry<GrupoParticipante, Layout> e : porGrupo.entrySet()) {
+            if (e.getKey().name().equalsIgnoreCase(grupo))
+                return e.getValue();
+        }
+        return layout(plan, grupo);
+    }
+
+    private static Layout layout(ExportPlan plan, String grupo) {
+        List<Integer> columnas = new ArrayList<>();
+        List<String> enunciados = new ArrayList<>();
+        int filaCodigo = -1;
+        for (int col = 0; col < plan.size(); col++) {
+            Variable v = plan.getVariable(col);
+            // Filtro por grupo (Aplica A)
+            String aplica = v.getAplicaA() != null ? v.getAplicaA() : AMBOS;
+            if (!aplica.equalsIgnoreCase(AMBOS) && !aplica.equalsIgnoreCase(grupo))
+                continue;
+            if (filaCodigo < 0 && CODIGO_PARTICIPANTE.equalsIgnoreCase(v.getCodigoVariable()))
+                filaCodigo = columnas.size();
+            columnas.add(col);
+            enunciados.add(v.getEnunciado() != null ? v.getEnunciado() : "");
+        }
+        return new Layout(columnas.stream().mapToInt(Integer::intValue).toArray(),
+                enunciados.toArray(new String[0]), filaCodigo);
+    }
+}
@@ -0,0 +1,179 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Escritor CSV (RFC 4180) que codifica a UTF-8 directamente en un buffer de
+ * bytes reutilizable y lo vuelca al stream cuando se llena. Cada valor se
+ * recorre una vez para decidir si necesita comillas (separador, comillas o
+ * saltos de línea) y si es ASCII, y otra para copiarlo: los ASCII sin
+ * comillas se copian en bloque, el resto se codifica carácter a carácter.
+ * No se crean Strings intermedios por celda ni pasa por un
+ * Writer/CharsetEncoder.
+ *
+ * Uso: {@link #campo(String)} por cada celda, {@link #finFila()} al terminar
+ * la fila y {@link #flush()} al final. No cierra el stream.
+ */
+public final class CsvWriter implements Flushable {
+
+    private static final byte[] BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Lo máximo que ocupa un carácter en UTF-8 (par sustituto)
+    private static final int MAX_BYTES_CARACTER = 4;
+
+    // Resultado de examinar un valor
+    private static final int COMILLAS = 1;
+    private static final int NO_ASCII = 2;
+
+    private final OutputStream out;
+    private final char separador;
+    private final byte[] buffer;
+    private int pos;
+    private boolean inicioFila = true;
+
+    /**
+     * CSV con coma y sin BOM.
+     */
+    public CsvWriter(OutputStream out) throws IOException {
+        this(out, ',', false);
+    }
+
+    /**
+     * @param separador carácter ASCII entre campos; no puede ser comillas ni
+     *                  salto de línea
+     * @param bom       antepone la marca de orden de bytes UTF-8, para que
+     *                  Excel detecte la codificación al abrir el archivo
+     */
+    public CsvWriter(OutputStream out, char separador, boolean bom) throws IOException {
+        if (separador >= 0x80 || separador == '"' || separador == '\n' || separador == '\r')
+            throw new IllegalArgumentException("Separador CSV no válido: " + separador);
+        this.out = out;
+        this.separador = separador;
+        this.buffer = new byte[BUFFER_SIZE];
+        if (bom) {
+            System.arraycopy(BOM, 0, buffer, 0, BOM.length);
+            pos = BOM.length;
+        }
+    }
+
+    /**
+     * Agrega una celda a la fila en curso; null se escribe como celda vacía.
+     */
+    public void campo(String valor) throws IOException {
+        if (inicioFila)
+            inicioFila = false;
+        else
+            escribirByte((byte) separador);
+        if (valor == null || valor.isEmpty())
+            return;
+        int tipo = examinar(valor);
+        if ((tipo & COMILLAS) != 0) {
+            escribirByte((byte) '"');
+            escribir(valor, true);
+            escribirByte((byte) '"');
+        } else if ((tipo & NO_ASCII) == 0) {
+            escribirAscii(valor);
+        } else {
+            escribir(valor, false);
+        }
+    }
+
+    /**
+     * Termina la fila en curso.
+     */
+    public void finFila() throws IOException {
+        escribirByte((byte) '\n');
+        inicioFila = true;
+    }
+
+    /**
+     * Vuelca el buffer y hace flush del stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        vaciar();
+        out.flush();
+    }
+
+    // Una sola pasada: si necesita comillas y si tiene caracteres fuera de ASCII
+    private int examinar(String valor) {
+        int tipo = 0;
+        for (int i = 0, n = valor.length(); i < n; i++) {
+            char c = valor.charAt(i);
+            if (c >= 0x80)
+                tipo |= NO_ASCII;
+            else if (c == separador || c == '"' || c == '\n' || c == '\r')
+                return tipo | COMILLAS;
+        }
+        return tipo;
+    }
+
+    // Valor ASCII sin comillas (el caso más común): copia directa de los bytes
+    @SuppressWarnings("deprecation")
+    private void escribirAscii(String valor) throws IOException {
+        int n = valor.length();
+        int i = 0;
+        while (i < n) {
+            if (pos == buffer.length)
+                vaciar();
+            int largo = Math.min(n - i, buffer.length - pos);
+            valor.getBytes(i, i + largo, buffer, pos);
+            pos += largo;
+            i += largo;
+        }
+    }
+
+    // UTF-8 a mano: ASCII en el camino rápido, el resto según su rango; con
+    // comillas, las comillas internas se duplican
+    private void escribir(String valor, boolean duplicarComillas) throws IOException {
+        byte[] buf = buffer;
+        int n = valor.length();
+        int i = 0;
+        while (i < n) {
+            if (pos + MAX_BYTES_CARACTER + 1 > buf.length)
+                vaciar();
+            int limite = Math.min(n, i + (buf.length - pos - 1) / MAX_BYTES_CARACTER);
+            int p = pos;
+            while (i < limite) {
+                char c = valor.charAt(i++);
+                if (c < 0x80) {
+                    if (c == '"' && duplicarComillas)
+                        buf[p++] = '"';
+                    buf[p++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[p++] = (byte) (0xC0 | (c >> 6));
+                    buf[p++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i < n && Character.isLowSurrogate(valor.charAt(i))) {
+                    int cp = Character.toCodePoint(c, valor.charAt(i++));
+                    buf[p++] = (byte) (0xF0 | (cp >> 18));
+                    buf[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[p++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Sustituto sin pareja: mismo reemplazo que el codificador de Java
+                    buf[p++] = '?';
+                } else {
+                    buf[p++] = (byte) (0xE0 | (c >> 12));
+                    buf[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[p++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            pos = p;
+        }
+    }
+
+    private void escribirByte(byte b) throws IOException {
+        if (pos == buffer.length)
+            vaciar();
+        buffer[pos++] = b;
+    }
+
+    private void vaciar() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+}
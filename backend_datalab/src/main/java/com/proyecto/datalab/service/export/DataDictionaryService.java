@@ -0,0 +1,254 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.service.VariableCodingService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Diccionario de datos (leyenda PDF y codebook CSV / JSON) precalculado por
+ * versión del catálogo de variables. Los tres archivos se generan juntos la
+ * primera vez que se piden después de un cambio del catálogo (o al arrancar)
+ * y se sirven desde memoria hasta el próximo cambio; nunca se modifican, así
+ * que el ETag depende solo de la versión.
+ */
+@Service
+@Slf4j
+public class DataDictionaryService {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+    private static final Font TITULO = new Font(Font.FontFamily.HELVETICA, 16, Font.BOLD);
+    private static final Font CELDA = new Font();
+
+    private static final String[] COLUMNAS_CSV = { "codigo_variable", "enunciado", "seccion", "tipo_dato",
+            "aplica_a", "es_obligatoria", "orden_enunciado", "opciones", "codificacion" };
+
+    /**
+     * Archivos del diccionario.
+     */
+    public enum Formato {
+        PDF("leyenda_variables.pdf", "application/pdf"),
+        CSV("diccionario_variables.csv", "text/csv"),
+        JSON("diccionario_variables.json", "application/json");
+
+        private final String fileName;
+        private final String contentType;
+
+        Formato(String fileName, String contentType) {
+            this.fileName = fileName;
+            this.contentType = contentType;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Formato parse(String formato) {
+            if (formato == null || formato.isBlank())
+                return JSON;
+            for (Formato f : values()) {
+                if (f.name().equalsIgnoreCase(formato.trim()))
+                    return f;
+            }
+            throw new IllegalArgumentException("Formato de diccionario no soportado: " + formato
+                    + " (use pdf, csv o json)");
+        }
+    }
+
+    /**
+     * Archivo generado para una versión del catálogo.
+     */
+    public record Artefacto(Formato formato, long version, byte[] contenido) {
+
+        public String etag() {
+            return "\"diccionario-" + formato.name().toLowerCase() + "-" + version + "\"";
+        }
+    }
+
+    private final ExportService exportService;
+    private final VariableCodingService variableCodingService;
+    private final StudyDataVersion studyDataVersion;
+
+    private volatile Map<Formato, Artefacto> artefactos = Map.of();
+    private volatile long version = -1;
+
+    public DataDictionaryService(ExportService exportService,
+            VariableCodingService variableCodingService,
+            StudyDataVersion studyDataVersion) {
+        this.exportService = exportService;
+        this.variableCodingService = variableCodingService;
+        this.studyDataVersion = studyDataVersion;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void precalcular() {
+        try {
+            get(Formato.PDF);
+        } catch (Exception e) {
+            log.warn("No se pudo precalcular el diccionario de datos", e);
+        }
+    }
+
+    /**
+     * Versión del catálogo de los artefactos que se servirían ahora.
+     */
+    public long currentVersion() {
+        return studyDataVersion.catalogo();
+    }
+
+    /**
+     * Artefacto vigente; si el catálogo cambió desde la última generación,
+     * se regeneran los tres formatos una sola vez.
+     */
+    @Transactional(readOnly = true)
+    public Artefacto get(Formato formato) {
+        long actual = studyDataVersion.catalogo();
+        if (version != actual) {
+            synchronized (this) {
+                if (version != actual) {
+                    artefactos = generar(actual);
+                    version = actual;
+                }
+            }
+        }
+        return artefactos.get(formato);
+    }
+
+    private Map<Formato, Artefacto> generar(long version) {
+        List<Variable> variables = exportService.getAllVariablesSorted();
+        List<String> codificaciones = new ArrayList<>(variables.size());
+        for (Variable v : variables)
+            codificaciones.add(variableCodingService.getEncodingDescription(v));
+
+        Map<Formato, Artefacto> generados = new EnumMap<>(Formato.class);
+        try {
+            generados.put(Formato.PDF, new Artefacto(Formato.PDF, version, pdf(variables, codificaciones)));
+            generados.put(Formato.CSV, new Artefacto(Formato.CSV, version, csv(variables, codificaciones)));
+            generados.put(Formato.JSON, new Artefacto(Formato.JSON, version, json(variables, codificaciones, version)));
+        } catch (DocumentException | IOException e) {
+            throw new IllegalStateException("No se pudo generar el diccionario de datos", e);
+        }
+        log.info("Diccionario de datos generado para la versión {} del catálogo ({} variables)", version,
+                variables.size());
+        return generados;
+    }
+
+    private byte[] pdf(List<Variable> variables, List<String> codificaciones) throws DocumentException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+
+        Paragraph title = new Paragraph("Leyenda de Variables - Diccionario de Datos", TITULO);
+        title.setAlignment(Element.ALIGN_CENTER);
+        document.add(title);
+        document.add(new Paragraph(" "));
+
+        PdfPTable table = new PdfPTable(4);
+        table.setWidthPercentage(100);
+        table.setWidths(new float[] { 2, 5, 2, 4 });
+
+        addCell(table, "Código Variable");
+        addCell(table, "Descripción / Enunciado");
+        addCell(table, "Tipo de Dato");
+        addCell(table, "Codificación / Reglas");
+
+        for (int i = 0; i < variables.size(); i++) {
+            Variable v = variables.get(i);
+            addCell(table, safe(v.getCodigoVariable()));
+            addCell(table, safe(v.getEnunciado()));
+            addCell(table, safe(v.getTipoDato()));
+            addCell(table, codificaciones.get(i));
+        }
+
+        document.add(table);
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private byte[] csv(List<Variable> variables, List<String> codificaciones) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * (variables.size() + 1));
+        CsvWriter csv = new CsvWriter(out);
+        for (String columna : COLUMNAS_CSV)
+            csv.campo(columna);
+        csv.finFila();
+        for (int i = 0; i < variables.size(); i++) {
+            Variable v = variables.get(i);
+            csv.campo(v.getCodigoVariable());
+            csv.campo(v.getEnunciado());
+            csv.campo(v.getSeccion());
+            csv.campo(v.getTipoDato());
+            csv.campo(v.getAplicaA());
+            csv.campo(String.valueOf(v.isEsObligatoria()));
+            csv.campo(v.getOrdenEnunciado() != null ? v.getOrdenEnunciado().toString() : null);
+            csv.campo(v.getOpciones());
+            csv.campo(codificaciones.get(i));
+            csv.finFila();
+        }
+        csv.flush();
+        return out.toByteArray();
+    }
+
+    private byte[] json(List<Variable> variables, List<String> codificaciones, long version) throws IOException {
+        List<Map<String, Object>> lista = new ArrayList<>(variables.size());
+        for (int i = 0; i < variables.size(); i++) {
+            Variable v = variables.get(i);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("codigoVariable", v.getCodigoVariable());
+            item.put("enunciado", v.getEnunciado());
+            item.put("seccion", v.getSeccion());
+            item.put("tipoDato", v.getTipoDato());
+            item.put("aplicaA", v.getAplicaA());
+            item.put("esObligatoria", v.isEsObligatoria());
+            item.put("ordenEnunciado", v.getOrdenEnunciado());
+            item.put("opciones", v.getOpciones() == null || v.getOpciones().isEmpty() ? List.of()
+                    : Arrays.stream(v.getOpciones().split(",")).map(String::trim).toList());
+            item.put("codificacion", List.of(codificaciones.get(i).split("\n")));
+            lista.add(item);
+        }
+        Map<String, Object> raiz = new LinkedHashMap<>();
+        raiz.put("version", version);
+        raiz.put("variables", lista);
+        return OBJECT_MAPPER.writeValueAsBytes(raiz);
+    }
+
+    private void addCell(PdfPTable table, String value) {
+        PdfPCell cell = new PdfPCell(new Phrase(value, CELDA));
+        cell.setPadding(5);
+        table.addCell(cell);
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s;
+    }
+}
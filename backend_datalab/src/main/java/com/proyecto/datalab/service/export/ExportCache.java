@@ -0,0 +1,469 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché en disco de exportaciones completas, con clave formato + filtro +
+ * versión de datos. Mientras la versión no cambie, una descarga repetida se
+ * sirve desde el archivo sin consultar la base.
+ *
+ * El archivo se genera en la misma pasada que se envía al cliente: los bytes
+ * van a la respuesta y a un archivo temporal, que solo se publica si la
+ * exportación termina sin errores. Si el cliente se desconecta a mitad de
+ * camino la generación sigue hasta completar el archivo, de modo que la
+ * descarga se puede retomar con un pedido Range sin volver a consultar la
+ * base.
+ *
+ * Los escritores no son deterministas (xlsx, zip y .dta llevan la fecha de
+ * creación), así que dos generaciones de la misma clave no tienen los mismos
+ * bytes. Cada archivo publicado lleva un id de generación en el nombre, que
+ * forma parte de su ETag: si el archivo se descarta y se vuelve a generar en
+ * la misma versión, el ETag cambia y un If-Range viejo deja de coincidir.
+ *
+ * Retención: se descartan las entradas de versiones anteriores, las que no
+ * se usan hace más de {@code retention-hours} y, si el directorio supera
+ * {@code max-size-mb}, las menos usadas recientemente. Una entrada que se
+ * está enviando ({@link #leer(Archivo)}) no se elimina hasta que termina el
+ * envío; el próximo pase de retención la descarta si corresponde.
+ */
+@Service
+@Slf4j
+public class ExportCache {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SUFIJO_TEMPORAL = ".part";
+    private static final String PREFIJO_ENVIO = "envio-";
+    // Tiempo que se conserva el enlace de un envío por sendfile: el
+    // contenedor lo abre apenas termina el handler
+    private static final Duration GRACIA_ENVIO = Duration.ofMinutes(10);
+
+    private final Path dir;
+    private final boolean enabled;
+    private final Duration retencion;
+    private final long maxBytes;
+    // Generación publicada por clave; el archivo es <clave>.<generación>
+    private final Map<String, String> generaciones = new ConcurrentHashMap<>();
+    // Envíos en curso por archivo; también protege publicar y eliminar
+    private final Map<Path, Integer> lecturas = new HashMap<>();
+
+    public ExportCache(@Value("${datalab.export.cache.dir:${java.io.tmpdir}/datalab-export-cache}") String dir,
+            @Value("${datalab.export.cache.enabled:true}") boolean enabled,
+            @Value("${datalab.export.cache.retention-hours:24}") long retentionHours,
+            @Value("${datalab.export.cache.max-size-mb:2048}") long maxSizeMb) throws IOException {
+        this.dir = Files.createDirectories(Paths.get(dir));
+        this.enabled = enabled;
+        this.retencion = Duration.ofHours(retentionHours);
+        this.maxBytes = maxSizeMb * 1024 * 1024;
+        // La versión se reinicia con cada arranque: lo que quedó en disco ya no es alcanzable
+        purge(Long.MAX_VALUE);
+    }
+
+    /**
+     * Archivo publicado en el caché y su id de generación.
+     */
+    public record Archivo(Path path, String generacion) {
+    }
+
+    /**
+     * Clave del contenido: formato + filtro + versión de datos.
+     */
+    public String key(ExportFormat formato, String filtro, long version) {
+        return formato.name().toLowerCase() + "-" + hashFiltro(filtro) + "-" + version;
+    }
+
+    /**
+     * ETag fuerte de una generación concreta: identifica los bytes de ese
+     * archivo. Sin generación (caché deshabilitado) el ETag es débil, porque
+     * la misma clave solo garantiza el mismo contenido, no los mismos bytes,
+     * y no sirve para If-Range.
+     */
+    public String etag(ExportFormat formato, String filtro, long version, String generacion) {
+        String key = key(formato, filtro, version);
+        return generacion == null ? "W/\"" + key + "\"" : "\"" + key + "." + generacion + "\"";
+    }
+
+    /**
+     * Id para una generación nueva, que se pasa a
+     * {@link #writeThrough(ExportFormat, String, long, String, OutputStream, ExportWriter)}
+     * y se anuncia en el ETag antes de empezar a escribir; null si el caché
+     * está deshabilitado.
+     */
+    public String nuevaGeneracion() {
+        if (!enabled)
+            return null;
+        return HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Archivo de la exportación, si está en caché. Cada acierto renueva su
+     * fecha de último uso para la retención.
+     */
+    public Optional<Archivo> find(ExportFormat formato, String filtro, long version) {
+        if (!enabled)
+            return Optional.empty();
+        String key = key(formato, filtro, version);
+        String generacion = generaciones.get(key);
+        if (generacion == null)
+            return Optional.empty();
+        Path path = dir.resolve(key + "." + generacion);
+        try {
+            Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+            return Optional.of(new Archivo(path, generacion));
+        } catch (NoSuchFileException e) {
+            generaciones.remove(key, generacion);
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("No se pudo actualizar el último uso de {}", path, e);
+            return Files.isRegularFile(path) ? Optional.of(new Archivo(path, generacion)) : Optional.empty();
+        }
+    }
+
+    /**
+     * Reserva {@code archivo} para enviarlo: mientras la lectura esté abierta
+     * ni la retención ni una versión nueva lo eliminan. Lanza
+     * NoSuchFileException si ya fue eliminado.
+     */
+    public Lectura leer(Archivo archivo) throws IOException {
+        Path path = archivo.path();
+        synchronized (lecturas) {
+            if (!Files.isRegularFile(path))
+                throw new NoSuchFileException(path.toString());
+            lecturas.merge(path, 1, Integer::sum);
+        }
+        return new Lectura(path);
+    }
+
+    /**
+     * Envío en curso de un archivo del caché; al cerrarla el archivo vuelve a
+     * quedar disponible para la retención.
+     */
+    public final class Lectura implements AutoCloseable {
+
+        private final Path path;
+        private boolean cerrada;
+
+        private Lectura(Path path) {
+            this.path = path;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Enlace duro al archivo para que el contenedor lo envíe por sendfile
+         * después de cerrada la lectura: el contenedor lo abre por nombre al
+         * terminar el handler, y para entonces la entrada ya puede haberse
+         * eliminado. El enlace se descarta pasado un margen. Devuelve null si
+         * el sistema de archivos no admite enlaces; en ese caso el archivo se
+         * debe copiar mientras la lectura está abierta.
+         */
+        public Path enlaceParaEnvio() {
+            Path enlace = dir.resolve(PREFIJO_ENVIO + System.currentTimeMillis() + "-" + UUID.randomUUID());
+            try {
+                return Files.createLink(enlace, path);
+            } catch (IOException | UnsupportedOperationException e) {
+                log.debug("No se pudo crear el enlace de envío de {}", path, e);
+                return null;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (lecturas) {
+                if (cerrada)
+                    return;
+                cerrada = true;
+                lecturas.computeIfPresent(path, (p, n) -> n > 1 ? n - 1 : null);
+            }
+        }
+    }
+
+    /**
+     * Escribe la exportación en {@code out} y, si termina bien, deja una copia
+     * en el caché como la generación {@code generacion} (ver
+     * {@link #nuevaGeneracion()}), reemplazando la anterior de la misma clave.
+     * Si falla la exportación, el archivo parcial se descarta y el error se
+     * propaga. Si lo que falla es {@code out} (el cliente cortó la conexión),
+     * se termina de generar el archivo, se publica y después se propaga el
+     * error del cliente.
+     */
+    public void writeThrough(ExportFormat formato, String filtro, long version, String generacion,
+            OutputStream out, ExportWriter writer) throws IOException {
+        if (!enabled) {
+            writer.write(out);
+            return;
+        }
+        String key = key(formato, filtro, version);
+        Path temporal = dir.resolve(key + "." + UUID.randomUUID() + SUFIJO_TEMPORAL);
+        TeeOutputStream tee;
+        try {
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temporal), BUFFER_SIZE)) {
+                tee = new TeeOutputStream(out, file);
+                writer.write(tee);
+            }
+            synchronized (lecturas) {
+                Files.move(temporal, dir.resolve(key + "." + generacion), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                String anterior = generaciones.put(key, generacion);
+                if (anterior != null && !anterior.equals(generacion))
+                    eliminar(dir.resolve(key + "." + anterior));
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temporal);
+            throw e;
+        }
+        purge(version);
+        aplicarRetencion();
+        if (tee.getErrorCliente() != null)
+            throw tee.getErrorCliente();
+    }
+
+    /**
+     * Descarta las entradas sin uso desde hace más que la retención y, si el
+     * caché sigue ocupando más que el máximo, las menos usadas recientemente.
+     * Los temporales de más edad que la retención (generaciones abandonadas),
+     * las generaciones reemplazadas que no se pudieron eliminar porque se
+     * estaban enviando y los enlaces de envíos ya iniciados también se
+     * eliminan.
+     */
+    @Scheduled(fixedDelayString = "${datalab.export.cache.cleanup-interval-ms:3600000}")
+    public void aplicarRetencion() {
+        Instant limite = Instant.now().minus(retencion);
+        List<Entrada> vigentes = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith(PREFIJO_ENVIO)) {
+                    if (envioVencido(name))
+                        deleteQuietly(entry);
+                    continue;
+                }
+                if (!name.endsWith(SUFIJO_TEMPORAL) && eliminarSiReemplazada(entry))
+                    continue;
+                Entrada entrada;
+                try {
+                    entrada = new Entrada(entry, Files.getLastModifiedTime(entry), Files.size(entry));
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (entrada.uso().toInstant().isBefore(limite)) {
+                    eliminar(entry);
+                } else if (!name.endsWith(SUFIJO_TEMPORAL)) {
+                    vigentes.add(entrada);
+                    total += entrada.size();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo aplicar la retención del caché de exportaciones en {}", dir, e);
+            return;
+        }
+
+        vigentes.sort(Comparator.comparing(Entrada::uso));
+        for (Entrada entrada : vigentes) {
+            if (total <= maxBytes)
+                break;
+            eliminar(entrada.path());
+            total -= entrada.size();
+        }
+    }
+
+    private record Entrada(Path path, FileTime uso, long size) {
+    }
+
+    /**
+     * Elimina las entradas de versiones anteriores a {@code version}.
+     */
+    private void purge(long version) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(SUFIJO_TEMPORAL) || name.startsWith(PREFIJO_ENVIO)) {
+                    if (version == Long.MAX_VALUE)
+                        deleteQuietly(entry);
+                    continue;
+                }
+                long entryVersion = parseVersion(name);
+                if (entryVersion >= 0 && entryVersion < version)
+                    eliminar(entry);
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo limpiar el caché de exportaciones en {}", dir, e);
+        }
+    }
+
+    // <formato>-<filtro>-<versión>.<generación>
+    private static long parseVersion(String name) {
+        int punto = name.indexOf('.');
+        if (punto >= 0)
+            name = name.substring(0, punto);
+        int idx = name.lastIndexOf('-');
+        if (idx < 0)
+            return -1;
+        try {
+            return Long.parseLong(name.substring(idx + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String hashFiltro(String filtro) {
+        if (filtro == null || filtro.isEmpty())
+            return "todos";
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(filtro.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // envio-<milisegundos>-<uuid>
+    private static boolean envioVencido(String name) {
+        int fin = name.indexOf('-', PREFIJO_ENVIO.length());
+        try {
+            long creado = Long.parseLong(name.substring(PREFIJO_ENVIO.length(), fin));
+            return Instant.ofEpochMilli(creado).plus(GRACIA_ENVIO).isBefore(Instant.now());
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Elimina una entrada publicada y la olvida del índice de generaciones,
+     * salvo que se esté enviando.
+     */
+    private void eliminar(Path entry) {
+        String name = entry.getFileName().toString();
+        int punto = name.indexOf('.');
+        synchronized (lecturas) {
+            if (lecturas.containsKey(entry))
+                return;
+            if (punto > 0)
+                generaciones.remove(name.substring(0, punto), name.substring(punto + 1));
+            deleteQuietly(entry);
+        }
+    }
+
+    /**
+     * Elimina la entrada si ya no es la generación publicada de su clave.
+     */
+    private boolean eliminarSiReemplazada(Path entry) {
+        String name = entry.getFileName().toString();
+        int punto = name.indexOf('.');
+        if (punto < 0)
+            return false;
+        synchronized (lecturas) {
+            if (name.substring(punto + 1).equals(generaciones.get(name.substring(0, punto))))
+                return false;
+            eliminar(entry);
+            return true;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar {}", path, e);
+        }
+    }
+
+    /**
+     * Duplica lo escrito hacia la respuesta y el archivo de caché. Si la
+     * respuesta falla se deja de escribir en ella y se guarda el error, sin
+     * interrumpir la copia. No cierra el stream de la respuesta, que
+     * pertenece al contenedor.
+     */
+    private static final class TeeOutputStream extends OutputStream {
+
+        private final OutputStream primary;
+        private final OutputStream copy;
+        private IOException errorCliente;
+
+        TeeOutputStream(OutputStream primary, OutputStream copy) {
+            this.primary = primary;
+            this.copy = copy;
+        }
+
+        IOException getErrorCliente() {
+            return errorCliente;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (errorCliente == null) {
+                try {
+                    primary.write(b);
+                } catch (IOException e) {
+                    errorCliente = e;
+                }
+            }
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (errorCliente == null) {
+                try {
+                    primary.write(b, off, len);
+                } catch (IOException e) {
+                    errorCliente = e;
+                }
+            }
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (errorCliente == null) {
+                try {
+                    primary.flush();
+                } catch (IOException e) {
+                    errorCliente = e;
+                }
+            }
+            copy.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
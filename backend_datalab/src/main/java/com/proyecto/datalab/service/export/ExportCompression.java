@@ -0,0 +1,125 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compresión en streaming de exportaciones de texto (CSV / NDJSON). Los
+ * bytes se comprimen a medida que se generan, sin armar el archivo completo
+ * en memoria.
+ */
+public enum ExportCompression {
+    /** Sin compresión. */
+    NONE,
+    /** Content-Encoding: gzip; el navegador descomprime solo. */
+    GZIP,
+    /** Archivo .zip con una única entrada. */
+    ZIP;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Elige la compresión: {@code compress} (none, gzip, zip) tiene prioridad;
+     * si no viene, se usa gzip cuando el cliente lo acepta.
+     */
+    public static ExportCompression negociar(String compress, String acceptEncoding) {
+        if (compress != null && !compress.isBlank()) {
+            return switch (compress.trim().toLowerCase()) {
+                case "none" -> NONE;
+                case "gzip" -> GZIP;
+                case "zip" -> ZIP;
+                default -> throw new IllegalArgumentException(
+                        "Compresión no soportada: " + compress + " (use none, gzip o zip)");
+            };
+        }
+        return aceptaGzip(acceptEncoding) ? GZIP : NONE;
+    }
+
+    // Accept-Encoding: gzip, deflate, br;q=0.8 — gzip;q=0 lo rechaza
+    private static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        for (String parte : acceptEncoding.split(",")) {
+            String[] tokens = parte.split(";");
+            String nombre = tokens[0].trim();
+            if (!nombre.equalsIgnoreCase("gzip") && !nombre.equals("*"))
+                continue;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim().replace(" ", "");
+                if (param.equals("q=0") || param.matches("q=0\\.0*"))
+                    return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * ETag de la variante comprimida: los bytes cambian, así que no puede
+     * compartir el de la versión sin comprimir.
+     */
+    public String etag(String etag) {
+        if (this == NONE)
+            return etag;
+        return etag.substring(0, etag.length() - 1) + "-" + name().toLowerCase() + "\"";
+    }
+
+    public String fileName(String fileName) {
+        if (this != ZIP)
+            return fileName;
+        int punto = fileName.lastIndexOf('.');
+        return (punto > 0 ? fileName.substring(0, punto) : fileName) + ".zip";
+    }
+
+    /**
+     * Ejecuta {@code writer} sobre {@code out} comprimiendo con el nivel
+     * indicado (1 = más rápido, 9 = más chico). {@code entryName} es el nombre
+     * del archivo dentro del zip. No cierra {@code out}.
+     */
+    public void write(OutputStream out, String entryName, int level, ExportWriter writer) throws IOException {
+        switch (this) {
+            case NONE -> writer.write(out);
+            case GZIP -> {
+                GZIPOutputStream gzip = new GZIPOutputStream(new NoCloseOutputStream(out), BUFFER_SIZE) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+                writer.write(new NoCloseOutputStream(gzip));
+                gzip.finish();
+                gzip.flush();
+            }
+            case ZIP -> {
+                ZipOutputStream zip = new ZipOutputStream(new NoCloseOutputStream(out));
+                zip.setLevel(level);
+                zip.putNextEntry(new ZipEntry(entryName));
+                writer.write(new NoCloseOutputStream(zip));
+                zip.closeEntry();
+                zip.finish();
+                zip.flush();
+            }
+        }
+    }
+
+    // Evita que quien escribe cierre el stream de abajo antes de terminar la compresión
+    private static final class NoCloseOutputStream extends FilterOutputStream {
+
+        NoCloseOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
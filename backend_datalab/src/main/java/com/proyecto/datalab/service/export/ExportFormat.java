@@ -0,0 +1,58 @@
+package com.proyecto.datalab.service.export;
+
+/**
+ * Formatos de exportación de la base completa.
+ */
+public enum ExportFormat {
+    CSV("datos_completos.csv", "text/csv", "Base Completa (CSV)"),
+    CSV_CODIFICADO("datos_codificados.csv", "text/csv", "Base Codificada (CSV)"),
+    CSV_STATA("datos_stata.csv", "text/csv", "Base Completa (CSV STATA)"),
+    CSV_LARGO("datos_largo.csv", "text/csv", "Base Formato Largo (CSV)"),
+    STATA_DTA("datos_stata.dta", "application/x-stata-dta", "Base Completa (Stata .dta)"),
+    ARROW("datos_completos.arrows", "application/vnd.apache.arrow.stream", "Base Completa (Arrow IPC)"),
+    FEATHER("datos_completos.feather", "application/vnd.apache.arrow.file", "Base Completa (Feather)"),
+    EXCEL("datos_completos.xlsx", "application/octet-stream", "Base Completa (Excel)"),
+    EXCEL_CODIFICADO("datos_codificados.xlsx", "application/octet-stream", "Base Codificada (Excel)");
+
+    private final String fileName;
+    private final String contentType;
+    private final String descripcion;
+
+    ExportFormat(String fileName, String contentType, String descripcion) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.descripcion = descripcion;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    /**
+     * Formato por nombre, sin importar mayúsculas y aceptando guiones
+     * (csv-codificado). Lanza IllegalArgumentException si no existe.
+     */
+    public static ExportFormat parse(String nombre) {
+        String normalizado = nombre == null ? "" : nombre.trim().replace('-', '_');
+        for (ExportFormat formato : values()) {
+            if (formato.name().equalsIgnoreCase(normalizado))
+                return formato;
+        }
+        throw new IllegalArgumentException("Formato de exportación no soportado: " + nombre);
+    }
+
+    /**
+     * Formatos de texto, que vale la pena comprimir al enviarlos (xlsx ya es un zip).
+     */
+    public boolean isTexto() {
+        return contentType.startsWith("text/");
+    }
+}
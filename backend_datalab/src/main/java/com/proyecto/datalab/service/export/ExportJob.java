@@ -0,0 +1,95 @@
+package com.proyecto.datalab.service.export;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Future;
+
+import com.proyecto.datalab.dto.CsvOpciones;
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.dto.VariableSeleccion;
+import com.proyecto.datalab.entity.Usuario;
+import com.proyecto.datalab.enums.EstadoExportJob;
+
+import lombok.Getter;
+
+/**
+ * Exportación ejecutada en segundo plano. El estado lo modifica el hilo del
+ * executor y lo consultan los hilos HTTP, por eso los campos mutables son
+ * volatile.
+ */
+@Getter
+public class ExportJob {
+
+    private final String id;
+    private final ExportFormat formato;
+    private final ParticipanteFiltro filtro;
+    private final VariableSeleccion seleccion;
+    private final CsvOpciones csv;
+    private final Usuario usuario;
+    private final ExportProgress progress = new ExportProgress();
+    private final LocalDateTime creado = LocalDateTime.now();
+
+    private volatile EstadoExportJob estado = EstadoExportJob.EN_COLA;
+    private volatile LocalDateTime iniciado;
+    private volatile LocalDateTime finalizado;
+    private volatile Path archivo;
+    private volatile String error;
+    private volatile Future<?> future;
+
+    public ExportJob(String id, ExportFormat formato, ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            CsvOpciones csv, Usuario usuario) {
+        this.id = id;
+        this.formato = formato;
+        this.filtro = filtro;
+        this.seleccion = seleccion;
+        this.csv = csv;
+        this.usuario = usuario;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    void markRunning() {
+        iniciado = LocalDateTime.now();
+        estado = EstadoExportJob.EN_PROCESO;
+    }
+
+    void markCompleted(Path archivo) {
+        this.archivo = archivo;
+        finalizado = LocalDateTime.now();
+        estado = EstadoExportJob.COMPLETADO;
+    }
+
+    void markFailed(String error) {
+        this.error = error;
+        finalizado = LocalDateTime.now();
+        estado = EstadoExportJob.FALLIDO;
+    }
+
+    void markCancelled() {
+        finalizado = LocalDateTime.now();
+        estado = EstadoExportJob.CANCELADO;
+    }
+
+    public boolean isTerminado() {
+        return estado == EstadoExportJob.COMPLETADO
+                || estado == EstadoExportJob.FALLIDO
+                || estado == EstadoExportJob.CANCELADO;
+    }
+
+    /**
+     * Tiempo restante estimado a partir del ritmo de filas, o null si aún no
+     * hay datos suficientes.
+     */
+    public Long getEtaSegundos() {
+        long total = progress.getTotalFilas();
+        long filas = progress.getFilas();
+        if (estado != EstadoExportJob.EN_PROCESO || iniciado == null || total <= 0 || filas == 0)
+            return null;
+        long transcurridoMs = Duration.between(iniciado, LocalDateTime.now()).toMillis();
+        long restantes = Math.max(total - filas, 0);
+        return restantes * transcurridoMs / filas / 1000;
+    }
+}
@@ -0,0 +1,253 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.proyecto.datalab.dto.CsvOpciones;
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.dto.VariableSeleccion;
+import com.proyecto.datalab.entity.Usuario;
+import com.proyecto.datalab.enums.EstadoExportJob;
+import com.proyecto.datalab.service.AuditoriaService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exportaciones en segundo plano: se encolan en un executor acotado (hilos y
+ * cola configurables) para que varias descargas simultáneas no agoten el heap
+ * ni los workers de Tomcat. El resultado se escribe en un directorio local y
+ * se descarga cuando el job termina.
+ */
+@Service
+@Slf4j
+public class ExportJobService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Los archivos del spool empiezan con el id (UUID) del job
+    private static final int LARGO_ID = 36;
+
+    private final ExportService exportService;
+    private final AuditoriaService auditoriaService;
+    private final Path spoolDir;
+    private final long retentionHours;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ExportJobService(ExportService exportService,
+            AuditoriaService auditoriaService,
+            @Value("${datalab.export.jobs.spool-dir:${java.io.tmpdir}/datalab-export-jobs}") String spoolDir,
+            @Value("${datalab.export.jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${datalab.export.jobs.queue-capacity:10}") int queueCapacity,
+            @Value("${datalab.export.jobs.retention-hours:24}") long retentionHours) throws IOException {
+        this.exportService = exportService;
+        this.auditoriaService = auditoriaService;
+        this.spoolDir = Files.createDirectories(Paths.get(spoolDir));
+        this.retentionHours = retentionHours;
+        // Los jobs viven en memoria: lo que quedó de un arranque anterior ya no es alcanzable
+        purgeSpool(Instant.MAX);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "export-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Encola una exportación a nombre de {@code usuario}, que queda como
+     * dueño del job y de sus registros de auditoría. Lanza
+     * RejectedExecutionException si la cola está llena e
+     * IllegalArgumentException si no hay usuario, si la selección de
+     * variables no deja ninguna columna o si el separador CSV no es válido.
+     * {@code csv} null usa las opciones por defecto.
+     */
+    public ExportJob submit(ExportFormat formato, ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            CsvOpciones csv, Usuario usuario) {
+        if (usuario == null)
+            throw new IllegalArgumentException("La exportación en segundo plano requiere un usuario autenticado");
+        CsvOpciones opciones = csv != null ? csv : CsvOpciones.porDefecto();
+        opciones.caracterSeparador();
+        exportService.validarSeleccion(formato, seleccion);
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), formato, filtro, seleccion, opciones, usuario);
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(executor.submit(() -> run(job)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Job {@code id} si {@code usuario} es su dueño o administrador; vacío en
+     * otro caso, sin distinguir si el job existe.
+     */
+    public Optional<ExportJob> find(String id, Usuario usuario) {
+        return Optional.ofNullable(jobs.get(id)).filter(job -> puedeVer(job, usuario));
+    }
+
+    /**
+     * Jobs de {@code usuario}, o todos si es administrador, del más reciente
+     * al más antiguo.
+     */
+    public List<ExportJob> findAll(Usuario usuario) {
+        return jobs.values().stream()
+                .filter(job -> puedeVer(job, usuario))
+                .sorted(Comparator.comparing(ExportJob::getCreado).reversed())
+                .toList();
+    }
+
+    private static boolean puedeVer(ExportJob job, Usuario usuario) {
+        if (usuario == null)
+            return false;
+        return usuario.esAdministrador()
+                || Objects.equals(job.getUsuario().getIdUsuario(), usuario.getIdUsuario());
+    }
+
+    /**
+     * Solicita la cancelación. Un job en cola se descarta antes de empezar;
+     * uno en proceso se detiene en la siguiente fila.
+     */
+    public boolean cancel(String id) {
+        ExportJob job = jobs.get(id);
+        if (job == null || job.isTerminado())
+            return false;
+        job.getProgress().cancel();
+        if (job.getFuture() != null) {
+            job.getFuture().cancel(true);
+            executor.remove((Runnable) job.getFuture()); // libera el cupo en la cola
+        }
+        // Un job que no alcanzó a empezar ya no se ejecutará
+        if (job.getEstado() == EstadoExportJob.EN_COLA)
+            job.markCancelled();
+        return true;
+    }
+
+    private void run(ExportJob job) {
+        if (job.getProgress().isCancelado()) {
+            job.markCancelled();
+            return;
+        }
+        job.markRunning();
+        registrarAuditoria(job, "EXPORTAR", "Inició exportación en segundo plano: " + job.getFormato().getDescripcion());
+
+        Path destino = spoolDir.resolve(job.getId() + "-" + job.getFormato().getFileName());
+        Path temporal = spoolDir.resolve(job.getId() + ".part");
+        try {
+            job.getProgress().setTotalFilas(exportService.countParticipantes(job.getFiltro()));
+            try (OutputStream out = new CountingOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporal), BUFFER_SIZE), job.getProgress())) {
+                exportService.export(job.getFormato(), job.getFiltro(), job.getSeleccion(), job.getCsv(), out,
+                        job.getProgress());
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.markCompleted(destino);
+        } catch (Exception e) {
+            deleteQuietly(temporal);
+            if (job.getProgress().isCancelado() || e instanceof CancellationException) {
+                job.markCancelled();
+            } else {
+                log.error("Falló la exportación {} ({})", job.getId(), job.getFormato(), e);
+                job.markFailed(e.getMessage());
+            }
+        }
+
+        registrarAuditoria(job, "EXPORTAR_FIN", "Finalizó exportación " + job.getFormato().getDescripcion()
+                + ": " + job.getEstado() + " (" + job.getProgress().getFilas() + " filas, "
+                + job.getProgress().getBytes() + " bytes)");
+    }
+
+    private void registrarAuditoria(ExportJob job, String accion, String detalle) {
+        try {
+            auditoriaService.registrarAccion(job.getUsuario(), null, accion, "Base de Datos", detalle);
+        } catch (Exception e) {
+            log.warn("No se pudo registrar auditoría del job {}", job.getId(), e); // Non-blocking logging
+        }
+    }
+
+    /**
+     * Elimina jobs terminados y sus archivos una vez vencida la retención.
+     */
+    @Scheduled(fixedDelayString = "${datalab.export.jobs.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime limite = LocalDateTime.now().minusHours(retentionHours);
+        jobs.values().removeIf(job -> {
+            if (!job.isTerminado() || job.getFinalizado() == null || job.getFinalizado().isAfter(limite))
+                return false;
+            if (job.getArchivo() != null)
+                deleteQuietly(job.getArchivo());
+            return true;
+        });
+        // Archivos sin job (p. ej. de un job interrumpido por shutdownNow)
+        purgeSpool(Instant.now().minus(Duration.ofHours(retentionHours)));
+    }
+
+    /**
+     * Elimina los archivos del spool anteriores a {@code limite} que no
+     * pertenecen a ningún job registrado.
+     */
+    private void purgeSpool(Instant limite) {
+        FileTime hasta = FileTime.from(limite);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(spoolDir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.length() >= LARGO_ID && jobs.containsKey(name.substring(0, LARGO_ID)))
+                    continue;
+                try {
+                    if (Files.getLastModifiedTime(entry).compareTo(hasta) < 0)
+                        deleteQuietly(entry);
+                } catch (IOException e) {
+                    // Ya eliminado
+                }
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo limpiar el spool de exportaciones en {}", spoolDir, e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
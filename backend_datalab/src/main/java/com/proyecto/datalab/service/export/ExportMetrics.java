@@ -0,0 +1,239 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Métricas de las exportaciones en Micrometer (expuestas por actuator):
+ * duración, filas, celdas, bytes escritos y memoria asignada, etiquetadas
+ * por formato, campos del filtro usados, origen (base o caché) y resultado.
+ * Las exportaciones que superan el umbral configurado quedan en el log con
+ * sus números.
+ *
+ * La memoria asignada se mide en el hilo que ejecuta la exportación (los
+ * PDF del ZIP de CRF se generan en otros hilos y no se suman); su máximo es
+ * la marca de agua alta por formato.
+ */
+@Component
+@Slf4j
+public class ExportMetrics {
+
+    public static final String DURACION = "datalab.export.duration";
+    public static final String FILAS = "datalab.export.rows";
+    public static final String CELDAS = "datalab.export.cells";
+    public static final String BYTES = "datalab.export.bytes";
+    public static final String ASIGNADO = "datalab.export.allocated";
+
+    public static final String ORIGEN_BASE = "base";
+    public static final String ORIGEN_CACHE = "cache";
+
+    private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final MeterRegistry registry;
+    private final long umbralLentoMs;
+    private final Duration ventanaPercentiles;
+
+    public ExportMetrics(MeterRegistry registry,
+            @Value("${datalab.export.metrics.slow-threshold-ms:30000}") long umbralLentoMs,
+            @Value("${datalab.export.metrics.percentile-window-minutes:60}") long ventanaPercentilesMinutos) {
+        this.registry = registry;
+        this.umbralLentoMs = umbralLentoMs;
+        this.ventanaPercentiles = Duration.ofMinutes(ventanaPercentilesMinutos);
+    }
+
+    /**
+     * Medición de una exportación de {@code formato}; {@code filtro} solo
+     * aporta qué campos se usaron, no sus valores, para que la cantidad de
+     * series sea acotada.
+     */
+    public Medicion medicion(String formato, ParticipanteFiltro filtro) {
+        return new Medicion(formato, camposFiltro(filtro));
+    }
+
+    /**
+     * Latencias de las exportaciones exitosas por formato, filtro y origen,
+     * con percentiles de la ventana reciente.
+     */
+    public List<Map<String, Object>> resumenLatencias() {
+        List<Map<String, Object>> resumen = new ArrayList<>();
+        for (Timer timer : registry.find(DURACION).tag("resultado", "ok").timers()) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("formato", timer.getId().getTag("formato"));
+            item.put("filtro", timer.getId().getTag("filtro"));
+            item.put("origen", timer.getId().getTag("origen"));
+            item.put("cantidad", snapshot.count());
+            item.put("media_ms", Math.round(snapshot.mean(TimeUnit.MILLISECONDS)));
+            item.put("max_ms", Math.round(snapshot.max(TimeUnit.MILLISECONDS)));
+            for (ValueAtPercentile p : snapshot.percentileValues())
+                item.put("p" + Math.round(p.percentile() * 100) + "_ms", Math.round(p.value(TimeUnit.MILLISECONDS)));
+            resumen.add(item);
+        }
+        resumen.sort(Comparator.comparing((Map<String, Object> m) -> (String) m.get("formato"))
+                .thenComparing(m -> (String) m.get("filtro"))
+                .thenComparing(m -> (String) m.get("origen")));
+        return resumen;
+    }
+
+    /**
+     * Una exportación en curso. Se configura con {@link #columnas(int)} y
+     * {@link #origen(String)} y se ejecuta con alguno de los {@code medir}.
+     */
+    public final class Medicion {
+
+        private final String formato;
+        private final String filtro;
+        private String origen = ORIGEN_BASE;
+        private int columnas;
+
+        private Medicion(String formato, String filtro) {
+            this.formato = formato;
+            this.filtro = filtro;
+        }
+
+        /**
+         * Columnas por fila (sin contar el código de participante), para
+         * calcular las celdas escritas.
+         */
+        public Medicion columnas(int columnas) {
+            this.columnas = columnas;
+            return this;
+        }
+
+        public Medicion origen(String origen) {
+            this.origen = origen;
+            return this;
+        }
+
+        /**
+         * Ejecuta {@code writer} sobre {@code out} contando los bytes; las
+         * filas se toman de {@code progress}.
+         */
+        public void medir(OutputStream out, ExportProgress progress, ExportWriter writer) throws IOException {
+            ExportProgress escritos = new ExportProgress();
+            ejecutar(progress, escritos, () -> writer.write(new CountingOutputStream(out, escritos)));
+        }
+
+        /**
+         * Para recorridos que no escriben un archivo (por ejemplo, resúmenes).
+         */
+        public void medir(ExportProgress progress, Recorrido recorrido) throws IOException {
+            ejecutar(progress, new ExportProgress(), recorrido);
+        }
+
+        /**
+         * Para envíos cuyos bytes no pasan por un stream propio (por ejemplo,
+         * un archivo que el contenedor envía con sendfile): el recorrido los
+         * informa en {@code escritos}.
+         */
+        public void medir(ExportProgress progress, ExportProgress escritos, Recorrido recorrido) throws IOException {
+            ejecutar(progress, escritos, recorrido);
+        }
+
+        private void ejecutar(ExportProgress progress, ExportProgress escritos, Recorrido recorrido)
+                throws IOException {
+            long filasAntes = progress.getFilas();
+            long asignadoAntes = asignadoEnHilo();
+            long inicio = System.nanoTime();
+            String resultado = "error";
+            try {
+                recorrido.ejecutar();
+                resultado = "ok";
+            } catch (CancellationException e) {
+                resultado = "cancelado";
+                throw e;
+            } finally {
+                long nanos = System.nanoTime() - inicio;
+                long asignadoDespues = asignadoEnHilo();
+                registrar(resultado, nanos, progress.getFilas() - filasAntes, escritos.getBytes(),
+                        asignadoAntes >= 0 && asignadoDespues >= 0 ? asignadoDespues - asignadoAntes : -1);
+            }
+        }
+
+        private void registrar(String resultado, long nanos, long filas, long bytes, long asignado) {
+            Tags tags = Tags.of("formato", formato, "filtro", filtro, "origen", origen);
+            Timer.builder(DURACION)
+                    .description("Duración de las exportaciones")
+                    .tags(tags).tag("resultado", resultado)
+                    .publishPercentiles(PERCENTILES)
+                    .distributionStatisticExpiry(ventanaPercentiles)
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            registry.counter(FILAS, tags).increment(filas);
+            registry.counter(CELDAS, tags).increment((double) filas * (columnas + 1));
+            registry.counter(BYTES, tags).increment(bytes);
+            if (asignado >= 0) {
+                DistributionSummary.builder(ASIGNADO)
+                        .description("Memoria asignada por exportación en el hilo que la ejecuta")
+                        .baseUnit("bytes")
+                        .tag("formato", formato)
+                        .register(registry)
+                        .record(asignado);
+            }
+
+            long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+            if (ms >= umbralLentoMs) {
+                log.warn("Exportación lenta: formato={} filtro={} origen={} resultado={} duracion={}ms filas={} "
+                        + "columnas={} bytes={} asignado={}", formato, filtro, origen, resultado, ms, filas,
+                        columnas, bytes, asignado);
+            }
+        }
+    }
+
+    /**
+     * Trabajo medido que no escribe en un stream.
+     */
+    @FunctionalInterface
+    public interface Recorrido {
+        void ejecutar() throws IOException;
+    }
+
+    // Campos del filtro presentes, en orden fijo ("ninguno" si no hay filtro)
+    private static String camposFiltro(ParticipanteFiltro filtro) {
+        if (filtro == null || filtro.isVacio())
+            return "ninguno";
+        List<String> campos = new ArrayList<>();
+        if (filtro.getGrupo() != null)
+            campos.add("grupo");
+        if (filtro.getEstadoFicha() != null)
+            campos.add("estadoFicha");
+        if (filtro.getIdReclutador() != null)
+            campos.add("idReclutador");
+        if (filtro.getFechaInclusionDesde() != null)
+            campos.add("fechaInclusionDesde");
+        if (filtro.getFechaInclusionHasta() != null)
+            campos.add("fechaInclusionHasta");
+        return String.join("+", campos);
+    }
+
+    private static long asignadoEnHilo() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()
+                && sun.isThreadAllocatedMemoryEnabled())
+            return sun.getCurrentThreadAllocatedBytes();
+        return -1;
+    }
+}
@@ -0,0 +1,95 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.proyecto.datalab.service.export.ExportService.ParticipantRowHandler;
+
+/**
+ * Reparte cada fila de un único recorrido por participante entre varios
+ * {@link ExportSink}. Los destinos cuyo plan coincide con el del recorrido
+ * reciben el buffer tal cual; el resto recibe una copia proyectada a su plan
+ * (por ejemplo, sin los campos sensibles), calculada con un arreglo de
+ * índices armado una sola vez. Los valores codificados guardados solo se
+ * entregan a los destinos que los usan.
+ */
+public final class ExportPipeline implements ParticipantRowHandler {
+
+    private final List<ExportSink> sinks;
+    private final int[][] columnasDesdeRecorrido;
+    private final String[][] buffers;
+    private final String[][] buffersCodificados;
+    private final boolean usaCodificados;
+
+    public ExportPipeline(ExportPlan recorrido, List<ExportSink> sinks) {
+        this.sinks = sinks;
+        this.columnasDesdeRecorrido = new int[sinks.size()][];
+        this.buffers = new String[sinks.size()][];
+        this.buffersCodificados = new String[sinks.size()][];
+        boolean codificados = false;
+
+        for (int s = 0; s < sinks.size(); s++) {
+            ExportPlan plan = sinks.get(s).getPlan();
+            int[] indices = new int[plan.size()];
+            boolean identidad = plan.size() == recorrido.size();
+            for (int col = 0; col < plan.size(); col++) {
+                indices[col] = recorrido.columnaDe(plan.getVariable(col).getIdVariable());
+                if (indices[col] < 0)
+                    throw new IllegalStateException("La variable " + plan.getVariable(col).getCodigoVariable()
+                            + " no forma parte del recorrido");
+                identidad &= indices[col] == col;
+            }
+            if (!identidad) {
+                columnasDesdeRecorrido[s] = indices;
+                buffers[s] = plan.newRowBuffer();
+                if (sinks.get(s).usaCodificados())
+                    buffersCodificados[s] = plan.newRowBuffer();
+            }
+            codificados |= sinks.get(s).usaCodificados();
+        }
+        this.usaCodificados = codificados;
+    }
+
+    /**
+     * Si algún destino usa los valores codificados guardados.
+     */
+    public boolean usaCodificados() {
+        return usaCodificados;
+    }
+
+    @Override
+    public void accept(String codigoParticipante, String[] valores) throws IOException {
+        accept(codigoParticipante, valores, null);
+    }
+
+    @Override
+    public void accept(String codigoParticipante, String[] valores, String[] codificados) throws IOException {
+        for (int s = 0; s < sinks.size(); s++) {
+            ExportSink sink = sinks.get(s);
+            String[] codificadosSink = sink.usaCodificados() ? codificados : null;
+            int[] indices = columnasDesdeRecorrido[s];
+            if (indices == null) {
+                sink.accept(codigoParticipante, valores, codificadosSink);
+                continue;
+            }
+            String[] buffer = buffers[s];
+            for (int col = 0; col < indices.length; col++)
+                buffer[col] = valores[indices[col]];
+            if (codificadosSink != null) {
+                String[] bufferCodificado = buffersCodificados[s];
+                for (int col = 0; col < indices.length; col++)
+                    bufferCodificado[col] = codificadosSink[indices[col]];
+                codificadosSink = bufferCodificado;
+            }
+            sink.accept(codigoParticipante, buffer, codificadosSink);
+        }
+    }
+
+    /**
+     * Completa todos los destinos, en orden.
+     */
+    public void finish() throws IOException {
+        for (ExportSink sink : sinks)
+            sink.finish();
+    }
+}
@@ -0,0 +1,126 @@
+package com.proyecto.datalab.service.export;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.proyecto.datalab.dto.VariableSeleccion;
+import com.proyecto.datalab.entity.Variable;
+
+/**
+ * Plan de exportación calculado una vez por petición: asigna a cada variable
+ * exportada un índice de columna fijo. La búsqueda por idVariable es un acceso
+ * a arreglo, de modo que llenar una fila no requiere hashing de strings ni
+ * mapas por participante.
+ */
+public final class ExportPlan {
+
+    private static final int SIN_COLUMNA = -1;
+
+    private final Variable[] columnas;
+    private final int[] columnaPorIdVariable;
+    private final boolean proyectado;
+
+    private ExportPlan(Variable[] columnas, int[] columnaPorIdVariable, boolean proyectado) {
+        this.columnas = columnas;
+        this.columnaPorIdVariable = columnaPorIdVariable;
+        this.proyectado = proyectado;
+    }
+
+    /**
+     * Crea el plan respetando el orden de {@code variables}.
+     */
+    public static ExportPlan of(List<Variable> variables) {
+        return of(variables, false);
+    }
+
+    /**
+     * Plan con solo las variables de {@code seleccion}, en el mismo orden que
+     * {@code variables}. Lanza IllegalArgumentException si la selección no
+     * coincide con ninguna variable.
+     */
+    public static ExportPlan of(List<Variable> variables, VariableSeleccion seleccion) {
+        if (seleccion == null || seleccion.isVacia())
+            return of(variables, false);
+        List<Variable> elegidas = variables.stream().filter(seleccion::incluye).toList();
+        if (elegidas.isEmpty())
+            throw new IllegalArgumentException("La selección no coincide con ninguna variable exportable");
+        return of(elegidas, true);
+    }
+
+    /**
+     * Plan de un recorrido compartido por varios destinos: todas las
+     * variables de {@code planes}, sin repetir. Solo es una selección de
+     * columnas si todos los planes lo son; si alguno incluye todas, se leen
+     * todas las respuestas.
+     */
+    public static ExportPlan union(List<ExportPlan> planes) {
+        if (planes.size() == 1)
+            return planes.get(0);
+        Map<Integer, Variable> variables = new LinkedHashMap<>();
+        boolean proyectado = true;
+        for (ExportPlan plan : planes) {
+            for (Variable v : plan.columnas)
+                variables.putIfAbsent(v.getIdVariable(), v);
+            proyectado &= plan.proyectado;
+        }
+        return of(new ArrayList<>(variables.values()), proyectado);
+    }
+
+    private static ExportPlan of(List<Variable> variables, boolean proyectado) {
+        Variable[] columnas = variables.toArray(new Variable[0]);
+
+        int maxId = 0;
+        for (Variable v : columnas) {
+            if (v.getIdVariable() != null)
+                maxId = Math.max(maxId, v.getIdVariable());
+        }
+
+        // Los ids son autoincrementales y densos: un arreglo es más barato que un mapa
+        int[] indice = new int[maxId + 1];
+        Arrays.fill(indice, SIN_COLUMNA);
+        for (int col = 0; col < columnas.length; col++) {
+            Integer id = columnas[col].getIdVariable();
+            if (id != null)
+                indice[id] = col;
+        }
+        return new ExportPlan(columnas, indice, proyectado);
+    }
+
+    public int size() {
+        return columnas.length;
+    }
+
+    public Variable getVariable(int col) {
+        return columnas[col];
+    }
+
+    /**
+     * Columna asignada a la variable, o -1 si no forma parte de la exportación.
+     */
+    public int columnaDe(Integer idVariable) {
+        if (idVariable == null || idVariable < 0 || idVariable >= columnaPorIdVariable.length)
+            return SIN_COLUMNA;
+        return columnaPorIdVariable[idVariable];
+    }
+
+    /**
+     * Ids de las variables del plan cuando es una selección de columnas, para
+     * que la consulta lea solo esas respuestas; null si incluye todas.
+     */
+    public List<Integer> getIdVariablesLeidas() {
+        if (!proyectado)
+            return null;
+        return Arrays.stream(columnas).map(Variable::getIdVariable).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Buffer de fila reutilizable: una posición por columna del plan.
+     */
+    public String[] newRowBuffer() {
+        return new String[columnas.length];
+    }
+}
@@ -0,0 +1,56 @@
+package com.proyecto.datalab.service.export;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Avance de una exportación en curso. Lo actualiza el hilo que escribe y lo
+ * leen otros hilos (consulta de estado), por eso los campos son atómicos.
+ * También transporta la señal de cancelación hacia el bucle de escritura.
+ */
+public class ExportProgress {
+
+    private final AtomicLong filas = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile long totalFilas = -1;
+    private volatile boolean cancelado;
+
+    /**
+     * Registra una fila escrita. Lanza CancellationException si la exportación
+     * fue cancelada o el hilo interrumpido.
+     */
+    public void onRow() {
+        if (cancelado || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Exportación cancelada");
+        }
+        filas.incrementAndGet();
+    }
+
+    public void addBytes(long n) {
+        bytes.addAndGet(n);
+    }
+
+    public void cancel() {
+        cancelado = true;
+    }
+
+    public boolean isCancelado() {
+        return cancelado;
+    }
+
+    public long getFilas() {
+        return filas.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getTotalFilas() {
+        return totalFilas;
+    }
+
+    public void setTotalFilas(long totalFilas) {
+        this.totalFilas = totalFilas;
+    }
+}
@@ -0,0 +1,133 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Envía un archivo de exportación ya generado respetando {@code Range} e
+ * {@code If-Range}, para que una descarga interrumpida se retome desde el
+ * último byte recibido.
+ *
+ * Los bytes no pasan por el heap: si el contenedor lo permite (Tomcat sin
+ * TLS), el archivo se le delega con los atributos de sendfile y el kernel lo
+ * copia de la caché de páginas al socket; si no, se usa
+ * {@link FileChannel#transferTo} hacia la respuesta. Como el contenedor abre
+ * el archivo recién al terminar el handler, para sendfile se le pasa un
+ * enlace que sobrevive a la retención del caché.
+ *
+ * Se atiende un solo rango por pedido; con varios se envía el archivo
+ * completo, lo que la especificación permite.
+ */
+@Component
+public class ExportRangeResponder {
+
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Escribe en {@code response} los encabezados de {@code headers} (deben
+     * incluir el ETag del archivo) y la porción pedida del archivo de
+     * {@code lectura}, que debe seguir abierta hasta que este método vuelva.
+     *
+     * @param escritos recibe la cantidad de bytes enviados
+     */
+    public void enviar(HttpServletRequest request, HttpServletResponse response, ExportCache.Lectura lectura,
+            HttpHeaders headers, ExportProgress escritos) throws IOException {
+        FileChannel canal = FileChannel.open(lectura.getPath());
+        try {
+            long largo = canal.size();
+            long inicio = 0;
+            long fin = largo; // exclusivo
+            int status = HttpStatus.OK.value();
+
+            HttpRange rango = rango(request, headers.getETag());
+            if (rango != null) {
+                inicio = rango.getRangeStart(largo);
+                fin = rango.getRangeEnd(largo) + 1;
+                status = HttpStatus.PARTIAL_CONTENT.value();
+                if (inicio >= largo || inicio >= fin) {
+                    // Rango fuera del archivo
+                    copiarEncabezados(headers, response);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + largo);
+                    return;
+                }
+            }
+
+            copiarEncabezados(headers, response);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setStatus(status);
+            if (status == HttpStatus.PARTIAL_CONTENT.value())
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + (fin - 1) + "/" + largo);
+            response.setContentLengthLong(fin - inicio);
+            if ("HEAD".equalsIgnoreCase(request.getMethod()) || fin == inicio)
+                return;
+
+            Path enlace = Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) ? lectura.enlaceParaEnvio()
+                    : null;
+            if (enlace != null) {
+                // El contenedor abre el archivo y lo envía al terminar la petición
+                request.setAttribute(SENDFILE_FILENAME, enlace.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, inicio);
+                request.setAttribute(SENDFILE_END, fin);
+            } else {
+                WritableByteChannel destino = Channels.newChannel(response.getOutputStream());
+                for (long pos = inicio; pos < fin;)
+                    pos += canal.transferTo(pos, fin - pos, destino);
+                response.flushBuffer();
+            }
+            escritos.addBytes(fin - inicio);
+        } finally {
+            canal.close();
+        }
+    }
+
+    /**
+     * Rango único pedido, o null si no hay, si tiene más de uno, si no se
+     * puede interpretar o si el {@code If-Range} no coincide con el ETag
+     * actual (el archivo cambió desde la descarga original).
+     */
+    static HttpRange rango(HttpServletRequest request, String etag) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null)
+            return null;
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range con fecha no se puede validar: no se envía Last-Modified
+        if (ifRange != null && (etag == null || !ifRange.trim().equals(etag)))
+            return null;
+        List<HttpRange> rangos;
+        try {
+            rangos = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return rangos.size() == 1 ? rangos.get(0) : null;
+    }
+
+    // Reemplaza lo que ya tenga la respuesta (checkNotModified deja puesto el
+    // ETag): un encabezado repetido llega combinado ("x", "x") en el If-Range
+    private static void copiarEncabezados(HttpHeaders headers, HttpServletResponse response) {
+        headers.forEach((nombre, valores) -> {
+            for (int i = 0; i < valores.size(); i++) {
+                if (i == 0)
+                    response.setHeader(nombre, valores.get(i));
+                else
+                    response.addHeader(nombre, valores.get(i));
+            }
+        });
+    }
+}
@@ -0,0 +1,1205 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.proyecto.datalab.dto.CsvOpciones;
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.dto.RegistroTupla;
+import com.proyecto.datalab.dto.RespuestaLargaTupla;
+import com.proyecto.datalab.dto.RespuestaTupla;
+import com.proyecto.datalab.dto.VariableSeleccion;
+import com.proyecto.datalab.entity.ParticipanteEliminado;
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.repository.ParticipanteEliminadoRepository;
+import com.proyecto.datalab.repository.RespuestaLecturaRepository;
+import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.VariableCodingService;
+import com.proyecto.datalab.web.dto.ResumenCodificadoDTO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Generación de exportaciones de la base completa.
+ * Los datos se leen desde un cursor ordenado por participante y cada fila se
+ * escribe al stream de salida apenas el participante queda completo, de modo
+ * que el uso de memoria no depende del tamaño del estudio.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    // Exportación incremental
+    private static final String COLUMNA_OPERACION = "OPERACION";
+    private static final String OPERACION_CAMBIO = "UPSERT";
+    private static final String OPERACION_BAJA = "DELETE";
+
+    // Exportación en formato largo (una fila por respuesta)
+    private static final String[] COLUMNAS_LARGO = { "codigo_participante", "grupo", "codigo_variable", "seccion",
+            "valor", "valor_codificado" };
+
+    // Largo de la columna codigo_participante en la base
+    private static final int LARGO_CODIGO_PARTICIPANTE = 50;
+
+    private final RespuestaLecturaRepository respuestaLecturaRepository;
+    private final VariableRepository variableRepository;
+    private final VariableCodingService variableCodingService;
+    private final ParticipanteEliminadoRepository participanteEliminadoRepository;
+    private final ExportMetrics exportMetrics;
+
+    // Filas que SXSSF mantiene en memoria antes de volcarlas a disco
+    @Value("${datalab.export.excel.row-window:100}")
+    private int excelRowWindow;
+
+    // Margen que se resta al cursor de la exportación incremental
+    @Value("${datalab.export.cambios.overlap-seconds:60}")
+    private long cambiosOverlapSeconds;
+
+    // Filas por record batch en las exportaciones Arrow / Feather
+    @Value("${datalab.export.arrow.batch-rows:8192}")
+    private int arrowBatchRows;
+
+    // Defines the static columns for the export
+    public enum StaticColumn {
+        CODIGO_PARTICIPANTE;
+    }
+
+    private enum CsvMode {
+        /** Valores tal como fueron ingresados, todas las variables. */
+        RAW,
+        /** Valores codificados con VariableCodingService, sin campos sensibles. */
+        CODED,
+        /** Igual que RAW pero con punto decimal en variables numéricas. */
+        STATA
+    }
+
+    public enum CambiosFormato {
+        CSV,
+        /** Un objeto JSON por línea. */
+        NDJSON
+    }
+
+    /**
+     * Recibe cada participante una vez que todas sus respuestas fueron leídas.
+     * {@code valores} tiene una posición por columna del plan (null si no hay
+     * respuesta) y se reutiliza entre llamadas, no debe conservarse.
+     */
+    @FunctionalInterface
+    public interface ParticipantRowHandler {
+        void accept(String codigoParticipante, String[] valores) throws IOException;
+
+        /**
+         * Variante para recorridos que leen los valores codificados
+         * guardados: {@code codificados[col]} es el valor guardado si sigue
+         * vigente para la variable, o null.
+         */
+        default void accept(String codigoParticipante, String[] valores, String[] codificados) throws IOException {
+            accept(codigoParticipante, valores);
+        }
+    }
+
+    /**
+     * Escribe la exportación en el formato indicado, solo con los
+     * participantes que cumplen {@code filtro} y las variables de
+     * {@code seleccion} (null = todos), reportando el avance en
+     * {@code progress}, que también permite cancelarla.
+     */
+    @Transactional(readOnly = true)
+    public void export(ExportFormat formato, ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            OutputStream out, ExportProgress progress) throws IOException {
+        export(formato, filtro, seleccion, CsvOpciones.porDefecto(), out, progress);
+    }
+
+    /**
+     * Igual que {@link #export(ExportFormat, ParticipanteFiltro, VariableSeleccion, OutputStream, ExportProgress)}
+     * con separador y BOM de {@code csv} en los formatos CSV (el resto las
+     * ignora).
+     */
+    @Transactional(readOnly = true)
+    public void export(ExportFormat formato, ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            CsvOpciones csv, OutputStream out, ExportProgress progress) throws IOException {
+        ExportPlan plan = planDe(formato, getAllVariablesSorted(), seleccion);
+        exportMetrics.medicion(formato.name(), filtro).columnas(plan.size()).medir(out, progress, o -> {
+            if (formato == ExportFormat.CSV_LARGO)
+                writeLargo(o, plan, filtro, csv, progress);
+            else
+                exportar(filtro, progress, List.of(sink(formato, o, filtro, plan, csv)));
+        });
+    }
+
+    /**
+     * Varios formatos en un ZIP, generados desde una única lectura de la
+     * base. Cada formato se escribe a un archivo temporal durante el
+     * recorrido (las entradas de un ZIP no pueden escribirse en paralelo) y
+     * al final se copian a {@code zip} en el orden pedido. El formato largo
+     * no pasa por el recorrido por participante: si se pide, se escribe con
+     * su propia lectura después del resto. No cierra ni termina {@code zip},
+     * para que se le puedan agregar otras entradas.
+     */
+    @Transactional(readOnly = true)
+    public void exportBundle(Collection<ExportFormat> formatos, ParticipanteFiltro filtro,
+            VariableSeleccion seleccion, ZipOutputStream zip, ExportProgress progress) throws IOException {
+        List<Variable> todas = getAllVariablesSorted();
+        Map<ExportFormat, ExportPlan> planes = new LinkedHashMap<>();
+        for (ExportFormat formato : formatos)
+            planes.put(formato, planDe(formato, todas, seleccion));
+        int columnas = planes.values().stream().mapToInt(ExportPlan::size).sum();
+        exportMetrics.medicion("BUNDLE", filtro).columnas(columnas)
+                .medir(zip, progress, o -> exportBundle(planes, filtro, zip, o, progress));
+    }
+
+    // Los bytes de las entradas se copian por {@code destino}, que envuelve a {@code zip}
+    private void exportBundle(Map<ExportFormat, ExportPlan> planes, ParticipanteFiltro filtro, ZipOutputStream zip,
+            OutputStream destino, ExportProgress progress) throws IOException {
+        Map<ExportFormat, Path> archivos = new LinkedHashMap<>();
+        List<OutputStream> salidas = new ArrayList<>();
+        List<ExportSink> sinks = new ArrayList<>();
+        OutputStream largo = null;
+        try {
+            try {
+                for (Map.Entry<ExportFormat, ExportPlan> plan : planes.entrySet()) {
+                    ExportFormat formato = plan.getKey();
+                    Path archivo = Files.createTempFile("datalab-bundle-", "-" + formato.getFileName());
+                    archivos.put(formato, archivo);
+                    OutputStream salida = new BufferedOutputStream(Files.newOutputStream(archivo), WRITE_BUFFER_SIZE);
+                    salidas.add(salida);
+                    if (formato == ExportFormat.CSV_LARGO)
+                        largo = salida;
+                    else
+                        sinks.add(sink(formato, salida, filtro, plan.getValue(), CsvOpciones.porDefecto()));
+                }
+            } catch (IOException | RuntimeException e) {
+                cerrar(sinks);
+                throw e;
+            }
+            if (!sinks.isEmpty())
+                exportar(filtro, progress, sinks);
+            if (largo != null)
+                writeLargo(largo, planes.get(ExportFormat.CSV_LARGO), filtro, CsvOpciones.porDefecto(), progress);
+            for (OutputStream salida : salidas)
+                salida.close();
+
+            for (Map.Entry<ExportFormat, Path> archivo : archivos.entrySet()) {
+                zip.putNextEntry(new ZipEntry(archivo.getKey().getFileName()));
+                Files.copy(archivo.getValue(), destino);
+                zip.closeEntry();
+            }
+        } finally {
+            for (OutputStream salida : salidas) {
+                try {
+                    salida.close();
+                } catch (IOException e) {
+                    // el archivo se borra igual
+                }
+            }
+            for (Path archivo : archivos.values())
+                Files.deleteIfExists(archivo);
+        }
+    }
+
+    /**
+     * Recorre una sola vez los participantes que cumplen {@code filtro} y
+     * entrega cada fila a todos los {@code sinks}; se leen solo las
+     * variables que usa alguno de ellos. Los destinos se cierran siempre,
+     * también si el recorrido falla.
+     */
+    @Transactional(readOnly = true)
+    public void exportar(ParticipanteFiltro filtro, ExportProgress progress, List<ExportSink> sinks)
+            throws IOException {
+        try {
+            ExportPlan recorrido = ExportPlan.union(sinks.stream().map(ExportSink::getPlan).toList());
+            ExportPipeline pipeline = new ExportPipeline(recorrido, sinks);
+            forEachParticipant(recorrido, filtro, pipeline.usaCodificados(), progress, pipeline);
+            pipeline.finish();
+        } finally {
+            cerrar(sinks);
+        }
+    }
+
+    private void cerrar(List<ExportSink> sinks) throws IOException {
+        IOException error = null;
+        for (ExportSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (error == null)
+                    error = e;
+            }
+        }
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Verifica antes de empezar a escribir que {@code seleccion} deje al
+     * menos una columna en {@code formato}; si no, lanza
+     * IllegalArgumentException. Los formatos codificados, Excel y el formato
+     * largo no incluyen los campos sensibles.
+     */
+    public void validarSeleccion(ExportFormat formato, VariableSeleccion seleccion) {
+        if (seleccion == null || seleccion.isVacia())
+            return;
+        planDe(formato, getAllVariablesSorted(), seleccion);
+    }
+
+    /**
+     * Columnas de {@code formato}: los codificados, Excel y el formato largo
+     * sin campos sensibles, el resto todas las variables.
+     */
+    private ExportPlan planDe(ExportFormat formato, List<Variable> todas, VariableSeleccion seleccion) {
+        boolean soloSeguras = formato == ExportFormat.CSV_CODIFICADO || formato == ExportFormat.EXCEL
+                || formato == ExportFormat.EXCEL_CODIFICADO || formato == ExportFormat.CSV_LARGO;
+        return ExportPlan.of(soloSeguras ? seguras(todas) : todas, seleccion);
+    }
+
+    /**
+     * Destino de {@code formato} que escribe en {@code out} las columnas de
+     * {@code plan}; {@code csv} solo aplica a los formatos CSV.
+     */
+    private ExportSink sink(ExportFormat formato, OutputStream out, ParticipanteFiltro filtro, ExportPlan plan,
+            CsvOpciones csv) throws IOException {
+        return switch (formato) {
+            case CSV -> new CsvSink(out, CsvMode.RAW, plan, csv);
+            case CSV_CODIFICADO -> new CsvSink(out, CsvMode.CODED, plan, csv);
+            case CSV_STATA -> new CsvSink(out, CsvMode.STATA, plan, csv);
+            case STATA_DTA -> new StataSink(out, plan);
+            case ARROW -> new ArrowSink(out, false, plan);
+            case FEATHER -> new ArrowSink(out, true, plan);
+            case EXCEL -> new ExcelSink(out, false, filtro, plan);
+            case EXCEL_CODIFICADO -> new ExcelSink(out, true, filtro, plan);
+            case CSV_LARGO -> throw new IllegalArgumentException(
+                    "El formato largo no se genera con el recorrido por participante");
+        };
+    }
+
+    /**
+     * Participantes que incluiría una exportación con {@code filtro}.
+     */
+    @Transactional(readOnly = true)
+    public long countParticipantes(ParticipanteFiltro filtro) {
+        return respuestaLecturaRepository.countParticipantes(filtro);
+    }
+
+    /**
+     * Formato largo (tidy): una fila por respuesta con participante, grupo,
+     * variable, sección, valor ingresado y valor codificado, en el orden en
+     * que Respuesta está indexada. Cada fila se escribe apenas se lee, sin
+     * armar la fila del participante, así que la memoria no depende del
+     * tamaño del estudio ni de la cantidad de variables. El valor codificado
+     * es el guardado si sigue vigente o se calcula al vuelo. Los
+     * participantes sin respuestas no generan filas. El avance se cuenta por
+     * participante, igual que en los formatos anchos.
+     */
+    private void writeLargo(OutputStream out, ExportPlan plan, ParticipanteFiltro filtro, CsvOpciones opciones,
+            ExportProgress progress) throws IOException {
+        CsvWriter csv = new CsvWriter(out, opciones.caracterSeparador(), opciones.isBom());
+        for (String columna : COLUMNAS_LARGO)
+            csv.campo(columna);
+        csv.finFila();
+
+        int[] huellas = new int[plan.size()];
+        for (int col = 0; col < plan.size(); col++)
+            huellas[col] = variableCodingService.huella(plan.getVariable(col));
+        ExportTransform codificar = transform(CsvMode.CODED, plan);
+
+        try (Stream<RespuestaLargaTupla> filas = respuestaLecturaRepository.streamRespuestasLargo(filtro,
+                plan.getIdVariablesLeidas())) {
+            Iterator<RespuestaLargaTupla> it = filas.iterator();
+            int actual = -1;
+            while (it.hasNext()) {
+                RespuestaLargaTupla fila = it.next();
+                int col = plan.columnaDe(fila.getIdVariable());
+                if (col < 0)
+                    continue;
+                if (fila.getIdParticipante() != actual) {
+                    if (actual != -1)
+                        progress.onRow();
+                    actual = fila.getIdParticipante();
+                }
+                Variable v = plan.getVariable(col);
+                String codificado = fila.getHuellaCodificacion() != null
+                        && fila.getHuellaCodificacion() == huellas[col] && fila.getValorCodificado() != null
+                                ? fila.getValorCodificado()
+                                : codificar.apply(col, fila.getValorIngresado());
+                csv.campo(fila.getCodigoParticipante());
+                csv.campo(fila.getGrupo());
+                csv.campo(v.getCodigoVariable());
+                csv.campo(v.getSeccion());
+                csv.campo(fila.getValorIngresado());
+                csv.campo(codificado);
+                csv.finFila();
+            }
+            if (actual != -1)
+                progress.onRow();
+        }
+        csv.flush();
+    }
+
+    /**
+     * Transformación de valores de {@code mode} para las columnas de
+     * {@code plan}. La normalización decimal de Stata se decide una vez por
+     * columna.
+     */
+    private ExportTransform transform(CsvMode mode, ExportPlan plan) {
+        return switch (mode) {
+            case RAW -> ExportTransform.RAW;
+            case CODED -> (col, valor) -> variableCodingService.encodeValue(plan.getVariable(col), valor);
+            case STATA -> {
+                boolean[] normalizarDecimal = new boolean[plan.size()];
+                for (int col = 0; col < plan.size(); col++)
+                    normalizarDecimal[col] = isNumeric(plan.getVariable(col));
+                // STATA COMPATIBILITY: Force dot as decimal separator for numbers
+                yield (col, valor) -> normalizarDecimal[col] && valor != null ? valor.replace(",", ".") : valor;
+            }
+        };
+    }
+
+    /**
+     * Valor a escribir en la columna {@code col}: el codificado guardado si
+     * está vigente (la exportación codificada es entonces una lectura
+     * directa) o, si falta o está vencido, {@code transform} sobre el valor
+     * ingresado.
+     */
+    private static String valor(ExportTransform transform, int col, String[] valores, String[] codificados) {
+        String guardado = codificados != null ? codificados[col] : null;
+        return guardado != null ? guardado : transform.apply(col, valores[col]);
+    }
+
+    /**
+     * CSV con encabezado de códigos de variable y una fila por participante.
+     */
+    private final class CsvSink implements ExportSink {
+
+        private final ExportPlan plan;
+        private final CsvMode mode;
+        private final ExportTransform transform;
+        private final CsvWriter csv;
+
+        CsvSink(OutputStream out, CsvMode mode, ExportPlan plan, CsvOpciones opciones) throws IOException {
+            this.plan = plan;
+            this.mode = mode;
+            this.transform = transform(mode, plan);
+            this.csv = new CsvWriter(out, opciones.caracterSeparador(), opciones.isBom());
+
+            // Header
+            csv.campo(StaticColumn.CODIGO_PARTICIPANTE.name());
+            for (int col = 0; col < plan.size(); col++)
+                csv.campo(plan.getVariable(col).getCodigoVariable());
+            csv.finFila();
+        }
+
+        @Override
+        public ExportPlan getPlan() {
+            return plan;
+        }
+
+        @Override
+        public boolean usaCodificados() {
+            return mode == CsvMode.CODED;
+        }
+
+        @Override
+        public void accept(String codigo, String[] valores) throws IOException {
+            accept(codigo, valores, null);
+        }
+
+        @Override
+        public void accept(String codigo, String[] valores, String[] codificados) throws IOException {
+            csv.campo(codigo);
+            for (int col = 0; col < valores.length; col++)
+                csv.campo(valor(transform, col, valores, codificados));
+            csv.finFila();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            csv.flush();
+        }
+    }
+
+    /**
+     * Base completa (valores sin codificar, todas las variables) como .dta
+     * nativo de Stata: las variables numéricas van como double, las que
+     * tienen opciones como códigos con etiquetas de valor (mismo orden de
+     * opciones que la base codificada) y el resto como strL. Stata lo abre
+     * sin tener que inferir tipos.
+     */
+    private final class StataSink implements ExportSink {
+
+        private final ExportPlan plan;
+        private final OutputStream out;
+        private final StataDtaWriter dta;
+        private final String[] fila;
+
+        StataSink(OutputStream out, ExportPlan plan) throws IOException {
+            this.plan = plan;
+            this.out = out;
+            List<StataDtaWriter.Columna> columnas = new ArrayList<>(plan.size() + 1);
+            columnas.add(StataDtaWriter.Columna.cadena(StaticColumn.CODIGO_PARTICIPANTE.name().toLowerCase(),
+                    "Código de participante", LARGO_CODIGO_PARTICIPANTE));
+            for (int col = 0; col < plan.size(); col++)
+                columnas.add(columnaStata(plan.getVariable(col)));
+            this.dta = new StataDtaWriter("DataLAB - " + ExportFormat.STATA_DTA.getDescripcion(), columnas);
+            this.fila = new String[plan.size() + 1];
+        }
+
+        @Override
+        public ExportPlan getPlan() {
+            return plan;
+        }
+
+        @Override
+        public void accept(String codigo, String[] valores) throws IOException {
+            fila[0] = codigo;
+            System.arraycopy(valores, 0, fila, 1, valores.length);
+            dta.addRow(fila);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            dta.writeTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            dta.close();
+        }
+    }
+
+    private StataDtaWriter.Columna columnaStata(Variable v) {
+        String nombre = v.getCodigoVariable();
+        if (isNumericaTipada(v))
+            return StataDtaWriter.Columna.numerica(nombre, v.getEnunciado());
+        List<String> opciones = opcionesDe(v);
+        if (opciones != null)
+            return StataDtaWriter.Columna.categorica(nombre, v.getEnunciado(), opciones, codificadorOpciones(v, opciones));
+        return StataDtaWriter.Columna.texto(nombre, v.getEnunciado());
+    }
+
+    /**
+     * Base completa (valores sin codificar, todas las variables) en Arrow
+     * IPC, como stream o como archivo Feather v2: float64 para las variables
+     * numéricas, diccionario para las que tienen opciones y utf8 para el
+     * resto. Se escribe un record batch cada {@code arrowBatchRows} filas.
+     */
+    private final class ArrowSink implements ExportSink {
+
+        private final ExportPlan plan;
+        private final ArrowIpcWriter arrow;
+        private final String[] fila;
+
+        ArrowSink(OutputStream out, boolean archivo, ExportPlan plan) {
+            this.plan = plan;
+            List<ArrowIpcWriter.Columna> columnas = new ArrayList<>(plan.size() + 1);
+            columnas.add(ArrowIpcWriter.Columna.texto(StaticColumn.CODIGO_PARTICIPANTE.name()));
+            for (int col = 0; col < plan.size(); col++) {
+                Variable v = plan.getVariable(col);
+                List<String> opciones = opcionesDe(v);
+                if (isNumericaTipada(v))
+                    columnas.add(ArrowIpcWriter.Columna.numerica(v.getCodigoVariable()));
+                else if (opciones != null)
+                    columnas.add(ArrowIpcWriter.Columna.categorica(v.getCodigoVariable(), opciones,
+                            codificadorOpciones(v, opciones)));
+                else
+                    columnas.add(ArrowIpcWriter.Columna.texto(v.getCodigoVariable()));
+            }
+            this.arrow = new ArrowIpcWriter(out, columnas, archivo, arrowBatchRows);
+            this.fila = new String[plan.size() + 1];
+        }
+
+        @Override
+        public ExportPlan getPlan() {
+            return plan;
+        }
+
+        @Override
+        public void accept(String codigo, String[] valores) throws IOException {
+            fila[0] = codigo;
+            System.arraycopy(valores, 0, fila, 1, valores.length);
+            arrow.addRow(fila);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            arrow.finish();
+        }
+    }
+
+    // --- Tipos de columna de los formatos tipados (Stata, Arrow) ---
+
+    private boolean isNumericaTipada(Variable v) {
+        return isNumeric(v) || "decimal".equalsIgnoreCase(v.getTipoDato());
+    }
+
+    /**
+     * Opciones de la variable en orden (la posición es el código), o null si
+     * no tiene.
+     */
+    private List<String> opcionesDe(Variable v) {
+        if (v.getOpciones() == null || v.getOpciones().isEmpty())
+            return null;
+        return Arrays.stream(v.getOpciones().split(",")).map(String::trim).toList();
+    }
+
+    /**
+     * Código de VariableCodingService para el valor, siempre que corresponda
+     * a la opción del valor; -1 si no coincide con ninguna.
+     */
+    private ToIntFunction<String> codificadorOpciones(Variable v, List<String> opciones) {
+        return raw -> {
+            int codigo = ValorParser.codigo(variableCodingService.encodeValue(v, raw));
+            return codigo >= 0 && codigo < opciones.size()
+                    && opciones.get(codigo).equalsIgnoreCase(raw.trim()) ? codigo : -1;
+        };
+    }
+
+    /**
+     * Exportación incremental: bajas registradas desde {@code desde} y fila
+     * completa (valores sin codificar, todas las variables) de cada
+     * participante cuyos datos o respuestas cambiaron desde esa fecha. Quien
+     * sincroniza aplica las filas como alta o reemplazo por
+     * CODIGO_PARTICIPANTE. Si cambió el catálogo de variables conviene
+     * volver a descargar la base completa.
+     */
+    @Transactional(readOnly = true)
+    public void writeCambios(OutputStream out, LocalDateTime desde, CambiosFormato formato) throws IOException {
+        ExportPlan plan = ExportPlan.of(getAllVariablesSorted());
+        ExportProgress progress = new ExportProgress();
+        exportMetrics.medicion("CAMBIOS_" + formato.name(), null).columnas(plan.size()).medir(out, progress, o -> {
+            List<ParticipanteEliminado> eliminados = participanteEliminadoRepository
+                    .findByFechaEliminacionGreaterThanEqualOrderByFechaEliminacion(desde);
+            Stream<RespuestaTupla> modificados = respuestaLecturaRepository.streamTuplasModificadasDesde(desde);
+
+            if (formato == CambiosFormato.NDJSON) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(o, StandardCharsets.UTF_8),
+                        WRITE_BUFFER_SIZE);
+                writeCambiosNdjson(writer, plan, eliminados, modificados, progress);
+                writer.flush();
+            } else {
+                CsvWriter csv = new CsvWriter(o);
+                writeCambiosCsv(csv, plan, eliminados, modificados, progress);
+                csv.flush();
+            }
+        });
+    }
+
+    /**
+     * Valor a usar como {@code desde} en la siguiente sincronización. Se
+     * resta un margen para no perder escrituras que ya tenían fecha pero aún
+     * no estaban confirmadas al leer; reenviar esas filas es inofensivo.
+     */
+    public LocalDateTime cursorCambios() {
+        return LocalDateTime.now().minusSeconds(cambiosOverlapSeconds);
+    }
+
+    private void writeCambiosCsv(CsvWriter csv, ExportPlan plan, List<ParticipanteEliminado> eliminados,
+            Stream<RespuestaTupla> modificados, ExportProgress progress) throws IOException {
+        csv.campo(COLUMNA_OPERACION);
+        csv.campo(StaticColumn.CODIGO_PARTICIPANTE.name());
+        for (int col = 0; col < plan.size(); col++)
+            csv.campo(plan.getVariable(col).getCodigoVariable());
+        csv.finFila();
+
+        for (ParticipanteEliminado eliminado : eliminados) {
+            csv.campo(OPERACION_BAJA);
+            csv.campo(eliminado.getCodigoParticipante());
+            for (int col = 0; col < plan.size(); col++)
+                csv.campo(null);
+            csv.finFila();
+        }
+
+        forEachParticipant(modificados, plan, progress, (codigo, valores) -> {
+            csv.campo(OPERACION_CAMBIO);
+            csv.campo(codigo);
+            for (String valor : valores)
+                csv.campo(valor);
+            csv.finFila();
+        });
+    }
+
+    private void writeCambiosNdjson(Writer writer, ExportPlan plan, List<ParticipanteEliminado> eliminados,
+            Stream<RespuestaTupla> modificados, ExportProgress progress) throws IOException {
+        JsonGenerator json = JSON_FACTORY.createGenerator(writer);
+        json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+
+        for (ParticipanteEliminado eliminado : eliminados) {
+            json.writeStartObject();
+            json.writeStringField("op", OPERACION_BAJA.toLowerCase());
+            json.writeStringField("codigo_participante", eliminado.getCodigoParticipante());
+            json.writeStringField("fecha_eliminacion", eliminado.getFechaEliminacion().toString());
+            json.writeEndObject();
+        }
+
+        forEachParticipant(modificados, plan, progress, (codigo, valores) -> {
+            json.writeStartObject();
+            json.writeStringField("op", OPERACION_CAMBIO.toLowerCase());
+            json.writeStringField("codigo_participante", codigo);
+            json.writeObjectFieldStart("valores");
+            for (int col = 0; col < valores.length; col++) {
+                if (valores[col] != null)
+                    json.writeStringField(plan.getVariable(col).getCodigoVariable(), valores[col]);
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        });
+
+        json.flush();
+        writer.write('\n');
+    }
+
+    /**
+     * Exportación NDJSON para ETL: un objeto por participante con código,
+     * grupo, estado de la ficha, las respuestas por codigoVariable (sin
+     * codificar, solo las que tienen valor) y {@code cursor}, el token para
+     * retomar después de ese participante. Se lee por keyset sobre
+     * id_participante a partir de {@code despuesDe}; con {@code limite} se
+     * entregan a lo sumo esa cantidad de participantes.
+     */
+    @Transactional(readOnly = true)
+    public void writeNdjson(OutputStream out, ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            int despuesDe, Integer limite, ExportProgress progress) throws IOException {
+        ExportPlan plan = ExportPlan.of(getAllVariablesSorted(), seleccion);
+        exportMetrics.medicion("NDJSON", filtro).columnas(plan.size())
+                .medir(out, progress, o -> writeNdjson(o, plan, filtro, despuesDe, limite, progress));
+    }
+
+    private void writeNdjson(OutputStream out, ExportPlan plan, ParticipanteFiltro filtro, int despuesDe,
+            Integer limite, ExportProgress progress) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        JsonGenerator json = JSON_FACTORY.createGenerator(writer);
+        json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        boolean vacio = true;
+
+        try (Stream<RegistroTupla> filas = respuestaLecturaRepository.streamRegistros(filtro,
+                plan.getIdVariablesLeidas(), despuesDe, limite)) {
+            Iterator<RegistroTupla> it = filas.iterator();
+            String[] valores = plan.newRowBuffer();
+            RegistroTupla actual = null;
+
+            while (it.hasNext()) {
+                RegistroTupla fila = it.next();
+                if (actual == null || fila.getIdParticipante() != actual.getIdParticipante()) {
+                    if (actual != null) {
+                        writeRegistroNdjson(json, plan, actual, valores);
+                        progress.onRow();
+                    }
+                    actual = fila;
+                    Arrays.fill(valores, null);
+                }
+                int col = plan.columnaDe(fila.getIdVariable());
+                if (col >= 0)
+                    valores[col] = fila.getValorIngresado();
+            }
+            if (actual != null) {
+                writeRegistroNdjson(json, plan, actual, valores);
+                progress.onRow();
+                vacio = false;
+            }
+        }
+
+        json.flush();
+        // Cada línea, también la última, termina en salto de línea
+        if (!vacio)
+            writer.write('\n');
+        writer.flush();
+    }
+
+    private void writeRegistroNdjson(JsonGenerator json, ExportPlan plan, RegistroTupla participante,
+            String[] valores) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("codigo_participante", participante.getCodigoParticipante());
+        json.writeStringField("grupo", participante.getGrupo());
+        json.writeStringField("estado_ficha", participante.getEstadoFicha());
+        json.writeObjectFieldStart("respuestas");
+        for (int col = 0; col < valores.length; col++) {
+            if (valores[col] != null)
+                json.writeStringField(plan.getVariable(col).getCodigoVariable(), valores[col]);
+        }
+        json.writeEndObject();
+        json.writeStringField("cursor", NdjsonCursor.codificar(participante.getIdParticipante()));
+        json.writeEndObject();
+    }
+
+    /**
+     * Base completa en formato xlsx usando SXSSF: solo una ventana fija de
+     * filas vive en memoria y el zip se escribe directo en {@code out}.
+     * En la versión codificada las filas de totales (0 / 1 / vacíos) se emiten
+     * como fórmulas sobre el rango de datos, ya que las filas de datos se
+     * escriben después y no pueden volver a modificarse; los mismos conteos,
+     * junto con las frecuencias por código, se acumulan durante la pasada y se
+     * escriben como valores en una hoja "Resumen" al final.
+     *
+     * El tipo de celda de cada columna se decide una vez al crear la hoja
+     * ({@link #tipoCelda}); los valores que no calzan con su tipo se escriben
+     * como texto y se listan en la hoja "Calidad de datos".
+     */
+    private final class ExcelSink implements ExportSink {
+
+        private final ExportPlan plan;
+        private final OutputStream out;
+        private final boolean coded;
+        private final SXSSFWorkbook workbook;
+        private final Sheet sheet;
+        private final CellStyle headerStyle;
+        private final CellStyle dateStyle;
+        private final ExportTransform transform;
+        private final CodedSummary summary;
+        private final TipoCelda[] tipos;
+        private final CalidadDatos calidad;
+        private int rowIdx;
+
+        ExcelSink(OutputStream out, boolean coded, ParticipanteFiltro filtro, ExportPlan plan) {
+            this.plan = plan;
+            this.out = out;
+            this.coded = coded;
+            this.workbook = new SXSSFWorkbook(excelRowWindow);
+            workbook.setCompressTempFiles(true);
+            try {
+                this.sheet = workbook.createSheet(coded ? "Datos Codificados" : "Datos Completos");
+
+                // --- HEADER ROW ---
+                Row headerRow = sheet.createRow(0);
+                this.headerStyle = createHeaderStyle(workbook);
+                this.dateStyle = workbook.createCellStyle();
+                dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+                int colIdx = 0;
+                for (StaticColumn col : StaticColumn.values()) {
+                    Cell cell = headerRow.createCell(colIdx++);
+                    cell.setCellValue(col.name());
+                    cell.setCellStyle(headerStyle);
+                }
+                for (int i = 0; i < plan.size(); i++) {
+                    Variable v = plan.getVariable(i);
+                    Cell cell = headerRow.createCell(colIdx++);
+                    cell.setCellValue(v.getCodigoVariable());
+                    cell.setCellStyle(headerStyle);
+                }
+
+                rowIdx = 1;
+                if (coded) {
+                    // Misma transacción de solo lectura: el conteo y el cursor ven el mismo snapshot
+                    long total = respuestaLecturaRepository.countParticipantes(filtro);
+                    writeCodedSummaryRows(sheet, plan.size(), total);
+                    workbook.setForceFormulaRecalculation(true);
+                    rowIdx = 4;
+                }
+                this.transform = coded ? transform(CsvMode.CODED, plan) : ExportTransform.RAW;
+                this.summary = coded ? newCodedSummary(plan) : null;
+                this.tipos = new TipoCelda[plan.size()];
+                for (int i = 0; i < plan.size(); i++)
+                    tipos[i] = tipoCelda(plan.getVariable(i), coded);
+                this.calidad = new CalidadDatos(plan.size());
+            } catch (RuntimeException e) {
+                workbook.dispose();
+                throw e;
+            }
+        }
+
+        @Override
+        public ExportPlan getPlan() {
+            return plan;
+        }
+
+        @Override
+        public boolean usaCodificados() {
+            return coded;
+        }
+
+        @Override
+        public void accept(String codigo, String[] valores) {
+            accept(codigo, valores, null);
+        }
+
+        // --- DATA ROWS ---
+        @Override
+        public void accept(String codigo, String[] valores, String[] codificados) {
+            Row row = sheet.createRow(rowIdx++);
+            row.createCell(0).setCellValue(safe(codigo));
+            for (int i = 0; i < valores.length; i++) {
+                String val = coded ? valor(transform, i, valores, codificados) : valores[i];
+                if (coded)
+                    summary.accept(i, val);
+                if (!tipos[i].escribir(row, i + 1, val, dateStyle))
+                    calidad.invalido(i, codigo, val);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (coded)
+                writeSummarySheet(workbook, summary, headerStyle);
+            writeCalidadSheet(workbook, plan, tipos, calidad, headerStyle);
+            workbook.write(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Conteos del export codificado (0 / 1 / vacíos y frecuencias por código)
+     * sin generar ningún archivo.
+     */
+    @Transactional(readOnly = true)
+    public List<ResumenCodificadoDTO> getCodedSummary() throws IOException {
+        ExportPlan plan = ExportPlan.of(getSafeVariables());
+        CodedSummary summary = newCodedSummary(plan);
+
+        ExportTransform codificar = transform(CsvMode.CODED, plan);
+        ExportProgress progress = new ExportProgress();
+        exportMetrics.medicion("RESUMEN_CODIFICADO", null).columnas(plan.size()).medir(progress,
+                () -> forEachParticipant(plan, null, true, progress, new ParticipantRowHandler() {
+                    @Override
+                    public void accept(String codigo, String[] valores) {
+                        accept(codigo, valores, null);
+                    }
+
+                    @Override
+                    public void accept(String codigo, String[] valores, String[] codificados) {
+                        for (int i = 0; i < valores.length; i++)
+                            summary.accept(i, valor(codificar, i, valores, codificados));
+                    }
+                }));
+
+        List<ResumenCodificadoDTO> resumen = new ArrayList<>(plan.size());
+        for (int i = 0; i < plan.size(); i++) {
+            Map<String, Long> frecuencias = null;
+            if (summary.isCategorica(i)) {
+                frecuencias = new LinkedHashMap<>();
+                long[] freq = summary.getFrecuencias(i);
+                for (int codigo = 0; codigo < freq.length; codigo++)
+                    frecuencias.put(String.valueOf(codigo), freq[codigo]);
+                if (summary.getOtros(i) > 0)
+                    frecuencias.put("otros", summary.getOtros(i));
+            }
+            resumen.add(ResumenCodificadoDTO.builder()
+                    .codigoVariable(plan.getVariable(i).getCodigoVariable())
+                    .total0(summary.getCeros(i))
+                    .total1(summary.getUnos(i))
+                    .vacios(summary.getVacios(i))
+                    .frecuencias(frecuencias)
+                    .build());
+        }
+        return resumen;
+    }
+
+    private CodedSummary newCodedSummary(ExportPlan plan) {
+        boolean[] categoricas = new boolean[plan.size()];
+        for (int i = 0; i < plan.size(); i++)
+            categoricas[i] = variableCodingService.isBinaryOrCategorical(plan.getVariable(i));
+        return new CodedSummary(plan, categoricas);
+    }
+
+    /**
+     * Hoja final con los conteos ya calculados (útil para lectores que no
+     * evalúan fórmulas, como pandas).
+     */
+    private void writeSummarySheet(Workbook workbook, CodedSummary summary, CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet("Resumen");
+        String[] headers = { "Variable", "Total '0'", "Total '1'", "Vacíos/Nulos", "Frecuencias" };
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+        }
+
+        ExportPlan plan = summary.getPlan();
+        for (int i = 0; i < plan.size(); i++) {
+            Row row = sheet.createRow(i + 1);
+            row.createCell(0).setCellValue(plan.getVariable(i).getCodigoVariable());
+            row.createCell(1).setCellValue(summary.getCeros(i));
+            row.createCell(2).setCellValue(summary.getUnos(i));
+            row.createCell(3).setCellValue(summary.getVacios(i));
+            if (summary.isCategorica(i)) {
+                StringBuilder sb = new StringBuilder();
+                long[] freq = summary.getFrecuencias(i);
+                for (int codigo = 0; codigo < freq.length; codigo++) {
+                    if (sb.length() > 0)
+                        sb.append("; ");
+                    sb.append(codigo).append('=').append(freq[codigo]);
+                }
+                if (summary.getOtros(i) > 0)
+                    sb.append(sb.length() > 0 ? "; " : "").append("otros=").append(summary.getOtros(i));
+                row.createCell(4).setCellValue(sb.toString());
+            }
+        }
+    }
+
+    /**
+     * Filas 1-3 de la hoja codificada: Total '0', Total '1' y Vacíos/Nulos por
+     * variable, calculadas por Excel sobre las filas de datos (desde la fila 5).
+     */
+    private void writeCodedSummaryRows(Sheet sheet, int variableCount, long total) {
+        Row rowCount0 = sheet.createRow(1);
+        Row rowCount1 = sheet.createRow(2);
+        Row rowCountEmpty = sheet.createRow(3);
+
+        rowCount0.createCell(0).setCellValue("Total '0'");
+        rowCount1.createCell(0).setCellValue("Total '1'");
+        rowCountEmpty.createCell(0).setCellValue("Vacíos/Nulos");
+
+        long lastRow = 4 + total; // 1-based, las filas de datos empiezan en la 5
+        for (int i = 0; i < variableCount; i++) {
+            int colIdx = i + 1; // después de CODIGO_PARTICIPANTE
+            if (total == 0) {
+                rowCount0.createCell(colIdx).setCellValue(0);
+                rowCount1.createCell(colIdx).setCellValue(0);
+                rowCountEmpty.createCell(colIdx).setCellValue(0);
+                continue;
+            }
+            String col = CellReference.convertNumToColString(colIdx);
+            String range = col + "5:" + col + lastRow;
+            rowCount0.createCell(colIdx).setCellFormula("COUNTIF(" + range + ",0)");
+            rowCount1.createCell(colIdx).setCellFormula("COUNTIF(" + range + ",1)");
+            rowCountEmpty.createCell(colIdx).setCellFormula("COUNTBLANK(" + range + ")");
+        }
+    }
+
+    /**
+     * Recorre el cursor de respuestas agrupándolas por participante sin
+     * mantener en memoria más que la fila del participante actual. Las
+     * respuestas a variables fuera del plan se descartan; si el plan es una
+     * selección de columnas ni siquiera se leen. Solo se leen los
+     * participantes que cumplen {@code filtro} (null = todos). Cada fila
+     * entregada se registra en {@code progress}, que corta el recorrido si se
+     * cancela.
+     */
+    public void forEachParticipant(ExportPlan plan, ParticipanteFiltro filtro, ExportProgress progress,
+            ParticipantRowHandler handler) throws IOException {
+        forEachParticipant(plan, filtro, false, progress, handler);
+    }
+
+    /**
+     * Con {@code codificados} se leen también los valores codificados
+     * guardados y se entregan por
+     * {@link ParticipantRowHandler#accept(String, String[], String[])}; los
+     * que se guardaron con otra huella de la variable (cambiaron sus opciones
+     * o las reglas) se entregan como null para que se codifiquen al vuelo.
+     */
+    public void forEachParticipant(ExportPlan plan, ParticipanteFiltro filtro, boolean codificados,
+            ExportProgress progress, ParticipantRowHandler handler) throws IOException {
+        int[] huellas = null;
+        if (codificados) {
+            huellas = new int[plan.size()];
+            for (int col = 0; col < plan.size(); col++)
+                huellas[col] = variableCodingService.huella(plan.getVariable(col));
+        }
+        forEachParticipant(respuestaLecturaRepository.streamTuplas(filtro, plan.getIdVariablesLeidas(), codificados),
+                plan, huellas, progress, handler);
+    }
+
+    private void forEachParticipant(Stream<RespuestaTupla> tuplas, ExportPlan plan, ExportProgress progress,
+            ParticipantRowHandler handler) throws IOException {
+        forEachParticipant(tuplas, plan, null, progress, handler);
+    }
+
+    private void forEachParticipant(Stream<RespuestaTupla> tuplas, ExportPlan plan, int[] huellas,
+            ExportProgress progress, ParticipantRowHandler handler) throws IOException {
+        try (Stream<RespuestaTupla> filas = tuplas) {
+            Iterator<RespuestaTupla> it = filas.iterator();
+            String[] valores = plan.newRowBuffer();
+            String[] codificados = huellas != null ? plan.newRowBuffer() : null;
+            int actual = -1;
+            String codigo = null;
+
+            while (it.hasNext()) {
+                RespuestaTupla fila = it.next();
+                if (fila.getIdParticipante() != actual) {
+                    if (actual != -1) {
+                        entregar(handler, codigo, valores, codificados);
+                        progress.onRow();
+                    }
+                    actual = fila.getIdParticipante();
+                    codigo = fila.getCodigoParticipante();
+                    Arrays.fill(valores, null);
+                    if (codificados != null)
+                        Arrays.fill(codificados, null);
+                }
+                int col = plan.columnaDe(fila.getIdVariable());
+                if (col >= 0) {
+                    valores[col] = fila.getValorIngresado();
+                    if (codificados != null && fila.getHuellaCodificacion() != null
+                            && fila.getHuellaCodificacion() == huellas[col])
+                        codificados[col] = fila.getValorCodificado();
+                }
+            }
+            if (actual != -1) {
+                entregar(handler, codigo, valores, codificados);
+                progress.onRow();
+            }
+        }
+    }
+
+    private static void entregar(ParticipantRowHandler handler, String codigo, String[] valores,
+            String[] codificados) throws IOException {
+        if (codificados != null)
+            handler.accept(codigo, valores, codificados);
+        else
+            handler.accept(codigo, valores);
+    }
+
+    /**
+     * Todas las variables ordenadas por enunciado y código.
+     */
+    public List<Variable> getAllVariablesSorted() {
+        return variableRepository.findAll().stream()
+                .sorted(Comparator
+                        .comparing(Variable::getOrdenEnunciado, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(Variable::getCodigoVariable))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Obtiene variables de forma determinista, eliminando duplicados y
+     * excluyendo campos sensibles que no deben exportarse.
+     */
+    public List<Variable> getSafeVariables() {
+        return seguras(getAllVariablesSorted());
+    }
+
+    private List<Variable> seguras(List<Variable> todas) {
+        // Campos sensibles a excluir (minúsculas)
+        var sensitiveCodes = new LinkedHashSet<>(List.of(
+                "nombre",
+                "telefono",
+                "nombre_completo",
+                "correo_electronico",
+                "direccion"));
+
+        return todas.stream()
+                // Elimina duplicados por código manteniendo el primero
+                .collect(Collectors.toMap(
+                        v -> v.getCodigoVariable() != null ? v.getCodigoVariable().toLowerCase() : "",
+                        v -> v,
+                        (a, b) -> a,
+                        LinkedHashMap::new))
+                .values().stream()
+                // Excluir sensibles y columnas estáticas
+                .filter(v -> {
+                    String code = v.getCodigoVariable();
+                    if (code == null)
+                        return false;
+                    String lower = code.toLowerCase();
+                    return !sensitiveCodes.contains(lower)
+                            && !lower.equals(StaticColumn.CODIGO_PARTICIPANTE.name().toLowerCase());
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tipo de celda de la variable en la hoja Excel. En la versión cruda las
+     * numéricas y decimales son números y las de tipo fecha son fechas; en
+     * la codificada las que tienen regla de codificación (edad, imc,
+     * opciones) son códigos enteros. El resto es texto.
+     */
+    private TipoCelda tipoCelda(Variable v, boolean coded) {
+        if (coded && variableCodingService.isBinaryOrCategorical(v))
+            return TipoCelda.CODIGO;
+        if (isNumericaTipada(v))
+            return TipoCelda.NUMERO;
+        if ("fecha".equalsIgnoreCase(v.getTipoDato()))
+            return TipoCelda.FECHA;
+        return TipoCelda.TEXTO;
+    }
+
+    /**
+     * Hoja con los valores que no calzaron con el tipo de su variable
+     * (número, código o fecha) y quedaron escritos como texto: cantidad por
+     * variable y el primer caso, para ubicarlo en la base.
+     */
+    private void writeCalidadSheet(Workbook workbook, ExportPlan plan, TipoCelda[] tipos, CalidadDatos calidad,
+            CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet("Calidad de datos");
+        String[] headers = { "Variable", "Tipo esperado", "Valores mal formados", "Primer participante",
+                "Ejemplo" };
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+        }
+
+        int rowIdx = 1;
+        for (int i = 0; i < plan.size(); i++) {
+            if (calidad.getInvalidos(i) == 0)
+                continue;
+            Row row = sheet.createRow(rowIdx++);
+            row.createCell(0).setCellValue(plan.getVariable(i).getCodigoVariable());
+            row.createCell(1).setCellValue(tipos[i].getEtiqueta());
+            row.createCell(2).setCellValue(calidad.getInvalidos(i));
+            row.createCell(3).setCellValue(safe(calidad.getParticipante(i)));
+            row.createCell(4).setCellValue(calidad.getEjemplo(i));
+        }
+        if (rowIdx == 1)
+            sheet.createRow(1).createCell(0).setCellValue("Sin valores mal formados");
+    }
+
+    private CellStyle createHeaderStyle(Workbook wb) {
+        CellStyle style = wb.createCellStyle();
+        Font font = wb.createFont();
+        font.setBold(true);
+        font.setColor(IndexedColors.WHITE.getIndex());
+        style.setFont(font);
+        style.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        return style;
+    }
+
+    private String safe(String s) {
+        return s == null ? "" : s;
+    }
+
+    private boolean isNumeric(Variable v) {
+        return v.getTipoDato() != null && v.getTipoDato().toLowerCase().contains("numero");
+    }
+}
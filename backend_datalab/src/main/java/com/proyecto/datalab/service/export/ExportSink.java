@@ -0,0 +1,56 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destino de un recorrido de exportación (CSV, xlsx, .dta, Arrow...). Cada
+ * destino tiene su propio plan de columnas y recibe las filas ya proyectadas
+ * a ese plan, así varios formatos se generan desde una única lectura de la
+ * base (ver {@link ExportPipeline}).
+ */
+public interface ExportSink extends Closeable {
+
+    /**
+     * Columnas que escribe este destino; deben estar en el plan del recorrido.
+     */
+    ExportPlan getPlan();
+
+    /**
+     * Una fila por participante. {@code valores} tiene una posición por
+     * columna de {@link #getPlan()} y se reutiliza entre llamadas.
+     */
+    void accept(String codigoParticipante, String[] valores) throws IOException;
+
+    /**
+     * Si el destino escribe valores codificados; en ese caso el recorrido lee
+     * también los valores codificados guardados.
+     */
+    default boolean usaCodificados() {
+        return false;
+    }
+
+    /**
+     * Como {@link #accept(String, String[])}, con el valor codificado
+     * guardado de cada columna ({@code codificados}, alineado con
+     * {@code valores}). Una posición nula indica que no hay valor guardado
+     * vigente y hay que codificar al vuelo; el arreglo entero es nulo si el
+     * recorrido no los leyó.
+     */
+    default void accept(String codigoParticipante, String[] valores, String[] codificados) throws IOException {
+        accept(codigoParticipante, valores);
+    }
+
+    /**
+     * Completa la salida después de la última fila.
+     */
+    void finish() throws IOException;
+
+    /**
+     * Libera archivos temporales y otros recursos; se llama siempre, también
+     * si el recorrido falla.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
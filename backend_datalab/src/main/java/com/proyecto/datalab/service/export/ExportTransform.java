@@ -0,0 +1,15 @@
+package com.proyecto.datalab.service.export;
+
+/**
+ * Transformación de un valor de la columna {@code col} antes de escribirlo:
+ * sin cambios, codificado con VariableCodingService o con punto decimal para
+ * Stata. Se resuelve una vez por plan y se aplica por celda.
+ */
+@FunctionalInterface
+public interface ExportTransform {
+
+    /** Valores tal como fueron ingresados. */
+    ExportTransform RAW = (col, valor) -> valor;
+
+    String apply(int col, String valor);
+}
@@ -0,0 +1,13 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Escribe una exportación en el stream recibido. Permite encadenar caché y
+ * compresión alrededor de la generación sin que esta los conozca.
+ */
+@FunctionalInterface
+public interface ExportWriter {
+    void write(OutputStream out) throws IOException;
+}
@@ -0,0 +1,40 @@
+package com.proyecto.datalab.service.export;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Token de continuación de la exportación NDJSON. Es opaco para el cliente:
+ * codifica el id del último participante entregado, que es la clave del
+ * keyset por el que se retoma.
+ */
+public final class NdjsonCursor {
+
+    private static final String PREFIJO = "p";
+
+    private NdjsonCursor() {
+    }
+
+    public static String codificar(int idParticipante) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIJO + idParticipante).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Id del último participante entregado; 0 si no hay token (desde el
+     * principio). Lanza IllegalArgumentException si el token no es válido.
+     */
+    public static int decodificar(String token) {
+        if (token == null || token.isBlank())
+            return 0;
+        String valor;
+        try {
+            valor = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.US_ASCII);
+        } catch (IllegalArgumentException e) {
+            valor = "";
+        }
+        if (!valor.matches(PREFIJO + "\\d{1,10}") || Long.parseLong(valor.substring(PREFIJO.length())) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cursor de exportación inválido: " + token);
+        return Integer.parseInt(valor.substring(PREFIJO.length()));
+    }
+}
@@ -0,0 +1,163 @@
+package com.proyecto.datalab.service.export;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.repository.RespuestaCodificacionRepository;
+import com.proyecto.datalab.repository.RespuestaCodificacionRepository.HuellaGuardada;
+import com.proyecto.datalab.repository.RespuestaCodificacionRepository.Pendiente;
+import com.proyecto.datalab.repository.RespuestaCodificacionRepository.Recodificada;
+import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.VariableCodingService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantiene al día los valores codificados guardados en Respuesta. Cada
+ * respuesta guarda la huella de su variable (reglas + código + opciones) al
+ * codificarse; cuando la huella vigente de una variable no coincide, sus
+ * respuestas se recodifican en segundo plano, por lotes.
+ *
+ * Mientras tanto las exportaciones siguen siendo correctas: un valor con la
+ * huella vencida se ignora y se codifica al vuelo. Se ejecuta al arrancar
+ * (cubre un cambio de {@link VariableCodingService#VERSION_REGLAS}), después
+ * de cambiar las opciones de una variable y periódicamente, para los cambios
+ * hechos directamente en la base.
+ */
+@Service
+@Slf4j
+public class RecodificacionService {
+
+    private final RespuestaCodificacionRepository respuestaCodificacionRepository;
+    private final VariableRepository variableRepository;
+    private final VariableCodingService variableCodingService;
+    private final int loteSize;
+    private final ExecutorService executor;
+    private final AtomicBoolean pendiente = new AtomicBoolean();
+
+    public RecodificacionService(RespuestaCodificacionRepository respuestaCodificacionRepository,
+            VariableRepository variableRepository,
+            VariableCodingService variableCodingService,
+            @Value("${datalab.export.recodificacion.batch-size:1000}") int loteSize) {
+        this.respuestaCodificacionRepository = respuestaCodificacionRepository;
+        this.variableRepository = variableRepository;
+        this.variableCodingService = variableCodingService;
+        this.loteSize = loteSize;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "recodificacion");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        programar();
+    }
+
+    @Scheduled(fixedDelayString = "${datalab.export.recodificacion.interval-ms:3600000}",
+            initialDelayString = "${datalab.export.recodificacion.interval-ms:3600000}")
+    public void revisarPeriodicamente() {
+        programar();
+    }
+
+    /**
+     * Encola una pasada de recodificación. Dentro de una transacción se
+     * encola después del commit, para que vea las opciones nuevas; los
+     * pedidos que llegan mientras ya hay una pasada en cola se agrupan en
+     * ella.
+     */
+    public void programar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    encolar();
+                }
+            });
+        } else {
+            encolar();
+        }
+    }
+
+    private void encolar() {
+        if (!pendiente.compareAndSet(false, true))
+            return;
+        executor.execute(() -> {
+            pendiente.set(false);
+            try {
+                recodificar();
+            } catch (RuntimeException e) {
+                log.warn("Falló la recodificación de respuestas; se reintenta en la próxima pasada", e);
+            }
+        });
+    }
+
+    /**
+     * Recodifica las respuestas sin valor codificado o con la huella vencida.
+     * Devuelve la cantidad de respuestas actualizadas.
+     */
+    public int recodificar() {
+        Map<Integer, Variable> variables = new LinkedHashMap<>();
+        for (Variable v : variableRepository.findAll())
+            variables.put(v.getIdVariable(), v);
+
+        Map<Integer, Variable> vencidas = new LinkedHashMap<>();
+        for (HuellaGuardada guardada : respuestaCodificacionRepository.findHuellas()) {
+            Variable v = variables.get(guardada.idVariable());
+            if (v == null)
+                continue;
+            Integer huella = guardada.huella();
+            if (huella == null || huella != variableCodingService.huella(v))
+                vencidas.put(v.getIdVariable(), v);
+        }
+
+        int total = 0;
+        for (Variable v : vencidas.values())
+            total += recodificar(v);
+        if (total > 0)
+            log.info("Recodificadas {} respuestas de {} variables", total, vencidas.size());
+        return total;
+    }
+
+    private int recodificar(Variable variable) {
+        int huella = variableCodingService.huella(variable);
+        int total = 0;
+        int despuesDe = 0;
+        List<Pendiente> lote;
+        do {
+            lote = respuestaCodificacionRepository.findPendientes(variable.getIdVariable(), huella, despuesDe,
+                    loteSize);
+            if (lote.isEmpty())
+                break;
+            List<Recodificada> recodificadas = new ArrayList<>(lote.size());
+            for (Pendiente p : lote) {
+                recodificadas.add(new Recodificada(p.idRespuesta(), p.valorIngresado(),
+                        variableCodingService.encodeValue(variable, p.valorIngresado()), huella));
+            }
+            total += respuestaCodificacionRepository.actualizar(recodificadas);
+            despuesDe = lote.get(lote.size() - 1).idRespuesta();
+        } while (lote.size() == loteSize);
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,568 @@
+package com.proyecto.datalab.service.export;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Escritor de archivos Stata .dta en formato 118 (Stata 14 o superior), con
+ * columnas tipadas: double para numéricas, byte/int con etiquetas de valor
+ * para categóricas y strL para texto libre.
+ *
+ * El encabezado del formato incluye N y la posición de cada sección, que
+ * dependen de datos que solo se conocen al terminar la lectura. Por eso las
+ * filas (de ancho fijo) y los strL se vuelcan a dos archivos temporales
+ * durante la pasada y {@link #writeTo(OutputStream)} arma el archivo final
+ * copiándolos detrás del encabezado ya completo. La memoria usada depende de
+ * la cantidad de columnas y etiquetas, no de la cantidad de filas.
+ *
+ * Uso: {@link #addRow(String[])} por cada observación, luego
+ * {@link #writeTo(OutputStream)} y finalmente {@link #close()}.
+ */
+@Slf4j
+public final class StataDtaWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RELEASE = 118;
+    private static final int SECCIONES_MAPA = 14;
+
+    // Tamaños fijos de cada entrada en las secciones de metadatos
+    private static final int LARGO_NOMBRE = 129;
+    private static final int LARGO_FORMATO = 57;
+    private static final int LARGO_ETIQUETA_VARIABLE = 321;
+    private static final int MAX_CARACTERES_NOMBRE = 32;
+    private static final int MAX_CARACTERES_ETIQUETA = 80;
+    private static final int MAX_BYTES_ETIQUETA_VALOR = 32000;
+    private static final int MAX_ANCHO_STR = 2045;
+
+    // Códigos de tipo de la sección variable_types
+    private static final int TIPO_STRL = 32768;
+    private static final int TIPO_DOUBLE = 65526;
+    private static final int TIPO_INT = 65529;
+    private static final int TIPO_BYTE = 65530;
+
+    // Valores faltantes: "." y ".a" (código fuera de rango)
+    private static final byte BYTE_FALTANTE = 101;
+    private static final byte BYTE_FALTANTE_A = 102;
+    private static final int BYTE_MAXIMO = 100;
+    private static final short INT_FALTANTE = 32741;
+    private static final short INT_FALTANTE_A = 32742;
+    private static final int INT_MAXIMO = 32740;
+    private static final long DOUBLE_FALTANTE = 0x7FE0000000000000L;
+    private static final double DOUBLE_MAXIMO = 8.988465674311579e307;
+
+    // Tipo de GSO: texto UTF-8 terminado en cero
+    private static final int GSO_TEXTO = 130;
+    // Textos de categóricas memorizados por columna (la cantidad de valores distintos suele ser chica)
+    private static final int MAX_MEMO_CODIGOS = 10_000;
+
+    private static final Set<String> PALABRAS_RESERVADAS = Set.of(
+            "_all", "_b", "byte", "_coef", "_cons", "double", "float", "if", "in", "int", "long",
+            "_n", "_N", "_pi", "_pred", "_rc", "_skip", "strL", "using", "with");
+
+    private static final DateTimeFormatter FORMATO_TIMESTAMP = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm",
+            Locale.ENGLISH);
+
+    public enum Tipo {
+        /** Cadena de ancho fijo (str#). */
+        STR,
+        /** Texto de largo arbitrario, guardado aparte en la sección strls. */
+        STRL,
+        DOUBLE,
+        /** Código entero con etiquetas de valor; byte o int según la cantidad de opciones. */
+        CATEGORICA
+    }
+
+    /**
+     * Definición de una columna del .dta.
+     */
+    public static final class Columna {
+        private final String nombre;
+        private final String etiqueta;
+        private final Tipo tipo;
+        private final int ancho;
+        private final List<String> etiquetasValor;
+        private final ToIntFunction<String> codificador;
+
+        private Columna(String nombre, String etiqueta, Tipo tipo, int ancho, List<String> etiquetasValor,
+                ToIntFunction<String> codificador) {
+            this.nombre = nombre;
+            this.etiqueta = etiqueta;
+            this.tipo = tipo;
+            this.ancho = ancho;
+            this.etiquetasValor = etiquetasValor;
+            this.codificador = codificador;
+        }
+
+        /**
+         * Cadena de ancho fijo en bytes UTF-8; lo que exceda se trunca.
+         */
+        public static Columna cadena(String nombre, String etiqueta, int ancho) {
+            return new Columna(nombre, etiqueta, Tipo.STR, Math.max(1, Math.min(ancho, MAX_ANCHO_STR)), null, null);
+        }
+
+        public static Columna texto(String nombre, String etiqueta) {
+            return new Columna(nombre, etiqueta, Tipo.STRL, 8, null, null);
+        }
+
+        /**
+         * Valores con coma o punto decimal; lo que no se pueda interpretar
+         * queda como faltante.
+         */
+        public static Columna numerica(String nombre, String etiqueta) {
+            return new Columna(nombre, etiqueta, Tipo.DOUBLE, 8, null, null);
+        }
+
+        /**
+         * @param etiquetasValor texto de cada código, en orden (código 0, 1, ...)
+         * @param codificador    código del valor crudo, o -1 si no coincide con
+         *                       ninguna opción; esos valores reciben códigos
+         *                       nuevos a continuación, con el texto original
+         *                       como etiqueta
+         */
+        public static Columna categorica(String nombre, String etiqueta, List<String> etiquetasValor,
+                ToIntFunction<String> codificador) {
+            // Con pocas opciones alcanza un byte y queda margen para valores fuera de la lista
+            int ancho = etiquetasValor.size() <= BYTE_MAXIMO / 2 ? 1 : 2;
+            return new Columna(nombre, etiqueta, Tipo.CATEGORICA, ancho, List.copyOf(etiquetasValor), codificador);
+        }
+    }
+
+    private final String etiquetaDatos;
+    private final Columna[] columnas;
+    private final String[] nombres;
+    private final int anchoFila;
+
+    // Valores crudos de categóricas ya resueltos y códigos agregados durante la pasada
+    private final List<Map<String, Integer>> codigos = new ArrayList<>();
+    private final List<List<String>> extras = new ArrayList<>();
+    private final long[] fueraDeRango;
+
+    private final Path archivoDatos;
+    private final Path archivoStrls;
+    private final OutputStream datos;
+    private final OutputStream strls;
+    private final ByteBuffer fila;
+    private final ByteBuffer gso = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+    private long observaciones;
+    private long bytesStrls;
+
+    public StataDtaWriter(String etiquetaDatos, List<Columna> columnas) throws IOException {
+        if (columnas.isEmpty() || columnas.size() > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Cantidad de columnas no soportada por Stata: " + columnas.size());
+        this.etiquetaDatos = truncarCaracteres(etiquetaDatos, MAX_CARACTERES_ETIQUETA);
+        this.columnas = columnas.toArray(new Columna[0]);
+        this.nombres = new String[this.columnas.length];
+        this.fueraDeRango = new long[this.columnas.length];
+
+        Set<String> usados = new HashSet<>();
+        int ancho = 0;
+        for (int i = 0; i < this.columnas.length; i++) {
+            nombres[i] = nombreStata(this.columnas[i].nombre, usados);
+            ancho += this.columnas[i].ancho;
+            codigos.add(this.columnas[i].tipo == Tipo.CATEGORICA ? new HashMap<>() : null);
+            extras.add(this.columnas[i].tipo == Tipo.CATEGORICA ? new ArrayList<>() : null);
+        }
+        this.anchoFila = ancho;
+        this.fila = ByteBuffer.allocate(ancho).order(ByteOrder.LITTLE_ENDIAN);
+
+        this.archivoDatos = Files.createTempFile("datalab-dta-", ".datos");
+        this.archivoStrls = Files.createTempFile("datalab-dta-", ".strls");
+        this.datos = new BufferedOutputStream(Files.newOutputStream(archivoDatos), BUFFER_SIZE);
+        this.strls = new BufferedOutputStream(Files.newOutputStream(archivoStrls), BUFFER_SIZE);
+    }
+
+    /**
+     * Agrega una observación. {@code valores} tiene una posición por columna
+     * (null o vacío = faltante) y puede reutilizarse después de la llamada.
+     */
+    public void addRow(String[] valores) throws IOException {
+        long obs = ++observaciones;
+        fila.clear();
+        for (int col = 0; col < columnas.length; col++) {
+            String valor = valores[col];
+            switch (columnas[col].tipo) {
+                case STR -> putCadena(valor, columnas[col].ancho);
+                case STRL -> putStrl(col, obs, valor);
+                case DOUBLE -> fila.putDouble(parseDouble(valor));
+                case CATEGORICA -> putCodigo(col, valor);
+            }
+        }
+        datos.write(fila.array(), 0, anchoFila);
+    }
+
+    public long getObservaciones() {
+        return observaciones;
+    }
+
+    /**
+     * Escribe el .dta completo en {@code out}. No cierra {@code out}.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        datos.close();
+        strls.close();
+        for (int col = 0; col < columnas.length; col++) {
+            if (fueraDeRango[col] > 0)
+                log.warn("Stata: {} valores de {} sin código disponible quedaron como .a", fueraDeRango[col],
+                        nombres[col]);
+        }
+
+        long[] mapa = new long[SECCIONES_MAPA];
+        ByteArrayOutputStream cabecera = new ByteArrayOutputStream(1024 + columnas.length * 640);
+        int posicionMapa = escribirCabecera(cabecera, mapa);
+        ByteArrayOutputStream etiquetas = new ByteArrayOutputStream();
+        escribirEtiquetasValor(etiquetas);
+
+        // Posiciones de las secciones que siguen a la cabecera
+        mapa[9] = cabecera.size();
+        mapa[10] = mapa[9] + largo("<data>") + observaciones * anchoFila + largo("</data>");
+        mapa[11] = mapa[10] + largo("<strls>") + bytesStrls + largo("</strls>");
+        mapa[12] = mapa[11] + largo("<value_labels>") + etiquetas.size() + largo("</value_labels>");
+        mapa[13] = mapa[12] + largo("</stata_dta>");
+
+        byte[] bytesCabecera = cabecera.toByteArray();
+        ByteBuffer parche = ByteBuffer.wrap(bytesCabecera).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < SECCIONES_MAPA; i++)
+            parche.putLong(posicionMapa + i * 8, mapa[i]);
+
+        out.write(bytesCabecera);
+        tag(out, "<data>");
+        copiar(archivoDatos, out);
+        tag(out, "</data>");
+        tag(out, "<strls>");
+        copiar(archivoStrls, out);
+        tag(out, "</strls>");
+        tag(out, "<value_labels>");
+        etiquetas.writeTo(out);
+        tag(out, "</value_labels>");
+        tag(out, "</stata_dta>");
+        out.flush();
+    }
+
+    /**
+     * Elimina los archivos temporales.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            datos.close();
+            strls.close();
+        } finally {
+            Files.deleteIfExists(archivoDatos);
+            Files.deleteIfExists(archivoStrls);
+        }
+    }
+
+    // --- Celdas ---
+
+    private void putCadena(String valor, int ancho) {
+        int inicio = fila.position();
+        if (valor != null && !valor.isEmpty()) {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            fila.put(bytes, 0, largoTruncado(bytes, ancho));
+        }
+        while (fila.position() < inicio + ancho)
+            fila.put((byte) 0);
+    }
+
+    private void putStrl(int col, long obs, String valor) throws IOException {
+        if (valor == null || valor.isEmpty()) {
+            fila.putLong(0L); // (0,0) = cadena vacía
+            return;
+        }
+        // En el formato 118 la referencia ocupa 8 bytes: v en 2 y o en 6
+        long v = col + 1;
+        fila.putLong(v | (obs << 16));
+
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        gso.clear();
+        gso.put((byte) 'G').put((byte) 'S').put((byte) 'O');
+        gso.putInt((int) v).putLong(obs).put((byte) GSO_TEXTO).putInt(bytes.length + 1);
+        strls.write(gso.array(), 0, gso.position());
+        strls.write(bytes);
+        strls.write(0);
+        bytesStrls += gso.position() + bytes.length + 1;
+    }
+
+    private void putCodigo(int col, String valor) {
+        Columna columna = columnas[col];
+        int codigo = valor == null || valor.isBlank() ? -1 : codigo(col, valor);
+        boolean fuera = codigo > (columna.ancho == 1 ? BYTE_MAXIMO : INT_MAXIMO);
+        if (fuera)
+            fueraDeRango[col]++;
+        if (columna.ancho == 1)
+            fila.put(codigo < 0 ? BYTE_FALTANTE : fuera ? BYTE_FALTANTE_A : (byte) codigo);
+        else
+            fila.putShort(codigo < 0 ? INT_FALTANTE : fuera ? INT_FALTANTE_A : (short) codigo);
+    }
+
+    private int codigo(int col, String valor) {
+        Map<String, Integer> memo = codigos.get(col);
+        Integer conocido = memo.get(valor);
+        if (conocido != null)
+            return conocido;
+
+        Columna columna = columnas[col];
+        int codigo = columna.codificador.applyAsInt(valor);
+        if (codigo < 0) {
+            // Valor fuera de la lista de opciones: se conserva con un código nuevo
+            List<String> agregados = extras.get(col);
+            String texto = valor.trim();
+            int idx = agregados.indexOf(texto);
+            if (idx < 0 && agregados.size() < INT_MAXIMO) {
+                agregados.add(texto);
+                idx = agregados.size() - 1;
+            }
+            codigo = idx < 0 ? Integer.MAX_VALUE : columna.etiquetasValor.size() + idx;
+        }
+        if (memo.size() < MAX_MEMO_CODIGOS)
+            memo.put(valor, codigo);
+        return codigo;
+    }
+
+    private static double parseDouble(String valor) {
+        double d = ValorParser.numero(valor);
+        // Los valores por encima del máximo de Stata se leerían como faltantes especiales
+        if (Double.isNaN(d) || Math.abs(d) > DOUBLE_MAXIMO)
+            return Double.longBitsToDouble(DOUBLE_FALTANTE);
+        return d;
+    }
+
+    // --- Cabecera y metadatos ---
+
+    /**
+     * Escribe desde &lt;stata_dta&gt; hasta &lt;/characteristics&gt;, con las
+     * posiciones del mapa que ya se conocen. Devuelve dónde empiezan los
+     * valores del mapa para completarlos después.
+     */
+    private int escribirCabecera(ByteArrayOutputStream out, long[] mapa) throws IOException {
+        int k = columnas.length;
+        mapa[0] = out.size();
+        tag(out, "<stata_dta>");
+        tag(out, "<header>");
+        tag(out, "<release>" + RELEASE + "</release>");
+        tag(out, "<byteorder>LSF</byteorder>");
+        tag(out, "<K>");
+        u16(out, k);
+        tag(out, "</K>");
+        tag(out, "<N>");
+        u64(out, observaciones);
+        tag(out, "</N>");
+        tag(out, "<label>");
+        byte[] etiqueta = etiquetaDatos.getBytes(StandardCharsets.UTF_8);
+        u16(out, etiqueta.length);
+        out.write(etiqueta);
+        tag(out, "</label>");
+        tag(out, "<timestamp>");
+        byte[] timestamp = LocalDateTime.now().format(FORMATO_TIMESTAMP).getBytes(StandardCharsets.US_ASCII);
+        out.write(timestamp.length);
+        out.write(timestamp);
+        tag(out, "</timestamp>");
+        tag(out, "</header>");
+
+        mapa[1] = out.size();
+        tag(out, "<map>");
+        int posicionMapa = out.size();
+        for (int i = 0; i < SECCIONES_MAPA; i++)
+            u64(out, 0);
+        tag(out, "</map>");
+
+        mapa[2] = out.size();
+        tag(out, "<variable_types>");
+        for (Columna c : columnas)
+            u16(out, codigoTipo(c));
+        tag(out, "</variable_types>");
+
+        mapa[3] = out.size();
+        tag(out, "<varnames>");
+        for (String nombre : nombres)
+            fijo(out, nombre, LARGO_NOMBRE);
+        tag(out, "</varnames>");
+
+        mapa[4] = out.size();
+        tag(out, "<sortlist>");
+        for (int i = 0; i <= k; i++)
+            u16(out, 0);
+        tag(out, "</sortlist>");
+
+        mapa[5] = out.size();
+        tag(out, "<formats>");
+        for (Columna c : columnas)
+            fijo(out, formato(c), LARGO_FORMATO);
+        tag(out, "</formats>");
+
+        mapa[6] = out.size();
+        tag(out, "<value_label_names>");
+        for (int i = 0; i < k; i++)
+            fijo(out, columnas[i].tipo == Tipo.CATEGORICA ? nombres[i] : "", LARGO_NOMBRE);
+        tag(out, "</value_label_names>");
+
+        mapa[7] = out.size();
+        tag(out, "<variable_labels>");
+        for (Columna c : columnas)
+            fijo(out, truncarCaracteres(c.etiqueta, MAX_CARACTERES_ETIQUETA), LARGO_ETIQUETA_VARIABLE);
+        tag(out, "</variable_labels>");
+
+        mapa[8] = out.size();
+        tag(out, "<characteristics>");
+        tag(out, "</characteristics>");
+        return posicionMapa;
+    }
+
+    /**
+     * Una tabla &lt;lbl&gt; por columna categórica, con el mismo nombre que la
+     * variable: primero las opciones y luego los valores agregados.
+     */
+    private void escribirEtiquetasValor(ByteArrayOutputStream out) throws IOException {
+        for (int col = 0; col < columnas.length; col++) {
+            if (columnas[col].tipo != Tipo.CATEGORICA)
+                continue;
+            List<String> textos = new ArrayList<>(columnas[col].etiquetasValor);
+            int maximo = columnas[col].ancho == 1 ? BYTE_MAXIMO : INT_MAXIMO;
+            for (String extra : extras.get(col)) {
+                if (textos.size() > maximo)
+                    break;
+                textos.add(extra);
+            }
+
+            ByteArrayOutputStream txt = new ByteArrayOutputStream();
+            int[] offsets = new int[textos.size()];
+            for (int i = 0; i < textos.size(); i++) {
+                offsets[i] = txt.size();
+                byte[] bytes = textos.get(i).getBytes(StandardCharsets.UTF_8);
+                txt.write(bytes, 0, largoTruncado(bytes, MAX_BYTES_ETIQUETA_VALOR));
+                txt.write(0);
+            }
+
+            int n = textos.size();
+            tag(out, "<lbl>");
+            i32(out, 8 + 8 * n + txt.size());
+            fijo(out, nombres[col], LARGO_NOMBRE);
+            out.write(new byte[3]);
+            i32(out, n);
+            i32(out, txt.size());
+            for (int offset : offsets)
+                i32(out, offset);
+            for (int i = 0; i < n; i++)
+                i32(out, i);
+            txt.writeTo(out);
+            tag(out, "</lbl>");
+        }
+    }
+
+    private static int codigoTipo(Columna c) {
+        return switch (c.tipo) {
+            case STR -> c.ancho;
+            case STRL -> TIPO_STRL;
+            case DOUBLE -> TIPO_DOUBLE;
+            case CATEGORICA -> c.ancho == 1 ? TIPO_BYTE : TIPO_INT;
+        };
+    }
+
+    private static String formato(Columna c) {
+        return switch (c.tipo) {
+            case STR -> "%" + c.ancho + "s";
+            case STRL -> "%9s";
+            case DOUBLE -> "%10.0g";
+            case CATEGORICA -> "%8.0g";
+        };
+    }
+
+    /**
+     * Nombre válido en Stata: letras, dígitos y _, sin empezar con dígito,
+     * hasta 32 caracteres, sin palabras reservadas y sin repetir.
+     */
+    static String nombreStata(String codigo, Set<String> usados) {
+        StringBuilder sb = new StringBuilder();
+        String base = codigo != null ? codigo.trim() : "";
+        base.codePoints().forEach(cp -> sb.appendCodePoint(Character.isLetterOrDigit(cp) || cp == '_' ? cp : '_'));
+        String nombre = sb.toString();
+        if (nombre.isEmpty() || Character.isDigit(nombre.codePointAt(0)) || PALABRAS_RESERVADAS.contains(nombre)
+                || nombre.matches("str\\d+"))
+            nombre = "v_" + nombre;
+        nombre = truncarCaracteres(nombre, MAX_CARACTERES_NOMBRE);
+
+        String candidato = nombre;
+        for (int i = 2; !usados.add(candidato); i++) {
+            String sufijo = "_" + i;
+            candidato = truncarCaracteres(nombre, MAX_CARACTERES_NOMBRE - sufijo.length()) + sufijo;
+        }
+        return candidato;
+    }
+
+    private static String truncarCaracteres(String s, int maximo) {
+        if (s == null)
+            return "";
+        if (s.codePointCount(0, s.length()) <= maximo)
+            return s;
+        return s.substring(0, s.offsetByCodePoints(0, maximo));
+    }
+
+    // Largo en bytes que no corta un carácter UTF-8 a la mitad
+    private static int largoTruncado(byte[] bytes, int maximo) {
+        if (bytes.length <= maximo)
+            return bytes.length;
+        int largo = maximo;
+        while (largo > 0 && (bytes[largo] & 0xC0) == 0x80)
+            largo--;
+        return largo;
+    }
+
+    // --- Primitivas little-endian ---
+
+    private static long largo(String tag) {
+        return tag.length();
+    }
+
+    private static void tag(OutputStream out, String tag) throws IOException {
+        out.write(tag.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void fijo(OutputStream out, String valor, int largo) throws IOException {
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        int usados = largoTruncado(bytes, largo - 1);
+        out.write(bytes, 0, usados);
+        out.write(new byte[largo - usados]);
+    }
+
+    private static void u16(OutputStream out, int v) throws IOException {
+        out.write(v & 0xFF);
+        out.write((v >>> 8) & 0xFF);
+    }
+
+    private static void i32(OutputStream out, int v) throws IOException {
+        u16(out, v & 0xFFFF);
+        u16(out, (v >>> 16) & 0xFFFF);
+    }
+
+    private static void u64(OutputStream out, long v) throws IOException {
+        i32(out, (int) v);
+        i32(out, (int) (v >>> 32));
+    }
+
+    private static void copiar(Path archivo, OutputStream out) throws IOException {
+        try (InputStream in = Files.newInputStream(archivo)) {
+            in.transferTo(out);
+        }
+    }
+}
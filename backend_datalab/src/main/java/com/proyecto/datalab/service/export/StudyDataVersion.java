@@ -0,0 +1,64 @@
+package com.proyecto.datalab.service.export;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Versión de los datos del estudio. Crece cada vez que se escriben
+ * participantes, respuestas o variables a través de los servicios, y sirve
+ * como clave del caché de exportaciones.
+ *
+ * Se inicializa con la hora de arranque, de modo que un reinicio nunca
+ * reutiliza versiones anteriores. Los cambios hechos directamente en la base
+ * (scripts SQL) no la incrementan.
+ */
+@Component
+public class StudyDataVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong catalogo = new AtomicLong(version.get());
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Versión del catálogo de variables; solo cambia con {@link #bumpCatalogo()}.
+     */
+    public long catalogo() {
+        return catalogo.get();
+    }
+
+    /**
+     * Marca los datos como modificados. Dentro de una transacción el
+     * incremento se aplica recién después del commit, para que una
+     * exportación que lea la nueva versión también vea los datos nuevos.
+     */
+    public void bump() {
+        incrementar(version);
+    }
+
+    /**
+     * Marca como modificado el catálogo de variables (y con él los datos).
+     */
+    public void bumpCatalogo() {
+        incrementar(catalogo);
+        incrementar(version);
+    }
+
+    private void incrementar(AtomicLong contador) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    contador.incrementAndGet();
+                }
+            });
+        } else {
+            contador.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.proyecto.datalab.service.export;
+
+import java.time.LocalDate;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+
+/**
+ * Escritor de celdas Excel de una columna, elegido una vez por variable al
+ * armar la hoja (según tipo de dato, opciones y reglas de codificación) en
+ * lugar de adivinar el tipo en cada celda. Un valor que no calza con el tipo
+ * de su columna se escribe como texto y se informa como mal formado.
+ */
+enum TipoCelda {
+
+    /** Número decimal; acepta coma como separador decimal. */
+    NUMERO("Número") {
+        @Override
+        boolean escribir(Cell cell, String valor, CellStyle estiloFecha) {
+            double d = ValorParser.numero(valor);
+            if (Double.isNaN(d))
+                return false;
+            cell.setCellValue(d);
+            return true;
+        }
+    },
+
+    /** Código entero de la codificación (binarias, ordinales y opciones). */
+    CODIGO("Código") {
+        @Override
+        boolean escribir(Cell cell, String valor, CellStyle estiloFecha) {
+            int codigo = ValorParser.codigo(valor);
+            if (codigo < 0)
+                return false;
+            cell.setCellValue(codigo);
+            return true;
+        }
+    },
+
+    /** Fecha aaaa-mm-dd, escrita como fecha de Excel. */
+    FECHA("Fecha") {
+        @Override
+        boolean escribir(Cell cell, String valor, CellStyle estiloFecha) {
+            LocalDate fecha = ValorParser.fecha(valor);
+            if (fecha == null)
+                return false;
+            cell.setCellValue(fecha);
+            cell.setCellStyle(estiloFecha);
+            return true;
+        }
+    },
+
+    /** Texto tal cual; nunca está mal formado. */
+    TEXTO("Texto") {
+        @Override
+        boolean escribir(Cell cell, String valor, CellStyle estiloFecha) {
+            cell.setCellValue(valor);
+            return true;
+        }
+    };
+
+    private final String etiqueta;
+
+    TipoCelda(String etiqueta) {
+        this.etiqueta = etiqueta;
+    }
+
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    /**
+     * Escribe {@code valor} en la columna {@code col} de la fila; null o vacío
+     * deja la celda sin crear. Devuelve false si el valor no tiene el formato
+     * del tipo, en cuyo caso queda escrito como texto.
+     */
+    boolean escribir(Row row, int col, String valor, CellStyle estiloFecha) {
+        if (valor == null || valor.isEmpty())
+            return true;
+        Cell cell = row.createCell(col);
+        if (escribir(cell, valor, estiloFecha))
+            return true;
+        cell.setCellValue(valor);
+        return false;
+    }
+
+    abstract boolean escribir(Cell cell, String valor, CellStyle estiloFecha);
+}
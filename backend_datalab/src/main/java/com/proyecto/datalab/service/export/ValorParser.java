@@ -0,0 +1,132 @@
+package com.proyecto.datalab.service.export;
+
+import java.time.LocalDate;
+
+/**
+ * Lectura de valores ingresados (números, códigos y fechas) sin lanzar
+ * excepciones: un valor mal formado devuelve un centinela (NaN, -1 o null)
+ * en lugar de pasar por NumberFormatException, que en una exportación con
+ * millones de celdas cuesta más que el parseo mismo.
+ */
+public final class ValorParser {
+
+    // Enteros de hasta 15 dígitos caben exactos en un double
+    private static final int MAX_DIGITOS_EXACTOS = 15;
+    private static final int MAX_DIGITOS_CODIGO = 9;
+
+    private ValorParser() {
+    }
+
+    /**
+     * Número decimal con punto o coma (una sola vez), signo y exponente
+     * opcionales y espacios alrededor; NaN si el valor es null, vacío o no
+     * tiene ese formato. No acepta "NaN", "Infinity" ni sufijos de tipo.
+     */
+    public static double numero(String valor) {
+        if (valor == null)
+            return Double.NaN;
+        int inicio = 0;
+        int fin = valor.length();
+        while (inicio < fin && valor.charAt(inicio) <= ' ')
+            inicio++;
+        while (fin > inicio && valor.charAt(fin - 1) <= ' ')
+            fin--;
+
+        int i = inicio;
+        boolean negativo = false;
+        if (i < fin && (valor.charAt(i) == '-' || valor.charAt(i) == '+'))
+            negativo = valor.charAt(i++) == '-';
+
+        int digitos = 0;
+        long entero = 0;
+        int coma = -1;
+        boolean exponente = false;
+        for (; i < fin; i++) {
+            char c = valor.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos++;
+                entero = entero * 10 + (c - '0');
+            } else if ((c == '.' || c == ',') && coma < 0) {
+                coma = i;
+            } else if ((c == 'e' || c == 'E') && digitos > 0) {
+                exponente = true;
+                break;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digitos == 0)
+            return Double.NaN;
+        if (exponente) {
+            int j = i + 1;
+            if (j < fin && (valor.charAt(j) == '-' || valor.charAt(j) == '+'))
+                j++;
+            if (j == fin)
+                return Double.NaN;
+            for (; j < fin; j++) {
+                char c = valor.charAt(j);
+                if (c < '0' || c > '9')
+                    return Double.NaN;
+            }
+        }
+
+        // Entero corto (el caso más común): sin crear Strings
+        if (coma < 0 && !exponente && digitos <= MAX_DIGITOS_EXACTOS)
+            return negativo ? -entero : entero;
+
+        // Ya validado: parseDouble no puede fallar
+        String limpio = valor.substring(inicio, fin);
+        if (coma >= 0 && valor.charAt(coma) == ',')
+            limpio = limpio.replace(',', '.');
+        return Double.parseDouble(limpio);
+    }
+
+    /**
+     * Código entero no negativo (solo dígitos, sin signo ni espacios); -1 si
+     * no lo es.
+     */
+    public static int codigo(String valor) {
+        if (valor == null || valor.isEmpty() || valor.length() > MAX_DIGITOS_CODIGO)
+            return -1;
+        int codigo = 0;
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            codigo = codigo * 10 + (c - '0');
+        }
+        return codigo;
+    }
+
+    /**
+     * Fecha ISO (aaaa-mm-dd, como la guarda el formulario), admitiendo
+     * espacios alrededor; null si no tiene ese formato o no existe en el
+     * calendario.
+     */
+    public static LocalDate fecha(String valor) {
+        if (valor == null)
+            return null;
+        String v = valor.strip();
+        if (v.length() != 10 || v.charAt(4) != '-' || v.charAt(7) != '-')
+            return null;
+        int anio = digitos(v, 0, 4);
+        int mes = digitos(v, 5, 7);
+        int dia = digitos(v, 8, 10);
+        if (anio < 0 || mes < 1 || mes > 12 || dia < 1)
+            return null;
+        if (dia > 28 && dia > LocalDate.of(anio, mes, 1).lengthOfMonth())
+            return null;
+        return LocalDate.of(anio, mes, dia);
+    }
+
+    private static int digitos(String s, int desde, int hasta) {
+        int n = 0;
+        for (int i = desde; i < hasta; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+}
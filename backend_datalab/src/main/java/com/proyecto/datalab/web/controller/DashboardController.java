@@ -14,7 +14,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.proyecto.datalab.enums.EstadoFicha;
 import com.proyecto.datalab.enums.GrupoParticipante;
 import com.proyecto.datalab.repository.ParticipanteRepository;
-import com.proyecto.datalab.repository.RespuestaRepository;
+import com.proyecto.datalab.repository.RespuestaLecturaRepository;
 import com.proyecto.datalab.web.dto.common.ApiResponse;
 
 import lombok.RequiredArgsConstructor;
@@ -25,7 +25,7 @@ import lombok.RequiredArgsConstructor;
 public class DashboardController {
 
     private final ParticipanteRepository participanteRepository;
-    private final RespuestaRepository respuestaRepository;
+    private final RespuestaLecturaRepository respuestaLecturaRepository;
 
     @GetMapping("/resumen")
     public ApiResponse<Map<String, Object>> resumen() {
@@ -40,16 +40,16 @@ public class DashboardController {
         data.put("meta", 500); // meta fija, ajustable
 
         // Serie simple por mes (últimos 6 meses) usando fechaInclusion
-        var participantes = participanteRepository.findAll();
         LocalDate hoy = LocalDate.now();
+        var fechas = participanteRepository.findFechasInclusionDesde(hoy.minusMonths(5).withDayOfMonth(1));
         var serie = new java.util.ArrayList<Map<String, Object>>();
         for (int i = 5; i >= 0; i--) {
             LocalDate inicioMes = hoy.minusMonths(i).withDayOfMonth(1);
             LocalDate finMes = inicioMes.withDayOfMonth(inicioMes.lengthOfMonth());
-            long countMes = participantes.stream()
-                    .filter(p -> p.getFechaInclusion() != null
-                            && !p.getFechaInclusion().isBefore(inicioMes)
-                            && !p.getFechaInclusion().isAfter(finMes))
+            long countMes = fechas.stream()
+                    .filter(f -> f != null
+                            && !f.isBefore(inicioMes)
+                            && !f.isAfter(finMes))
                     .count();
             Map<String, Object> punto = new HashMap<>();
             punto.put("label", inicioMes.getMonth().getDisplayName(TextStyle.SHORT, Locale.getDefault()));
@@ -72,11 +72,9 @@ public class DashboardController {
         conteo.put("femenino", new AtomicInteger());
         conteo.put("otros", new AtomicInteger());
 
-        respuestaRepository.findAll().stream()
-                .filter(r -> r.getVariable() != null && r.getVariable().getCodigoVariable() != null)
-                .filter(r -> "SEXO".equalsIgnoreCase(r.getVariable().getCodigoVariable()))
-                .forEach(r -> {
-                    String val = r.getValorIngresado() != null ? r.getValorIngresado().toLowerCase() : "";
+        respuestaLecturaRepository.findValoresByCodigoVariable("SEXO")
+                .forEach(valor -> {
+                    String val = valor != null ? valor.toLowerCase() : "";
                     if (val.contains("masc") || val.contains("hombre"))
                         conteo.get("masculino").incrementAndGet();
                     else if (val.contains("fem") || val.contains("mujer"))
@@ -139,12 +137,10 @@ public class DashboardController {
         conteo.put("61-75", new AtomicInteger());
         conteo.put("76+", new AtomicInteger());
 
-        respuestaRepository.findAll().stream()
-                .filter(r -> r.getVariable() != null && r.getVariable().getCodigoVariable() != null)
-                .filter(r -> "EDAD".equalsIgnoreCase(r.getVariable().getCodigoVariable()))
-                .forEach(r -> {
+        respuestaLecturaRepository.findValoresByCodigoVariable("EDAD")
+                .forEach(valor -> {
                     try {
-                        double edad = Double.parseDouble(r.getValorIngresado());
+                        double edad = Double.parseDouble(valor);
                         if (edad >= 18 && edad <= 30)
                             conteo.get("18-30").incrementAndGet();
                         else if (edad <= 45)
@@ -1,41 +1,59 @@
 package com.proyecto.datalab.web.controller;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.FillPatternType;
-import org.apache.poi.ss.usermodel.Font;
-import org.apache.poi.ss.usermodel.IndexedColors;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import com.proyecto.datalab.entity.Participante;
-import com.proyecto.datalab.entity.Respuesta;
-import com.proyecto.datalab.entity.Variable;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.proyecto.datalab.dto.CsvOpciones;
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.dto.VariableSeleccion;
+import com.proyecto.datalab.dto.ParticipanteCabecera;
 import com.proyecto.datalab.repository.ParticipanteRepository;
-import com.proyecto.datalab.repository.RespuestaRepository;
-import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.export.CrfExportService;
+import com.proyecto.datalab.service.export.CrfPdfService;
+import com.proyecto.datalab.service.export.DataDictionaryService;
+import com.proyecto.datalab.service.export.ExportCache;
+import com.proyecto.datalab.service.export.ExportCompression;
+import com.proyecto.datalab.service.export.ExportFormat;
+import com.proyecto.datalab.service.export.ExportMetrics;
+import com.proyecto.datalab.service.export.ExportProgress;
+import com.proyecto.datalab.service.export.ExportRangeResponder;
+import com.proyecto.datalab.service.export.ExportService;
+import com.proyecto.datalab.service.export.ExportWriter;
+import com.proyecto.datalab.service.export.NdjsonCursor;
+import com.proyecto.datalab.service.export.StudyDataVersion;
+import com.proyecto.datalab.web.dto.ResumenCodificadoDTO;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 import com.proyecto.datalab.service.AuditoriaService;
 import com.proyecto.datalab.repository.UsuarioRepository;
@@ -47,14 +65,27 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/export")
 @RequiredArgsConstructor
+@Slf4j
 public class ExportController {
 
     private final ParticipanteRepository participanteRepository;
-    private final RespuestaRepository respuestaRepository;
-    private final VariableRepository variableRepository;
     private final AuditoriaService auditoriaService;
     private final UsuarioRepository usuarioRepository;
-    private final com.proyecto.datalab.service.VariableCodingService variableCodingService;
+    private final ExportService exportService;
+    private final ExportCache exportCache;
+    private final StudyDataVersion studyDataVersion;
+    private final CrfExportService crfExportService;
+    private final CrfPdfService crfPdfService;
+    private final DataDictionaryService dataDictionaryService;
+    private final ExportMetrics exportMetrics;
+    private final ExportRangeResponder exportRangeResponder;
+
+    public static final String HEADER_CURSOR = "X-Export-Cursor";
+    public static final String HEADER_DICCIONARIO_VERSION = "X-Diccionario-Version";
+
+    // Nivel de compresión gzip/zip: 1 = menos CPU, 9 = menos bytes
+    @Value("${datalab.export.compression.level:6}")
+    private int compressionLevel;
 
     // Helper method to get current user
     private Usuario getCurrentUser() {
@@ -76,21 +107,43 @@ public class ExportController {
         }
     }
 
+    /**
+     * Exportaciones por día de los últimos 7 días. Con {@code latencias} la
+     * respuesta pasa a ser {@code {por_dia, latencias}}, con percentiles de
+     * duración por formato, filtro y origen.
+     */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Long>> getExportStats() {
-        return ResponseEntity.ok(auditoriaService.getExportStatsLast7Days());
+    public ResponseEntity<Map<String, Object>> getExportStats(
+            @RequestParam(defaultValue = "false") boolean latencias) {
+        Map<String, Long> porDia = auditoriaService.getExportStatsLast7Days();
+        if (!latencias)
+            return ResponseEntity.ok(new LinkedHashMap<>(porDia));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("por_dia", porDia);
+        stats.put("latencias", exportMetrics.resumenLatencias());
+        return ResponseEntity.ok(stats);
     }
 
-    // Defines the static columns for the export
-    private enum StaticColumn {
-        CODIGO_PARTICIPANTE;
+    /**
+     * Conteos 0 / 1 / vacíos y frecuencias por código del export codificado,
+     * sin generar el archivo.
+     */
+    @GetMapping("/coded-summary")
+    public ResponseEntity<List<ResumenCodificadoDTO>> getCodedSummary() {
+        try {
+            return ResponseEntity.ok(exportService.getCodedSummary());
+        } catch (Exception e) {
+            log.error("No se pudo calcular el resumen codificado", e);
+            return ResponseEntity.internalServerError().build();
+        }
     }
 
     @GetMapping("/participante/{id}/pdf")
 
     public ResponseEntity<byte[]> exportPdfParticipante(
             @org.springframework.web.bind.annotation.PathVariable Integer id) {
-        Participante p = participanteRepository.findById(id).orElse(null);
+        // Solo la cabecera: las respuestas se leen si el PDF no está en caché
+        ParticipanteCabecera p = participanteRepository.findCabeceraById(id).orElse(null);
         if (p == null)
             return ResponseEntity.notFound().build();
 
@@ -99,654 +152,450 @@ public class ExportController {
         try {
             Usuario u = getCurrentUser();
             if (u != null) {
-                auditoriaService.registrarAccion(u, p, "EXPORTAR", "Participante",
-                        "Exportó PDF del participante " + p.getCodigoParticipante());
+                auditoriaService.registrarAccion(u, participanteRepository.getReferenceById(id), "EXPORTAR",
+                        "Participante", "Exportó PDF del participante " + p.getCodigoParticipante());
             }
         } catch (Exception e) {
-            e.printStackTrace(); // Non-blocking logging
+            log.warn("No se pudo registrar la auditoría de la exportación", e);
         }
 
-        List<Respuesta> respuestas = respuestaRepository.findByParticipante_IdParticipante(id);
-
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            com.itextpdf.text.Document document = new com.itextpdf.text.Document();
-            com.itextpdf.text.pdf.PdfWriter.getInstance(document, baos);
-            document.open();
-
-            com.itextpdf.text.Font titleFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA,
-                    16, com.itextpdf.text.Font.BOLD);
-            com.itextpdf.text.Paragraph title = new com.itextpdf.text.Paragraph("CRF - Ficha de Participante",
-                    titleFont);
-            title.setAlignment(com.itextpdf.text.Element.ALIGN_CENTER);
-            document.add(title);
-            document.add(new com.itextpdf.text.Paragraph(" "));
-
-            com.itextpdf.text.pdf.PdfPTable info = new com.itextpdf.text.pdf.PdfPTable(2);
-            info.setWidthPercentage(100);
-            addInfoCell(info, "Código", safe(p.getCodigoParticipante()));
-            addInfoCell(info, "Nombre", safe(p.getNombreCompleto()));
-            addInfoCell(info, "Grupo", safe(p.getGrupo() != null ? p.getGrupo().name() : ""));
-            document.add(info);
-            document.add(new com.itextpdf.text.Paragraph(" "));
-
-            com.itextpdf.text.pdf.PdfPTable table = new com.itextpdf.text.pdf.PdfPTable(2);
-            table.setWidthPercentage(100);
-            addHeaderCell(table, "Enunciado");
-            addHeaderCell(table, "Valor");
-
-            List<Variable> allVariables = variableRepository.findAll().stream()
-                    .sorted(Comparator.comparing(Variable::getOrdenEnunciado,
-                            Comparator.nullsLast(Comparator.naturalOrder())))
-                    .collect(Collectors.toList());
-
-            Map<String, String> respuestasMap = respuestas.stream()
-                    .collect(Collectors.toMap(r -> r.getVariable().getCodigoVariable(), Respuesta::getValorIngresado,
-                            (a, b) -> b));
-
-            for (Variable v : allVariables) {
-                // Filter by Group (Aplica A)
-                String aplica = v.getAplicaA() != null ? v.getAplicaA() : "Ambos";
-                String grupo = p.getGrupo() != null ? p.getGrupo().name() : ""; // CASO / CONTROL
-
-                boolean show = aplica.equalsIgnoreCase("Ambos") || aplica.equalsIgnoreCase(grupo);
-                if (!show)
-                    continue;
-
-                addBodyCell(table, safe(v.getEnunciado()));
-
-                // Inject value for codigo_participante if missing in responses
-                String val = respuestasMap.get(v.getCodigoVariable());
-                if (v.getCodigoVariable().equalsIgnoreCase("codigo_participante") && (val == null || val.isEmpty())) {
-                    val = p.getCodigoParticipante();
-                }
-
-                addBodyCell(table, safe(val));
-            }
-
-            document.add(table);
-            document.close();
+        try {
+            // Las reimpresiones salen del caché mientras las respuestas no cambien
+            byte[] pdf = crfPdfService.pdfParticipante(p);
 
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION,
                             "attachment; filename=\"crf_" + safe(p.getCodigoParticipante()) + ".pdf\"")
                     .contentType(MediaType.APPLICATION_PDF)
-                    .body(baos.toByteArray());
+                    .body(pdf);
 
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("No se pudo generar el CRF del participante {}", id, e);
             return ResponseEntity.internalServerError().build();
         }
     }
 
-    private void addHeaderCell(com.itextpdf.text.pdf.PdfPTable table, String value) {
-        com.itextpdf.text.pdf.PdfPCell cell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(value));
-        cell.setPadding(5);
-        table.addCell(cell);
-    }
-
-    private void addBodyCell(com.itextpdf.text.pdf.PdfPTable table, String value) {
-        com.itextpdf.text.pdf.PdfPCell cell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(value));
-        cell.setPadding(5);
-        table.addCell(cell);
-    }
-
-    private void addInfoCell(com.itextpdf.text.pdf.PdfPTable table, String label, String value) {
-        table.addCell(label);
-        table.addCell(value);
-    }
-
-    @GetMapping("/leyenda-pdf")
+    /**
+     * CRF de varios participantes en un ZIP, generados en paralelo y enviados
+     * a medida que terminan. Los filtros son opcionales.
+     */
+    @GetMapping("/crf-zip")
+    public ResponseEntity<StreamingResponseBody> exportCrfZip(ParticipanteFiltro filtro) {
 
-    public ResponseEntity<byte[]> exportLegendPdf() {
-        // LOG
         // LOG
         try {
             Usuario u = getCurrentUser();
             if (u != null) {
-                auditoriaService.registrarAccion(u, null, "EXPORTAR", "Variables", "Exportó Leyenda en PDF");
+                auditoriaService.registrarAccion(u, null, "EXPORTAR", "Participante",
+                        "Exportó CRF en lote (ZIP)" + (filtro.isVacio() ? "" : " " + filtro));
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("No se pudo registrar la auditoría de la exportación", e);
         }
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            com.itextpdf.text.Document document = new com.itextpdf.text.Document();
-            com.itextpdf.text.pdf.PdfWriter.getInstance(document, baos);
-            document.open();
-
-            com.itextpdf.text.Font titleFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA,
-                    16, com.itextpdf.text.Font.BOLD);
-            com.itextpdf.text.Paragraph title = new com.itextpdf.text.Paragraph(
-                    "Leyenda de Variables - Diccionario de Datos",
-                    titleFont);
-            title.setAlignment(com.itextpdf.text.Element.ALIGN_CENTER);
-            document.add(title);
-            document.add(new com.itextpdf.text.Paragraph(" "));
-
-            // Expanded to 4 columns to include Encoding Rules
-            com.itextpdf.text.pdf.PdfPTable table = new com.itextpdf.text.pdf.PdfPTable(4);
-            table.setWidthPercentage(100);
-            table.setWidths(new float[] { 2, 5, 2, 4 }); // Relative widths
-
-            addHeaderCell(table, "Código Variable");
-            addHeaderCell(table, "Descripción / Enunciado");
-            addHeaderCell(table, "Tipo de Dato");
-            addHeaderCell(table, "Codificación / Reglas");
-
-            List<Variable> allVariables = variableRepository.findAll().stream()
-                    .sorted(Comparator.comparing(Variable::getOrdenEnunciado,
-                            Comparator.nullsLast(Comparator.naturalOrder())))
-                    .collect(Collectors.toList());
-
-            for (Variable v : allVariables) {
-                addBodyCell(table, safe(v.getCodigoVariable()));
-                addBodyCell(table, safe(v.getEnunciado()));
-                addBodyCell(table, safe(v.getTipoDato()));
-                addBodyCell(table, variableCodingService.getEncodingDescription(v));
-            }
-
-            document.add(table);
-            document.close();
+        StreamingResponseBody body = out -> crfExportService.writeZip(out, filtro);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"crf_participantes.zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"leyenda_variables.pdf\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .body(baos.toByteArray());
+    /**
+     * Leyenda en PDF, precalculada por versión del catálogo de variables.
+     */
+    @GetMapping("/leyenda-pdf")
+    public ResponseEntity<byte[]> exportLegendPdf(@RequestParam(required = false) Long version,
+            WebRequest request) {
+        return diccionario(DataDictionaryService.Formato.PDF, version, request);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().build();
-        }
+    /**
+     * Diccionario de datos legible por máquina ({@code formato=csv|json}) o
+     * la leyenda ({@code formato=pdf}). Con {@code version} igual a la del
+     * catálogo (header X-Diccionario-Version) la respuesta se puede cachear
+     * como inmutable.
+     */
+    @GetMapping("/diccionario")
+    public ResponseEntity<byte[]> exportDiccionario(@RequestParam(required = false) String formato,
+            @RequestParam(required = false) Long version, WebRequest request) {
+        return diccionario(DataDictionaryService.Formato.parse(formato), version, request);
     }
 
-    @GetMapping("/excel")
+    private ResponseEntity<byte[]> diccionario(DataDictionaryService.Formato formato, Long version,
+            WebRequest request) {
+        DataDictionaryService.Artefacto artefacto = dataDictionaryService.get(formato);
+        if (request.checkNotModified(artefacto.etag())) {
+            return null; // 304 Not Modified
+        }
 
-    public ResponseEntity<byte[]> exportToExcel() {
-        // LOG
         // LOG
         try {
             Usuario u = getCurrentUser();
             if (u != null) {
-                auditoriaService.registrarAccion(u, null, "EXPORTAR", "Base de Datos",
-                        "Exportó Base Completa (Excel)");
+                auditoriaService.registrarAccion(u, null, "EXPORTAR", "Variables",
+                        formato == DataDictionaryService.Formato.PDF ? "Exportó Leyenda en PDF"
+                                : "Exportó Diccionario de Datos (" + formato.name() + ")");
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("No se pudo registrar la auditoría de la exportación", e);
         }
 
-        try (Workbook workbook = new XSSFWorkbook();
-                ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        // Una URL con la versión vigente nunca cambia de contenido
+        CacheControl cacheControl = version != null && version == artefacto.version()
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable()
+                : CacheControl.noCache().cachePrivate();
+        return ResponseEntity.ok()
+                .eTag(artefacto.etag())
+                .cacheControl(cacheControl)
+                .header(HEADER_DICCIONARIO_VERSION, String.valueOf(artefacto.version()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + formato.getFileName() + "\"")
+                .contentType(MediaType.parseMediaType(formato.getContentType()))
+                .body(artefacto.contenido());
+    }
 
-            Sheet sheet = workbook.createSheet("Datos Completos");
+    @GetMapping("/excel")
 
-            // --- 1. PREPARE DATA ---
-            List<Variable> variables = getSafeVariables();
+    public ResponseEntity<StreamingResponseBody> exportToExcel(ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            WebRequest request) {
+        return descargar(ExportFormat.EXCEL, filtro, seleccion, request, null, null, null);
+    }
 
-            List<Participante> participantes = participanteRepository.findAll();
+    @GetMapping("/csv")
 
-            // Map: ParticipanteID -> { CodigoVariable -> Valor }
-            Map<Integer, Map<String, String>> respuestasMap = respuestaRepository.findAll().stream()
-                    .collect(Collectors.groupingBy(
-                            r -> r.getParticipante().getIdParticipante(),
-                            Collectors.toMap(
-                                    r -> r.getVariable().getCodigoVariable(),
-                                    Respuesta::getValorIngresado,
-                                    (a, b) -> b // Keep latest key
-                            )));
+    public ResponseEntity<StreamingResponseBody> exportToCsv(ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            CsvOpciones csv, WebRequest request,
+            @RequestParam(required = false) String compress,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return descargar(ExportFormat.CSV, filtro, seleccion, request, compress, acceptEncoding, csv);
+    }
 
-            // --- 2. HEADER ROW ---
-            Row headerRow = sheet.createRow(0);
-            CellStyle headerStyle = createHeaderStyle(workbook);
+    @GetMapping("/excel-dicotomizado")
+    public ResponseEntity<StreamingResponseBody> exportExcelCoded(ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            WebRequest request) {
+        return descargar(ExportFormat.EXCEL_CODIFICADO, filtro, seleccion, request, null, null, null);
+    }
 
-            int colIdx = 0;
-            // Static headers
-            for (StaticColumn col : StaticColumn.values()) {
-                Cell cell = headerRow.createCell(colIdx++);
-                cell.setCellValue(col.name()); // Using ENUM NAME (e.g. CODIGO_PARTICIPANTE)
-                cell.setCellStyle(headerStyle);
-            }
-            // Variable headers
-            for (Variable v : variables) {
-                Cell cell = headerRow.createCell(colIdx++);
-                cell.setCellValue(v.getCodigoVariable()); // Using CODE for variable ID
-                cell.setCellStyle(headerStyle);
-            }
+    @GetMapping("/csv-dicotomizado")
+    public ResponseEntity<StreamingResponseBody> exportCsvCoded(ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            CsvOpciones csv, WebRequest request,
+            @RequestParam(required = false) String compress,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return descargar(ExportFormat.CSV_CODIFICADO, filtro, seleccion, request, compress, acceptEncoding, csv);
+    }
 
-            // --- 3. DATA ROWS ---
-            int rowIdx = 1;
-            for (Participante p : participantes) {
-                Row row = sheet.createRow(rowIdx++);
-                colIdx = 0;
-                Map<String, String> pRespuestas = respuestasMap.getOrDefault(p.getIdParticipante(), Map.of());
-
-                // Static Data
-                row.createCell(colIdx++).setCellValue(safe(p.getCodigoParticipante()));
-                // No más datos del participante aparte del código
-
-                // Dynamic Data
-                for (Variable v : variables) {
-                    Cell cell = row.createCell(colIdx++);
-                    String rawVal = pRespuestas.getOrDefault(v.getCodigoVariable(), "");
-                    setCellValueSmart(cell, rawVal, v);
-                }
-            }
+    @GetMapping("/csv-stata")
+    public ResponseEntity<StreamingResponseBody> exportToCsvStata(ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            CsvOpciones csv, WebRequest request,
+            @RequestParam(required = false) String compress,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return descargar(ExportFormat.CSV_STATA, filtro, seleccion, request, compress, acceptEncoding, csv);
+    }
 
-            workbook.write(baos);
+    /**
+     * Formato largo (tidy) para R / tidyverse: una fila por respuesta con
+     * participante, grupo, variable, sección, valor y valor codificado. Se
+     * escribe directo desde la lectura ordenada de las respuestas, sin
+     * pivotear, por lo que es el formato recomendado para estudios muy
+     * grandes.
+     */
+    @GetMapping("/csv-largo")
+    public ResponseEntity<StreamingResponseBody> exportToCsvLargo(ParticipanteFiltro filtro,
+            VariableSeleccion seleccion, CsvOpciones csv, WebRequest request,
+            @RequestParam(required = false) String compress,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return descargar(ExportFormat.CSV_LARGO, filtro, seleccion, request, compress, acceptEncoding, csv);
+    }
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"datos_completos.xlsx\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(baos.toByteArray());
+    /**
+     * Base completa en formato nativo de Stata (.dta 118) con tipos y
+     * etiquetas de valor.
+     */
+    @GetMapping("/stata")
+    public ResponseEntity<StreamingResponseBody> exportToStata(ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            WebRequest request) {
+        return descargar(ExportFormat.STATA_DTA, filtro, seleccion, request, null, null, null);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().build();
-        }
+    /**
+     * Base completa en Arrow IPC: {@code formato=feather} (por defecto) para
+     * un archivo que pandas / R pueden mapear en memoria, {@code stream} para
+     * leerla a medida que llega.
+     */
+    @GetMapping("/arrow")
+    public ResponseEntity<StreamingResponseBody> exportToArrow(ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            WebRequest request,
+            @RequestParam(defaultValue = "feather") String formato) {
+        ExportFormat arrow = switch (formato.trim().toLowerCase()) {
+            case "feather", "file" -> ExportFormat.FEATHER;
+            case "stream" -> ExportFormat.ARROW;
+            default -> throw new IllegalArgumentException(
+                    "Formato Arrow no soportado: " + formato + " (use feather o stream)");
+        };
+        return descargar(arrow, filtro, seleccion, request, null, null, null);
     }
 
-    @GetMapping("/csv")
+    /**
+     * Varios formatos en un solo ZIP generados desde una única lectura de la
+     * base, por ejemplo {@code formatos=csv,csv_codificado,excel}. Con
+     * {@code diccionario} (por defecto) se agregan la leyenda en PDF y el
+     * codebook CSV.
+     */
+    @GetMapping("/bundle")
+    public ResponseEntity<StreamingResponseBody> exportBundle(@RequestParam List<String> formatos,
+            ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            @RequestParam(defaultValue = "true") boolean diccionario) {
+        Set<ExportFormat> elegidos = new LinkedHashSet<>();
+        for (String formato : formatos)
+            elegidos.add(ExportFormat.parse(formato));
+        if (elegidos.isEmpty())
+            throw new IllegalArgumentException("Debe indicar al menos un formato");
+        for (ExportFormat formato : elegidos)
+            exportService.validarSeleccion(formato, seleccion);
 
-    public ResponseEntity<byte[]> exportToCsv() {
-        // LOG
         // LOG
         try {
             Usuario u = getCurrentUser();
             if (u != null) {
                 auditoriaService.registrarAccion(u, null, "EXPORTAR", "Base de Datos",
-                        "Exportó Base Completa (CSV)");
+                        "Exportó paquete " + elegidos + (filtro.isVacio() ? "" : " " + filtro)
+                                + (seleccion.isVacia() ? "" : " " + seleccion));
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("No se pudo registrar la auditoría de la exportación", e);
         }
 
-        List<Variable> variables = variableRepository.findAll().stream()
-                .sorted(Comparator
-                        .comparing(Variable::getOrdenEnunciado, Comparator.nullsLast(Comparator.naturalOrder()))
-                        .thenComparing(Variable::getCodigoVariable))
-                .collect(Collectors.toList());
-
-        List<Participante> participantes = participanteRepository.findAll();
-        Map<Integer, Map<String, String>> respuestasMap = respuestaRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        r -> r.getParticipante().getIdParticipante(),
-                        Collectors.toMap(
-                                r -> r.getVariable().getCodigoVariable(),
-                                Respuesta::getValorIngresado,
-                                (a, b) -> b)));
-
-        StringBuilder csv = new StringBuilder();
-
-        // Header
-        List<String> headers = new ArrayList<>();
-        for (StaticColumn col : StaticColumn.values())
-            headers.add(col.name());
-        for (Variable v : variables)
-            headers.add(v.getCodigoVariable());
-        csv.append(String.join(",", headers)).append("\n");
-
-        // Rows
-        for (Participante p : participantes) {
-            Map<String, String> pRespuestas = respuestasMap.getOrDefault(p.getIdParticipante(), Map.of());
-            List<String> cols = new ArrayList<>();
-
-            cols.add(escapeCsv(p.getCodigoParticipante()));
-            // No más datos del participante aparte del código
-
-            for (Variable v : variables) {
-                cols.add(escapeCsv(pRespuestas.getOrDefault(v.getCodigoVariable(), "")));
+        StreamingResponseBody body = out -> {
+            ZipOutputStream zip = new ZipOutputStream(out);
+            zip.setLevel(compressionLevel);
+            exportService.exportBundle(elegidos, filtro, seleccion, zip, new ExportProgress());
+            if (diccionario) {
+                for (DataDictionaryService.Formato formato : List.of(DataDictionaryService.Formato.PDF,
+                        DataDictionaryService.Formato.CSV)) {
+                    zip.putNextEntry(new ZipEntry(formato.getFileName()));
+                    zip.write(dataDictionaryService.get(formato).contenido());
+                    zip.closeEntry();
+                }
             }
-            csv.append(String.join(",", cols)).append("\n");
-        }
-
-        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+            zip.finish();
+            zip.flush();
+        };
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"datos_completos.csv\"")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(bytes);
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"datalab_exportacion.zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
     }
 
-    @GetMapping("/excel-dicotomizado")
-    public ResponseEntity<byte[]> exportExcelCoded() {
+    /**
+     * Un objeto JSON por participante (NDJSON) para ETL, en orden de
+     * id_participante. Cada línea trae {@code cursor}: si la transferencia se
+     * corta, se retoma pasando el cursor de la última línea recibida.
+     * {@code limite} acota la cantidad de participantes por respuesta.
+     */
+    @GetMapping("/ndjson")
+    public ResponseEntity<StreamingResponseBody> exportNdjson(ParticipanteFiltro filtro, VariableSeleccion seleccion,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String compress,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportCompression compresion = ExportCompression.negociar(compress, acceptEncoding);
+        int despuesDe = NdjsonCursor.decodificar(cursor);
+        if (limite != null && limite <= 0)
+            throw new IllegalArgumentException("El límite debe ser mayor que cero");
+        // Mismas variables que el CSV completo
+        exportService.validarSeleccion(ExportFormat.CSV, seleccion);
+
         // LOG
         try {
             Usuario u = getCurrentUser();
             if (u != null) {
                 auditoriaService.registrarAccion(u, null, "EXPORTAR", "Base de Datos",
-                        "Exportó Base Codificada (Excel)");
+                        "Exportó NDJSON" + (filtro.isVacio() ? "" : " " + filtro)
+                                + (seleccion.isVacia() ? "" : " " + seleccion)
+                                + (despuesDe > 0 ? " desde el participante " + despuesDe : ""));
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("No se pudo registrar la auditoría de la exportación", e);
         }
 
-        try (Workbook workbook = new XSSFWorkbook();
-                ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-            Sheet sheet = workbook.createSheet("Datos Codificados");
-
-            List<Variable> variables = getSafeVariables();
-            List<Participante> participantes = participanteRepository.findAll();
-
-            // Map: ParticipanteID -> { CodigoVariable -> Valor }
-            Map<Integer, Map<String, String>> respuestasMap = respuestaRepository.findAll().stream()
-                    .collect(Collectors.groupingBy(
-                            r -> r.getParticipante().getIdParticipante(),
-                            Collectors.toMap(
-                                    r -> r.getVariable().getCodigoVariable(),
-                                    Respuesta::getValorIngresado,
-                                    (a, b) -> b)));
-
-            // Pre-Calculate Coded Values to avoid double processing (needed for stats)
-            // Structure: ParticipanteID -> { CodeVar -> CodedVal }
-            Map<Integer, Map<String, String>> codedValues = new java.util.HashMap<>();
-            for (Participante p : participantes) {
-                Map<String, String> pRespuestas = respuestasMap.getOrDefault(p.getIdParticipante(), Map.of());
-                Map<String, String> pCoded = new java.util.HashMap<>();
-
-                // Static
-                pCoded.put("CODIGO_PARTICIPANTE", p.getCodigoParticipante());
-
-                for (Variable v : variables) {
-                    String raw = pRespuestas.getOrDefault(v.getCodigoVariable(), "");
-                    String coded = variableCodingService.encodeValue(v, raw);
-                    pCoded.put(v.getCodigoVariable(), coded);
-                }
-                codedValues.put(p.getIdParticipante(), pCoded);
-            }
-
-            // --- HEADER ROW (Row 0) ---
-            Row headerRow = sheet.createRow(0);
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            int colIdx = 0;
-
-            // Static Headers
-            for (StaticColumn col : StaticColumn.values()) {
-                Cell cell = headerRow.createCell(colIdx++);
-                cell.setCellValue(col.name());
-                cell.setCellStyle(headerStyle);
-            }
-            // Variable Headers
-            for (Variable v : variables) {
-                Cell cell = headerRow.createCell(colIdx++);
-                cell.setCellValue(v.getCodigoVariable());
-                cell.setCellStyle(headerStyle);
-            }
-
-            // --- SUMMARY ROWS (Rows 1, 2, 3) ---
-            // Row 1: Count "0"
-            // Row 2: Count "1" (or >0 for Ordinals?) - User asked for 0/1 counts.
-            // For ordinals (0,1,2,3), "1" count is specific. Maybe better to just count 0
-            // and 1 as requested?
-            // "Contadores 0/1/vacíos" -> I will count exact matches for 0 and 1, and empty.
-            Row rowCount0 = sheet.createRow(1);
-            Row rowCount1 = sheet.createRow(2);
-            Row rowCountEmpty = sheet.createRow(3);
-
-            rowCount0.createCell(0).setCellValue("Total '0'");
-            rowCount1.createCell(0).setCellValue("Total '1'");
-            rowCountEmpty.createCell(0).setCellValue("Vacíos/Nulos");
-
-            colIdx = 1; // start after header static col (assuming only 1 static col
-                        // CODIGO_PARTICIPANTE)
-            // Note: Static column has no 0/1 stats usually, just skip or empty.
-
-            for (Variable v : variables) {
-                long c0 = 0;
-                long c1 = 0;
-                long cEmpty = 0;
-
-                for (Participante p : participantes) {
-                    Map<String, String> vals = codedValues.get(p.getIdParticipante());
-                    String val = vals.get(v.getCodigoVariable());
-
-                    if (val == null || val.isEmpty())
-                        cEmpty++;
-                    else if (val.equals("0"))
-                        c0++;
-                    else if (val.equals("1"))
-                        c1++;
-                }
-
-                rowCount0.createCell(colIdx).setCellValue(c0);
-                rowCount1.createCell(colIdx).setCellValue(c1);
-                rowCountEmpty.createCell(colIdx).setCellValue(cEmpty);
-                colIdx++;
-            }
-
-            // --- DATA ROWS (Row 4+) ---
-            int rowIdx = 4;
-            for (Participante p : participantes) {
-                Row row = sheet.createRow(rowIdx++);
-                colIdx = 0;
-                Map<String, String> vals = codedValues.get(p.getIdParticipante());
-
-                // Static
-                row.createCell(colIdx++).setCellValue(vals.get("CODIGO_PARTICIPANTE"));
-
-                // Variables
-                for (Variable v : variables) {
-                    Cell cell = row.createCell(colIdx++);
-                    String val = vals.get(v.getCodigoVariable());
-                    // Try to store as number if possible for better excel handling
-                    try {
-                        if (val != null && !val.isEmpty()) {
-                            double d = Double.parseDouble(val);
-                            cell.setCellValue(d);
-                        } else {
-                            cell.setCellValue("");
-                        }
-                    } catch (NumberFormatException e) {
-                        cell.setCellValue(safe(val));
-                    }
-                }
-            }
-
-            workbook.write(baos);
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"datos_codificados.xlsx\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(baos.toByteArray());
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().build();
-        }
+        String fileName = "datos_completos.ndjson";
+        StreamingResponseBody body = out -> compresion.write(out, fileName, compressionLevel,
+                o -> exportService.writeNdjson(o, filtro, seleccion, despuesDe, limite, new ExportProgress()));
+        return conCompresion(ResponseEntity.ok(), compresion, fileName, "application/x-ndjson")
+                .body(body);
     }
 
-    @GetMapping("/csv-dicotomizado")
-    public ResponseEntity<byte[]> exportCsvCoded() {
+    /**
+     * Exportación incremental para sincronizaciones: bajas y participantes
+     * modificados desde {@code desde}. El encabezado X-Export-Cursor trae el
+     * valor de {@code desde} para la siguiente sincronización.
+     */
+    @GetMapping("/cambios")
+    public ResponseEntity<StreamingResponseBody> exportCambios(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(defaultValue = "NDJSON") ExportService.CambiosFormato formato,
+            @RequestParam(required = false) String compress,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportCompression compresion = ExportCompression.negociar(compress, acceptEncoding);
         // LOG
         try {
             Usuario u = getCurrentUser();
             if (u != null) {
                 auditoriaService.registrarAccion(u, null, "EXPORTAR", "Base de Datos",
-                        "Exportó Base Codificada (CSV)");
+                        "Exportó cambios desde " + desde + " (" + formato + ")");
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("No se pudo registrar la auditoría de la exportación", e);
         }
 
-        List<Variable> variables = getSafeVariables();
-        List<Participante> participantes = participanteRepository.findAll();
-        Map<Integer, Map<String, String>> respuestasMap = respuestaRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        r -> r.getParticipante().getIdParticipante(),
-                        Collectors.toMap(
-                                r -> r.getVariable().getCodigoVariable(),
-                                Respuesta::getValorIngresado,
-                                (a, b) -> b)));
-
-        StringBuilder csv = new StringBuilder();
-
-        // Header
-        List<String> headers = new ArrayList<>();
-        for (StaticColumn col : StaticColumn.values())
-            headers.add(col.name());
-        for (Variable v : variables)
-            headers.add(v.getCodigoVariable());
-        csv.append(String.join(",", headers)).append("\n");
-
-        for (Participante p : participantes) {
-            List<String> cols = new ArrayList<>();
-            cols.add(escapeCsv(p.getCodigoParticipante()));
-
-            Map<String, String> pRespuestas = respuestasMap.getOrDefault(p.getIdParticipante(), Map.of());
-
-            for (Variable v : variables) {
-                String raw = pRespuestas.getOrDefault(v.getCodigoVariable(), "");
-                String coded = variableCodingService.encodeValue(v, raw);
-                cols.add(escapeCsv(coded));
-            }
-            csv.append(String.join(",", cols)).append("\n");
-        }
-
-        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"datos_codificados.csv\"")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(bytes);
+        // Se calcula antes de leer para no saltarse cambios hechos durante la exportación
+        LocalDateTime cursor = exportService.cursorCambios();
+        boolean ndjson = formato == ExportService.CambiosFormato.NDJSON;
+        String fileName = "cambios." + (ndjson ? "ndjson" : "csv");
+
+        StreamingResponseBody body = out -> compresion.write(out, fileName, compressionLevel,
+                o -> exportService.writeCambios(o, desde, formato));
+        return conCompresion(ResponseEntity.ok(), compresion, fileName,
+                ndjson ? "application/x-ndjson" : "text/csv")
+                .header(HEADER_CURSOR, cursor.toString())
+                .body(body);
     }
 
-    public ResponseEntity<byte[]> exportToCsvStata() {
-        // LOG
+    /**
+     * Descarga de la base completa, o de los participantes que cumplen
+     * {@code filtro} y las variables de {@code seleccion}, con ETag por
+     * versión de datos, filtro, selección y opciones CSV ({@code csv}, null
+     * fuera de los formatos CSV). Si el cliente
+     * ya tiene la versión actual responde 304; si está en caché se sirve el
+     * archivo sin tocar la base; si no, se genera y se guarda en la misma
+     * pasada.
+     *
+     * Sin compresión, el archivo en caché se envía con soporte de Range para
+     * retomar descargas interrumpidas. Un pedido con Range se responde sin
+     * comprimir salvo que {@code compress} lo pida explícitamente, ya que los
+     * rangos de una respuesta gzip generada al vuelo no son reproducibles.
+     */
+    private ResponseEntity<StreamingResponseBody> descargar(ExportFormat formato, ParticipanteFiltro filtro,
+            VariableSeleccion seleccion, WebRequest request, String compress, String acceptEncoding,
+            CsvOpciones csv) {
+        boolean explicita = compress != null && !compress.isBlank();
+        ExportCompression compresion = formato.isTexto()
+                && (explicita || request.getHeader(HttpHeaders.RANGE) == null)
+                        ? ExportCompression.negociar(compress, acceptEncoding)
+                        : ExportCompression.NONE;
+        CsvOpciones opciones = csv != null ? csv : CsvOpciones.porDefecto();
+        exportService.validarSeleccion(formato, seleccion);
+        long version = studyDataVersion.current();
+        String clave = filtro.clave() + seleccion.clave() + opciones.clave();
+        // El ETag es el de la generación en caché o el de la que se va a publicar
+        ExportCache.Archivo cached = exportCache.find(formato, clave, version).orElse(null);
+        String generacion = cached != null ? cached.generacion() : exportCache.nuevaGeneracion();
+        String etag = compresion.etag(exportCache.etag(formato, clave, version, generacion));
+        if (request.checkNotModified(etag)) {
+            return null; // 304 Not Modified
+        }
+
         // LOG
         try {
             Usuario u = getCurrentUser();
             if (u != null) {
                 auditoriaService.registrarAccion(u, null, "EXPORTAR", "Base de Datos",
-                        "Exportó Base Completa (CSV STATA)");
+                        "Exportó " + formato.getDescripcion() + (filtro.isVacio() ? "" : " " + filtro)
+                                + (seleccion.isVacia() ? "" : " " + seleccion));
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("No se pudo registrar la auditoría de la exportación", e);
         }
 
-        List<Variable> variables = variableRepository.findAll().stream()
-                .sorted(Comparator
-                        .comparing(Variable::getOrdenEnunciado, Comparator.nullsLast(Comparator.naturalOrder()))
-                        .thenComparing(Variable::getCodigoVariable))
-                .collect(Collectors.toList());
-
-        List<Participante> participantes = participanteRepository.findAll();
-        Map<Integer, Map<String, String>> respuestasMap = respuestaRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        r -> r.getParticipante().getIdParticipante(),
-                        Collectors.toMap(
-                                r -> r.getVariable().getCodigoVariable(),
-                                Respuesta::getValorIngresado,
-                                (a, b) -> b)));
-
-        StringBuilder csv = new StringBuilder();
-
-        // Header
-        List<String> headers = new ArrayList<>();
-        for (StaticColumn col : StaticColumn.values())
-            headers.add(col.name());
-        for (Variable v : variables)
-            headers.add(v.getCodigoVariable());
-        csv.append(String.join(",", headers)).append("\n");
-
-        // Rows
-        for (Participante p : participantes) {
-            Map<String, String> pRespuestas = respuestasMap.getOrDefault(p.getIdParticipante(), Map.of());
-            List<String> cols = new ArrayList<>();
-
-            cols.add(escapeCsv(p.getCodigoParticipante()));
-            // No más datos del participante aparte del código
-
-            for (Variable v : variables) {
-                String rawVal = pRespuestas.getOrDefault(v.getCodigoVariable(), "");
-                // STATA COMPATIBILITY: Force dot as decimal separator for numbers
-                if (v.getTipoDato() != null && v.getTipoDato().toLowerCase().contains("numero") && rawVal != null) {
-                    rawVal = rawVal.replace(",", ".");
-                }
-                cols.add(escapeCsv(rawVal));
-            }
-            csv.append(String.join(",", cols)).append("\n");
+        if (cached != null && compresion == ExportCompression.NONE) {
+            if (enviarArchivo(formato, filtro, cached, request, encabezados(formato, compresion, etag)))
+                return null;
+            // Se descartó antes de leerlo: se genera de nuevo con otra generación
+            cached = null;
+            generacion = exportCache.nuevaGeneracion();
+            etag = compresion.etag(exportCache.etag(formato, clave, version, generacion));
         }
 
-        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"datos_stata.csv\"")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(bytes);
+        // El caché guarda la versión sin comprimir; la compresión se aplica al enviar
+        ExportCache.Archivo archivo = cached;
+        String nueva = cached != null ? exportCache.nuevaGeneracion() : generacion;
+        ExportWriter generar = out -> {
+            ExportCache.Lectura lectura = leerCache(archivo);
+            if (lectura == null) {
+                exportCache.writeThrough(formato, clave, version, nueva, out,
+                        o -> exportService.export(formato, filtro, seleccion, opciones, o, new ExportProgress()));
+                return;
+            }
+            try (lectura; InputStream in = Files.newInputStream(lectura.getPath())) {
+                exportMetrics.medicion(formato.name(), filtro).origen(ExportMetrics.ORIGEN_CACHE)
+                        .medir(out, new ExportProgress(), in::transferTo);
+            }
+        };
+        StreamingResponseBody body = out -> compresion.write(out, formato.getFileName(), compressionLevel, generar);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().headers(encabezados(formato, compresion, etag));
+        // El archivo queda completo en caché aunque el cliente corte: el reintento puede pedir un rango
+        if (compresion == ExportCompression.NONE && exportCache.isEnabled())
+            builder.header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        return builder.body(body);
     }
 
-    private String safe(String s) {
-        return s == null ? "" : s;
+    private HttpHeaders encabezados(ExportFormat formato, ExportCompression compresion, String etag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate());
+        if (formato.isTexto())
+            builder.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        return conCompresion(builder, compresion, formato.getFileName(), formato.getContentType()).build()
+                .getHeaders();
     }
 
-    private String escapeCsv(String val) {
-        if (val == null)
-            return "";
-        String escaped = val.replace("\"", "\"\"");
-        if (escaped.contains(",") || escaped.contains("\n") || escaped.contains("\"")) {
-            return "\"" + escaped + "\"";
+    /**
+     * Envía el archivo en caché directamente en la respuesta (con Range y
+     * sendfile). Devuelve false si el archivo desapareció antes de empezar,
+     * para que se genere de nuevo.
+     */
+    private boolean enviarArchivo(ExportFormat formato, ParticipanteFiltro filtro, ExportCache.Archivo archivo,
+            WebRequest request, HttpHeaders headers) {
+        ServletWebRequest servlet = (ServletWebRequest) request;
+        ExportProgress escritos = new ExportProgress();
+        try (ExportCache.Lectura lectura = exportCache.leer(archivo)) {
+            exportMetrics.medicion(formato.name(), filtro).origen(ExportMetrics.ORIGEN_CACHE)
+                    .medir(new ExportProgress(), escritos, () -> exportRangeResponder.enviar(servlet.getRequest(),
+                            servlet.getResponse(), lectura, headers, escritos));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false; // reemplazada por una versión más nueva entre la consulta y la lectura
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return escaped;
     }
 
-    private void setCellValueSmart(Cell cell, String rawVal, Variable v) {
-        if (rawVal == null || rawVal.isEmpty()) {
-            cell.setCellValue("");
-            return;
-        }
-
-        if (v.getTipoDato() != null && v.getTipoDato().toLowerCase().contains("numero")) {
-            try {
-                String clean = rawVal.trim().replace(",", ".");
-                double d = Double.parseDouble(clean);
-                cell.setCellValue(d);
-                return;
-            } catch (NumberFormatException e) {
-                // Fallback
-            }
-        }
-        cell.setCellValue(rawVal);
+    /**
+     * Encabezados de nombre de archivo, tipo y codificación según la
+     * compresión elegida.
+     */
+    private ResponseEntity.BodyBuilder conCompresion(ResponseEntity.BodyBuilder builder,
+            ExportCompression compresion, String fileName, String contentType) {
+        if (compresion == ExportCompression.GZIP)
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return builder
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + compresion.fileName(fileName) + "\"")
+                .contentType(MediaType.parseMediaType(
+                        compresion == ExportCompression.ZIP ? "application/zip" : contentType));
     }
 
-    private CellStyle createHeaderStyle(Workbook wb) {
-        CellStyle style = wb.createCellStyle();
-        Font font = wb.createFont();
-        font.setBold(true);
-        font.setColor(IndexedColors.WHITE.getIndex());
-        style.setFont(font);
-        style.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        return style;
+    private ExportCache.Lectura leerCache(ExportCache.Archivo cached) throws IOException {
+        if (cached == null)
+            return null;
+        try {
+            return exportCache.leer(cached);
+        } catch (NoSuchFileException e) {
+            return null; // reemplazada por una versión más nueva entre la consulta y la lectura
+        }
     }
 
-    /**
-     * Obtiene variables de forma determinista, eliminando duplicados y
-     * excluyendo campos sensibles que no deben exportarse.
-     */
-    private List<Variable> getSafeVariables() {
-        // Campos sensibles a excluir (minúsculas)
-        var sensitiveCodes = new LinkedHashSet<>(List.of(
-                "nombre",
-                "telefono",
-                "nombre_completo",
-                "correo_electronico",
-                "direccion"));
-
-        return variableRepository.findAll().stream()
-                .sorted(Comparator
-                        .comparing(Variable::getOrdenEnunciado, Comparator.nullsLast(Comparator.naturalOrder()))
-                        .thenComparing(Variable::getCodigoVariable))
-                // Elimina duplicados por código manteniendo el primero
-                .collect(Collectors.toMap(
-                        v -> v.getCodigoVariable() != null ? v.getCodigoVariable().toLowerCase() : "",
-                        v -> v,
-                        (a, b) -> a,
-                        LinkedHashMap::new))
-                .values().stream()
-                // Excluir sensibles y columnas estáticas
-                .filter(v -> {
-                    String code = v.getCodigoVariable();
-                    if (code == null)
-                        return false;
-                    String lower = code.toLowerCase();
-                    return !sensitiveCodes.contains(lower)
-                            && !lower.equals(StaticColumn.CODIGO_PARTICIPANTE.name().toLowerCase());
-                })
-                .collect(Collectors.toList());
+    private String safe(String s) {
+        return s == null ? "" : s;
     }
 }
@@ -0,0 +1,102 @@
+package com.proyecto.datalab.web.controller;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.proyecto.datalab.dto.ExportJobRequest;
+import com.proyecto.datalab.entity.Usuario;
+import com.proyecto.datalab.enums.EstadoExportJob;
+import com.proyecto.datalab.service.export.ExportJob;
+import com.proyecto.datalab.service.export.ExportJobService;
+import com.proyecto.datalab.web.dto.ExportJobDTO;
+import com.proyecto.datalab.web.dto.common.ApiResponse;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Exportaciones en segundo plano: crear, consultar avance, cancelar y
+ * descargar el archivo generado.
+ */
+@RestController
+@RequestMapping("/api/export/jobs")
+@RequiredArgsConstructor
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<ExportJobDTO>> crear(@Valid @RequestBody ExportJobRequest request,
+            @AuthenticationPrincipal Usuario usuario) {
+        if (usuario == null)
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Debe iniciar sesión"));
+        try {
+            ExportJob job = exportJobService.submit(request.getFormato(), request.getFiltro(),
+                    request.getSeleccion(), request.getCsv(), usuario);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success("Exportación en cola", ExportJobDTO.from(job)));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ApiResponse.error("Hay demasiadas exportaciones en curso, intente más tarde"));
+        }
+    }
+
+    // Solo los jobs propios (todos para un administrador)
+    @GetMapping
+    public ApiResponse<List<ExportJobDTO>> listar(@AuthenticationPrincipal Usuario usuario) {
+        return ApiResponse.success(exportJobService.findAll(usuario).stream().map(ExportJobDTO::from).toList());
+    }
+
+    // Un job ajeno responde 404, igual que uno inexistente
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<ExportJobDTO>> obtener(@PathVariable String id,
+            @AuthenticationPrincipal Usuario usuario) {
+        return exportJobService.find(id, usuario)
+                .map(job -> ResponseEntity.ok(ApiResponse.success(ExportJobDTO.from(job))))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error("Exportación no encontrada")));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> cancelar(@PathVariable String id,
+            @AuthenticationPrincipal Usuario usuario) {
+        if (exportJobService.find(id, usuario).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Exportación no encontrada"));
+        }
+        if (!exportJobService.cancel(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error("La exportación ya terminó"));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Cancelación solicitada", null));
+    }
+
+    @GetMapping("/{id}/archivo")
+    public ResponseEntity<Resource> descargar(@PathVariable String id, @AuthenticationPrincipal Usuario usuario) {
+        ExportJob job = exportJobService.find(id, usuario).orElse(null);
+        if (job == null)
+            return ResponseEntity.notFound().build();
+        if (job.getEstado() != EstadoExportJob.COMPLETADO || job.getArchivo() == null)
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + job.getFormato().getFileName() + "\"")
+                .contentType(MediaType.parseMediaType(job.getFormato().getContentType()))
+                .body(new FileSystemResource(job.getArchivo()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.proyecto.datalab.web.dto;
+
+import java.time.LocalDateTime;
+
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.dto.VariableSeleccion;
+import com.proyecto.datalab.enums.EstadoExportJob;
+import com.proyecto.datalab.service.export.ExportFormat;
+import com.proyecto.datalab.service.export.ExportJob;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ExportJobDTO {
+    private String id;
+    private ExportFormat formato;
+    private ParticipanteFiltro filtro;
+    private VariableSeleccion seleccion;
+    private EstadoExportJob estado;
+    private long filasEscritas;
+    private long totalFilas;
+    private long bytesEscritos;
+    private Long etaSegundos;
+    private LocalDateTime creado;
+    private LocalDateTime iniciado;
+    private LocalDateTime finalizado;
+    private String error;
+
+    public static ExportJobDTO from(ExportJob job) {
+        return ExportJobDTO.builder()
+                .id(job.getId())
+                .formato(job.getFormato())
+                .filtro(job.getFiltro())
+                .seleccion(job.getSeleccion())
+                .estado(job.getEstado())
+                .filasEscritas(job.getProgress().getFilas())
+                .totalFilas(job.getProgress().getTotalFilas())
+                .bytesEscritos(job.getProgress().getBytes())
+                .etaSegundos(job.getEtaSegundos())
+                .creado(job.getCreado())
+                .iniciado(job.getIniciado())
+                .finalizado(job.getFinalizado())
+                .error(job.getError())
+                .build();
+    }
+}
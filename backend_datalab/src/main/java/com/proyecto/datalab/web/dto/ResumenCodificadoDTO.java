@@ -0,0 +1,17 @@
+package com.proyecto.datalab.web.dto;
+
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ResumenCodificadoDTO {
+    private String codigoVariable;
+    private long total0;
+    private long total1;
+    private long vacios;
+    // Solo variables categóricas/ordinales: código -> cantidad ("otros" = sin código)
+    private Map<String, Long> frecuencias;
+}
@@ -0,0 +1,179 @@
+package com.proyecto.datalab.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.proyecto.datalab.service.export.CountingOutputStream;
+import com.proyecto.datalab.service.export.CsvWriter;
+import com.proyecto.datalab.service.export.ExportProgress;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Microbenchmark del costo por celda de {@link CsvWriter} frente al camino
+ * anterior (escapeCsv con replace/contains + BufferedWriter sobre
+ * OutputStreamWriter), sin base de datos. Corre con el perfil Maven
+ * {@code benchmark} junto a {@link ExportBenchmark}; la cantidad de celdas
+ * por medición se ajusta con {@code benchmark.csv.celdas}.
+ *
+ * Para cada tipo de contenido (números y opciones cortas, texto con comas y
+ * comillas, texto con acentos) reporta la mediana de nanosegundos y bytes
+ * asignados por celda. El reporte queda junto al de {@link ExportBenchmark}
+ * como csv-writer-benchmark.json.
+ */
+@Slf4j
+class CsvWriterBenchmark {
+
+    private static final int COLUMNAS = 100;
+    private static final int CALENTAMIENTO = 5;
+    private static final int MEDICIONES = 10;
+
+    @FunctionalInterface
+    private interface Escritor {
+        void escribir(OutputStream out, String[] celdas, int total) throws IOException;
+    }
+
+    private record Medida(double nsPorCelda, double bytesAsignadosPorCelda, long bytesEscritos) {
+    }
+
+    @Test
+    void costoPorCelda() throws Exception {
+        int celdas = Integer.getInteger("benchmark.csv.celdas", 2_000_000);
+        Map<String, String[]> contenidos = new LinkedHashMap<>();
+        contenidos.put("simple", contenido(new Random(1), false, false));
+        contenidos.put("comillas", contenido(new Random(2), true, false));
+        contenidos.put("acentos", contenido(new Random(3), false, true));
+
+        Map<String, Escritor> escritores = new LinkedHashMap<>();
+        escritores.put("legado", CsvWriterBenchmark::escribirLegado);
+        escritores.put("csv_writer", CsvWriterBenchmark::escribirCsvWriter);
+
+        List<Map<String, Object>> resultados = new ArrayList<>();
+        for (Map.Entry<String, String[]> contenido : contenidos.entrySet()) {
+            long bytesReferencia = -1;
+            for (Map.Entry<String, Escritor> escritor : escritores.entrySet()) {
+                for (int i = 0; i < CALENTAMIENTO; i++)
+                    medir(escritor.getValue(), contenido.getValue(), celdas);
+                List<Medida> medidas = new ArrayList<>();
+                for (int i = 0; i < MEDICIONES; i++)
+                    medidas.add(medir(escritor.getValue(), contenido.getValue(), celdas));
+
+                // Mismo contenido, misma salida: los bytes escritos deben coincidir
+                long bytes = medidas.get(0).bytesEscritos();
+                if (bytesReferencia < 0)
+                    bytesReferencia = bytes;
+                assertEquals(bytesReferencia, bytes, "Salida distinta en " + escritor.getKey());
+
+                Map<String, Object> resultado = new LinkedHashMap<>();
+                resultado.put("contenido", contenido.getKey());
+                resultado.put("escritor", escritor.getKey());
+                resultado.put("celdas", celdas);
+                resultado.put("ns_por_celda", mediana(medidas.stream().mapToDouble(Medida::nsPorCelda).toArray()));
+                resultado.put("bytes_asignados_por_celda",
+                        mediana(medidas.stream().mapToDouble(Medida::bytesAsignadosPorCelda).toArray()));
+                resultado.put("bytes_escritos", bytes);
+                log.info("{}", resultado);
+                resultados.add(resultado);
+            }
+        }
+
+        Map<String, Object> informe = new LinkedHashMap<>();
+        informe.put("fecha", LocalDateTime.now().toString());
+        informe.put("java", System.getProperty("java.version"));
+        informe.put("resultados", resultados);
+        Path archivo = Path.of(System.getProperty("benchmark.reporte", "target/benchmark/export-benchmark.json"))
+                .resolveSibling("csv-writer-benchmark.json");
+        Files.createDirectories(archivo.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(archivo.toFile(), informe);
+        log.info("Reporte del microbenchmark CSV en {}", archivo.toAbsolutePath());
+    }
+
+    // Celdas de ejemplo; se recorren en ciclo para escribir la cantidad pedida
+    private static String[] contenido(Random random, boolean comillas, boolean acentos) {
+        String[] opciones = { "Si", "No", "Fonasa", "Isapre", "Basico", "Superior" };
+        String[] celdas = new String[10_000];
+        for (int i = 0; i < celdas.length; i++) {
+            if (i % 7 == 0)
+                celdas[i] = null;
+            else if (comillas)
+                celdas[i] = "Respuesta " + i + ", con \"comillas\" y texto";
+            else if (acentos)
+                celdas[i] = "Exposición año " + i + " señalización";
+            else
+                celdas[i] = i % 2 == 0 ? String.valueOf(random.nextInt(1000))
+                        : opciones[random.nextInt(opciones.length)];
+        }
+        return celdas;
+    }
+
+    private static Medida medir(Escritor escritor, String[] celdas, int total) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ExportProgress escritos = new ExportProgress();
+        OutputStream out = new CountingOutputStream(OutputStream.nullOutputStream(), escritos);
+        long asignadoAntes = threads.getCurrentThreadAllocatedBytes();
+        long inicio = System.nanoTime();
+        escritor.escribir(out, celdas, total);
+        long nanos = System.nanoTime() - inicio;
+        long asignado = threads.getCurrentThreadAllocatedBytes() - asignadoAntes;
+        return new Medida((double) nanos / total, (double) asignado / total, escritos.getBytes());
+    }
+
+    private static void escribirCsvWriter(OutputStream out, String[] celdas, int total) throws IOException {
+        CsvWriter csv = new CsvWriter(out);
+        for (int i = 0; i < total; i++) {
+            csv.campo(celdas[i % celdas.length]);
+            if ((i + 1) % COLUMNAS == 0)
+                csv.finFila();
+        }
+        csv.flush();
+    }
+
+    // Lo que hacía ExportService antes de CsvWriter
+    private static void escribirLegado(OutputStream out, String[] celdas, int total) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        for (int i = 0; i < total; i++) {
+            if (i % COLUMNAS != 0)
+                writer.write(',');
+            writer.write(escapeCsv(celdas[i % celdas.length]));
+            if ((i + 1) % COLUMNAS == 0)
+                writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static String escapeCsv(String val) {
+        if (val == null)
+            return "";
+        String escaped = val.replace("\"", "\"\"");
+        if (escaped.contains(",") || escaped.contains("\n") || escaped.contains("\"")) {
+            return "\"" + escaped + "\"";
+        }
+        return escaped;
+    }
+
+    private static double mediana(double[] valores) {
+        Arrays.sort(valores);
+        return Math.round(valores[valores.length / 2] * 100) / 100.0;
+    }
+}
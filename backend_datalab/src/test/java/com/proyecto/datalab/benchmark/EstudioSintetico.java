@@ -0,0 +1,245 @@
+package com.proyecto.datalab.benchmark;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proyecto.datalab.entity.Rol;
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.enums.EstadoFicha;
+import com.proyecto.datalab.enums.GrupoParticipante;
+import com.proyecto.datalab.service.VariableCodingService;
+
+/**
+ * Carga en la base un estudio sintético de {@code participantes} ×
+ * {@code variables}, determinista según la semilla. Las variables mezclan
+ * los tipos del CRF real (selección, número, decimal, fecha y texto, más
+ * edad, imc y campos sensibles) y los textos incluyen comas, comillas y
+ * acentos para ejercitar el escapado. Las respuestas se guardan con su
+ * valor codificado y huella, como al escribirlas desde la aplicación.
+ *
+ * Se inserta por JDBC en lotes, sin pasar por Hibernate, para que la carga
+ * no domine el tiempo de la corrida.
+ */
+class EstudioSintetico {
+
+    private static final int LOTE = 5000;
+
+    private static final String[][] OPCIONES = {
+            { "Si", "No" },
+            { "Hombre", "Mujer" },
+            { "Basico", "Medio", "Superior" },
+            { "Fonasa", "Isapre", "Capredena / Dipreca", "Sin prevision", "Otra" } };
+
+    private static final String[] SENSIBLES = { "nombre_completo", "telefono", "direccion" };
+
+    private static final String SQL_USUARIO = "INSERT INTO Usuario (id_rol, nombre_completo, correo, contrasenia, "
+            + "estado, fecha_creacion) SELECT id_rol, ?, ?, ?, 'ACTIVO', ? FROM Rol WHERE nombre_rol = ?";
+
+    private static final String SQL_VARIABLE = "INSERT INTO Variable (enunciado, codigo_variable, tipo_dato, "
+            + "opciones, aplica_a, seccion, orden_enunciado, es_obligatoria) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_PARTICIPANTE = "INSERT INTO Participante (id_reclutador, codigo_participante, "
+            + "nombre_completo, telefono, direccion, grupo, estado_ficha, fecha_inclusion, fecha_modificacion) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_RESPUESTA = "INSERT INTO Respuesta (id_participante, id_variable, "
+            + "valor_ingresado, valor_codificado, huella_codificacion, fecha_modificacion) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Tamaño de lo generado.
+     */
+    record Resumen(int participantes, int variables, long respuestas, long cargaMs) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VariableCodingService variableCodingService;
+    private final int participantes;
+    private final int variables;
+    private final double completitud;
+    private final Random random;
+
+    EstudioSintetico(JdbcTemplate jdbcTemplate, VariableCodingService variableCodingService, int participantes,
+            int variables, double completitud, long semilla) {
+        if (participantes <= 0 || variables <= 0)
+            throw new IllegalArgumentException("El estudio necesita al menos un participante y una variable");
+        if (completitud <= 0 || completitud > 1)
+            throw new IllegalArgumentException("La completitud debe estar entre 0 (exclusivo) y 1");
+        this.jdbcTemplate = jdbcTemplate;
+        this.variableCodingService = variableCodingService;
+        this.participantes = participantes;
+        this.variables = variables;
+        this.completitud = completitud;
+        this.random = new Random(semilla);
+    }
+
+    /**
+     * Genera el estudio. Lanza IllegalStateException si la base ya tiene
+     * variables o participantes, para no mezclarlo con datos reales.
+     */
+    Resumen generar() {
+        Long existentes = jdbcTemplate.queryForObject(
+                "SELECT (SELECT COUNT(*) FROM Variable) + (SELECT COUNT(*) FROM Participante)", Long.class);
+        if (existentes != null && existentes > 0)
+            throw new IllegalStateException("La base del benchmark debe estar vacía (use una base dedicada)");
+
+        long inicio = System.nanoTime();
+        LocalDateTime ahora = LocalDateTime.now();
+        int idReclutador = crearReclutador(ahora);
+        List<Variable> catalogo = crearVariables();
+        List<Integer> idParticipantes = crearParticipantes(idReclutador, ahora);
+        long respuestas = crearRespuestas(catalogo, idParticipantes, ahora);
+        return new Resumen(idParticipantes.size(), catalogo.size(), respuestas,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private int crearReclutador(LocalDateTime ahora) {
+        jdbcTemplate.update(SQL_USUARIO, "Reclutador Benchmark", "benchmark@datalab.local", "-",
+                Timestamp.valueOf(ahora), Rol.INVESTIGADOR_RECLUTA);
+        return jdbcTemplate.queryForObject("SELECT id_usuario FROM Usuario WHERE correo = ?", Integer.class,
+                "benchmark@datalab.local");
+    }
+
+    private List<Variable> crearVariables() {
+        List<Variable> catalogo = new ArrayList<>(variables);
+        for (int i = 0; i < variables; i++)
+            catalogo.add(variable(i));
+
+        List<Object[]> filas = new ArrayList<>(catalogo.size());
+        for (Variable v : catalogo) {
+            filas.add(new Object[] { v.getEnunciado(), v.getCodigoVariable(), v.getTipoDato(), v.getOpciones(),
+                    v.getAplicaA(), v.getSeccion(), v.getOrdenEnunciado(), v.isEsObligatoria() });
+        }
+        jdbcTemplate.batchUpdate(SQL_VARIABLE, filas);
+
+        // Ids asignados por la base, en el mismo orden de inserción
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT id_variable FROM Variable ORDER BY id_variable",
+                Integer.class);
+        for (int i = 0; i < catalogo.size(); i++)
+            catalogo.get(i).setIdVariable(ids.get(i));
+        return catalogo;
+    }
+
+    // Reparto aproximado del CRF real: la mitad categóricas, el resto números, fechas y texto libre
+    private Variable variable(int i) {
+        Variable v = new Variable();
+        v.setAplicaA(i % 7 == 6 ? "Caso" : "Ambos");
+        v.setSeccion(String.format("Sección %02d", i / 25 + 1));
+        v.setOrdenEnunciado(i + 1);
+        v.setEsObligatoria(i % 5 == 0);
+        if (i < SENSIBLES.length) {
+            v.setCodigoVariable(SENSIBLES[i]);
+            v.setTipoDato("Texto");
+        } else if (i == SENSIBLES.length) {
+            v.setCodigoVariable("edad");
+            v.setTipoDato("Numero");
+        } else if (i == SENSIBLES.length + 1) {
+            v.setCodigoVariable("imc");
+            v.setTipoDato("Decimal");
+        } else {
+            v.setCodigoVariable(String.format("var_%04d", i));
+            switch (i % 10) {
+                case 0, 1, 2, 3, 4 -> {
+                    v.setTipoDato("SeleccionUnica");
+                    v.setOpciones(String.join(",", OPCIONES[i % OPCIONES.length]));
+                }
+                case 5, 6 -> v.setTipoDato("Numero");
+                case 7 -> v.setTipoDato("Decimal");
+                case 8 -> v.setTipoDato("Fecha");
+                default -> v.setTipoDato("Texto");
+            }
+        }
+        v.setEnunciado("Pregunta " + (i + 1) + " (" + v.getCodigoVariable() + ")");
+        return v;
+    }
+
+    private List<Integer> crearParticipantes(int idReclutador, LocalDateTime ahora) {
+        GrupoParticipante[] grupos = GrupoParticipante.values();
+        EstadoFicha[] estados = EstadoFicha.values();
+        LocalDate primeraInclusion = ahora.toLocalDate().minusYears(3);
+        Timestamp modificacion = Timestamp.valueOf(ahora);
+
+        List<Object[]> lote = new ArrayList<>(LOTE);
+        for (int i = 1; i <= participantes; i++) {
+            lote.add(new Object[] { idReclutador, String.format("P%06d", i), "Participante Sintético " + i,
+                    String.format("+569%08d", i), "Calle " + i + ", Depto. " + (i % 40),
+                    grupos[i % grupos.length].name(), estados[random.nextInt(estados.length)].name(),
+                    primeraInclusion.plusDays(random.nextInt(3 * 365)), modificacion });
+            if (lote.size() == LOTE) {
+                jdbcTemplate.batchUpdate(SQL_PARTICIPANTE, lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty())
+            jdbcTemplate.batchUpdate(SQL_PARTICIPANTE, lote);
+        return jdbcTemplate.queryForList("SELECT id_participante FROM Participante ORDER BY id_participante",
+                Integer.class);
+    }
+
+    private long crearRespuestas(List<Variable> catalogo, List<Integer> idParticipantes, LocalDateTime ahora) {
+        int[] huellas = new int[catalogo.size()];
+        for (int col = 0; col < huellas.length; col++)
+            huellas[col] = variableCodingService.huella(catalogo.get(col));
+        Timestamp modificacion = Timestamp.valueOf(ahora);
+
+        long total = 0;
+        List<Object[]> lote = new ArrayList<>(LOTE);
+        for (Integer idParticipante : idParticipantes) {
+            for (int col = 0; col < catalogo.size(); col++) {
+                if (random.nextDouble() >= completitud)
+                    continue;
+                Variable v = catalogo.get(col);
+                String valor = valor(v);
+                lote.add(new Object[] { idParticipante, v.getIdVariable(), valor,
+                        variableCodingService.encodeValue(v, valor), huellas[col], modificacion });
+                if (lote.size() == LOTE) {
+                    jdbcTemplate.batchUpdate(SQL_RESPUESTA, lote);
+                    total += lote.size();
+                    lote.clear();
+                }
+            }
+        }
+        if (!lote.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_RESPUESTA, lote);
+            total += lote.size();
+        }
+        return total;
+    }
+
+    private String valor(Variable v) {
+        String codigo = v.getCodigoVariable();
+        if (codigo.equals("edad"))
+            return String.valueOf(18 + random.nextInt(73));
+        if (codigo.equals("imc")) {
+            // Algunos con coma decimal, como se ingresan en el formulario
+            String imc = String.format(Locale.ROOT, "%.1f", 15 + random.nextDouble() * 25);
+            return random.nextInt(4) == 0 ? imc.replace('.', ',') : imc;
+        }
+        if (v.getOpciones() != null) {
+            String[] opciones = v.getOpciones().split(",");
+            String opcion = opciones[random.nextInt(opciones.length)];
+            return random.nextInt(10) == 0 ? opcion.toLowerCase() : opcion;
+        }
+        return switch (v.getTipoDato()) {
+            case "Numero" -> String.valueOf(random.nextInt(1000));
+            case "Decimal" -> String.format(Locale.ROOT, "%.2f", random.nextDouble() * 100);
+            case "Fecha" -> LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000)).toString();
+            default -> texto();
+        };
+    }
+
+    private String texto() {
+        return switch (random.nextInt(5)) {
+            case 0 -> "Respuesta con coma, y \"comillas\"";
+            case 1 -> "Años de exposición: " + random.nextInt(40);
+            case 2 -> "Línea uno\nlínea dos";
+            default -> "Texto libre " + random.nextInt(100_000);
+        };
+    }
+}
@@ -0,0 +1,318 @@
+package com.proyecto.datalab.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipOutputStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.proyecto.datalab.service.VariableCodingService;
+import com.proyecto.datalab.service.export.CountingOutputStream;
+import com.proyecto.datalab.service.export.CrfExportService;
+import com.proyecto.datalab.service.export.ExportFormat;
+import com.proyecto.datalab.service.export.ExportMetrics;
+import com.proyecto.datalab.service.export.ExportProgress;
+import com.proyecto.datalab.service.export.ExportService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Benchmark de punta a punta de las exportaciones sobre un estudio
+ * sintético (ver {@link EstudioSintetico}). Solo corre con el perfil Maven
+ * {@code benchmark}:
+ *
+ * <pre>
+ * ./mvnw -P benchmark test -Dbenchmark.participantes=10000 -Dbenchmark.variables=500
+ * </pre>
+ *
+ * Cada formato se ejecuta {@code benchmark.calentamiento} veces sin medir y
+ * {@code benchmark.iteraciones} veces midiendo tiempo, filas, bytes
+ * escritos, memoria asignada (todos los hilos, incluidos los que generan
+ * los PDF) y pico de heap. El reporte JSON queda en
+ * {@code benchmark.reporte}; con {@code benchmark.base} apuntando al
+ * reporte de una corrida anterior se agregan las razones contra esa base y
+ * se marcan como regresión las que superan {@code benchmark.tolerancia}.
+ */
+@SpringBootTest
+@ActiveProfiles("benchmark")
+@Slf4j
+class ExportBenchmark {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private CrfExportService crfExportService;
+
+    @Autowired
+    private VariableCodingService variableCodingService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${benchmark.participantes:1000}")
+    private int participantes;
+
+    @Value("${benchmark.variables:100}")
+    private int variables;
+
+    @Value("${benchmark.completitud:0.9}")
+    private double completitud;
+
+    @Value("${benchmark.semilla:42}")
+    private long semilla;
+
+    @Value("${benchmark.formatos:}")
+    private String formatos;
+
+    @Value("${benchmark.calentamiento:1}")
+    private int calentamiento;
+
+    @Value("${benchmark.iteraciones:3}")
+    private int iteraciones;
+
+    @Value("${benchmark.reporte:target/benchmark/export-benchmark.json}")
+    private String reporte;
+
+    @Value("${benchmark.base:}")
+    private String base;
+
+    @Value("${benchmark.tolerancia:0.2}")
+    private double tolerancia;
+
+    /**
+     * Exportación medida; el nombre coincide con la etiqueta formato de
+     * {@link ExportMetrics}.
+     */
+    @FunctionalInterface
+    private interface Caso {
+        void ejecutar(OutputStream out) throws IOException;
+    }
+
+    private record Medida(long ms, long filas, long bytes, long asignado, long heapPico) {
+    }
+
+    @Test
+    void exportaciones() throws Exception {
+        LocalDateTime antesDeCargar = LocalDateTime.now().minusMinutes(1);
+        EstudioSintetico.Resumen estudio = new EstudioSintetico(new JdbcTemplate(dataSource),
+                variableCodingService, participantes, variables, completitud, semilla).generar();
+        log.info("Estudio sintético: {} participantes, {} variables, {} respuestas ({} ms)",
+                estudio.participantes(), estudio.variables(), estudio.respuestas(), estudio.cargaMs());
+
+        List<Map<String, Object>> resultados = new ArrayList<>();
+        for (Map.Entry<String, Caso> caso : casos(antesDeCargar).entrySet()) {
+            for (int i = 0; i < calentamiento; i++)
+                medir(caso.getKey(), caso.getValue());
+            List<Medida> medidas = new ArrayList<>();
+            for (int i = 0; i < iteraciones; i++)
+                medidas.add(medir(caso.getKey(), caso.getValue()));
+            Map<String, Object> resultado = resumir(caso.getKey(), medidas);
+            log.info("{}", resultado);
+            resultados.add(resultado);
+        }
+
+        Map<String, Object> informe = new LinkedHashMap<>();
+        informe.put("fecha", LocalDateTime.now().toString());
+        informe.put("estudio", Map.of(
+                "participantes", estudio.participantes(),
+                "variables", estudio.variables(),
+                "respuestas", estudio.respuestas(),
+                "completitud", completitud,
+                "semilla", semilla,
+                "carga_ms", estudio.cargaMs()));
+        informe.put("entorno", entorno());
+        informe.put("calentamiento", calentamiento);
+        informe.put("iteraciones", iteraciones);
+        informe.put("resultados", resultados);
+        List<String> regresiones = compararConBase(resultados);
+        informe.put("regresiones", regresiones);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Path archivo = Path.of(reporte);
+        if (archivo.getParent() != null)
+            Files.createDirectories(archivo.getParent());
+        mapper.writeValue(archivo.toFile(), informe);
+        log.info("Reporte del benchmark en {}", archivo.toAbsolutePath());
+        if (!regresiones.isEmpty())
+            log.warn("Regresiones respecto de {}: {}", base, regresiones);
+
+        for (Map<String, Object> resultado : resultados)
+            assertTrue((Long) resultado.get("bytes") > 0, "Exportación vacía: " + resultado.get("formato"));
+    }
+
+    // Todos los formatos, o solo los de benchmark.formatos, en orden fijo
+    private Map<String, Caso> casos(LocalDateTime desde) {
+        Map<String, Caso> casos = new LinkedHashMap<>();
+        for (ExportFormat formato : ExportFormat.values())
+            casos.put(formato.name(), out -> exportService.export(formato, null, null, out, new ExportProgress()));
+        casos.put("BUNDLE", out -> {
+            ZipOutputStream zip = new ZipOutputStream(out);
+            exportService.exportBundle(EnumSet.allOf(ExportFormat.class), null, null, zip, new ExportProgress());
+            zip.finish();
+        });
+        casos.put("NDJSON", out -> exportService.writeNdjson(out, null, null, 0, null, new ExportProgress()));
+        for (ExportService.CambiosFormato formato : ExportService.CambiosFormato.values())
+            casos.put("CAMBIOS_" + formato.name(), out -> exportService.writeCambios(out, desde, formato));
+        casos.put("RESUMEN_CODIFICADO", out -> new ObjectMapper().writeValue(out, exportService.getCodedSummary()));
+        casos.put("CRF_ZIP", out -> crfExportService.writeZip(out, null));
+
+        if (formatos == null || formatos.isBlank())
+            return casos;
+        Map<String, Caso> elegidos = new LinkedHashMap<>();
+        for (String nombre : formatos.split(",")) {
+            String clave = nombre.trim().toUpperCase().replace('-', '_');
+            Caso caso = casos.get(clave);
+            if (caso == null)
+                throw new IllegalArgumentException("Formato de benchmark desconocido: " + nombre
+                        + " (disponibles: " + casos.keySet() + ")");
+            elegidos.put(clave, caso);
+        }
+        return elegidos;
+    }
+
+    private Medida medir(String formato, Caso caso) throws IOException {
+        System.gc();
+        List<MemoryPoolMXBean> heap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP)
+                .toList();
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+        double filasAntes = filasRegistradas(formato);
+        long asignadoAntes = asignadoTotal();
+        ExportProgress escritos = new ExportProgress();
+
+        long inicio = System.nanoTime();
+        try (OutputStream out = new CountingOutputStream(OutputStream.nullOutputStream(), escritos)) {
+            caso.ejecutar(out);
+        }
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        long asignadoDespues = asignadoTotal();
+        long heapPico = heap.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+        return new Medida(ms, Math.round(filasRegistradas(formato) - filasAntes), escritos.getBytes(),
+                asignadoAntes >= 0 && asignadoDespues >= 0 ? asignadoDespues - asignadoAntes : -1, heapPico);
+    }
+
+    // Filas según las métricas de la propia exportación (todas las series del formato)
+    private double filasRegistradas(String formato) {
+        return meterRegistry.find(ExportMetrics.FILAS).tag("formato", formato).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    // Bytes asignados por los hilos vivos; los que terminan durante la medición no se cuentan
+    private static long asignadoTotal() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean sun) || !sun.isThreadAllocatedMemorySupported()
+                || !sun.isThreadAllocatedMemoryEnabled())
+            return -1;
+        return Arrays.stream(sun.getThreadAllocatedBytes(sun.getAllThreadIds())).filter(b -> b > 0).sum();
+    }
+
+    private Map<String, Object> resumir(String formato, List<Medida> medidas) {
+        long[] ms = medidas.stream().mapToLong(Medida::ms).sorted().toArray();
+        long[] asignado = medidas.stream().mapToLong(Medida::asignado).sorted().toArray();
+        long mediana = ms[ms.length / 2];
+        long asignadoMediana = asignado[asignado.length / 2];
+        Medida ultima = medidas.get(medidas.size() - 1);
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("formato", formato);
+        resultado.put("mediana_ms", mediana);
+        resultado.put("min_ms", ms[0]);
+        resultado.put("max_ms", ms[ms.length - 1]);
+        resultado.put("filas", ultima.filas());
+        resultado.put("bytes", ultima.bytes());
+        resultado.put("filas_por_segundo", mediana > 0 ? ultima.filas() * 1000 / mediana : null);
+        resultado.put("asignado_bytes", asignadoMediana);
+        resultado.put("asignacion_mb_por_segundo",
+                mediana > 0 && asignadoMediana >= 0 ? asignadoMediana * 1000 / mediana / (1024 * 1024) : null);
+        resultado.put("heap_pico_bytes", medidas.stream().mapToLong(Medida::heapPico).max().orElse(0));
+        resultado.put("iteraciones", medidas.stream().map(m -> Map.of(
+                "ms", m.ms(), "bytes", m.bytes(), "asignado_bytes", m.asignado(), "heap_pico_bytes", m.heapPico()))
+                .toList());
+        return resultado;
+    }
+
+    /**
+     * Agrega a cada resultado su razón contra el reporte base (tiempo y
+     * memoria asignada) y devuelve los formatos que la superan por más de la
+     * tolerancia.
+     */
+    private List<String> compararConBase(List<Map<String, Object>> resultados) throws IOException {
+        List<String> regresiones = new ArrayList<>();
+        if (base == null || base.isBlank())
+            return regresiones;
+        Path archivo = Path.of(base);
+        if (!Files.exists(archivo)) {
+            log.warn("No existe el reporte base {}; no se compara", archivo.toAbsolutePath());
+            return regresiones;
+        }
+
+        Map<String, JsonNode> anteriores = new LinkedHashMap<>();
+        for (JsonNode resultado : new ObjectMapper().readTree(archivo.toFile()).path("resultados"))
+            anteriores.put(resultado.path("formato").asText(), resultado);
+
+        for (Map<String, Object> resultado : resultados) {
+            JsonNode anterior = anteriores.get((String) resultado.get("formato"));
+            if (anterior == null)
+                continue;
+            Double tiempo = razon((Long) resultado.get("mediana_ms"), anterior.path("mediana_ms").asLong());
+            Double memoria = razon((Long) resultado.get("asignado_bytes"), anterior.path("asignado_bytes").asLong());
+            resultado.put("razon_ms_vs_base", tiempo);
+            resultado.put("razon_asignado_vs_base", memoria);
+            if ((tiempo != null && tiempo > 1 + tolerancia) || (memoria != null && memoria > 1 + tolerancia))
+                regresiones.add((String) resultado.get("formato"));
+        }
+        return regresiones;
+    }
+
+    private static Double razon(long actual, long anterior) {
+        if (actual < 0 || anterior <= 0)
+            return null;
+        return Math.round(actual * 100.0 / anterior) / 100.0;
+    }
+
+    private Map<String, Object> entorno() throws Exception {
+        Map<String, Object> entorno = new LinkedHashMap<>();
+        entorno.put("java", System.getProperty("java.version"));
+        entorno.put("procesadores", Runtime.getRuntime().availableProcessors());
+        entorno.put("heap_max_bytes", Runtime.getRuntime().maxMemory());
+        try (var conexion = dataSource.getConnection()) {
+            entorno.put("base_de_datos", conexion.getMetaData().getDatabaseProductName() + " "
+                    + conexion.getMetaData().getDatabaseProductVersion());
+        }
+        return entorno;
+    }
+}
@@ -15,8 +15,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.proyecto.datalab.entity.Participante;
@@ -27,10 +29,12 @@ import com.proyecto.datalab.entity.Variable;
 import com.proyecto.datalab.enums.EstadoFicha;
 import com.proyecto.datalab.enums.EstadoUsuario;
 import com.proyecto.datalab.enums.GrupoParticipante;
+import com.proyecto.datalab.repository.ParticipanteEliminadoRepository;
 import com.proyecto.datalab.repository.ParticipanteRepository;
 import com.proyecto.datalab.repository.RespuestaRepository;
 import com.proyecto.datalab.repository.UsuarioRepository;
 import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.export.StudyDataVersion;
 
 /**
  * Pruebas unitarias para ParticipanteService
@@ -54,6 +58,15 @@ class ParticipanteServiceTest {
     @Mock
     private AuditoriaService auditoriaService;
 
+    @Mock
+    private StudyDataVersion studyDataVersion;
+
+    @Mock
+    private ParticipanteEliminadoRepository participanteEliminadoRepository;
+
+    @Spy
+    private VariableCodingService variableCodingService;
+
     @InjectMocks
     private ParticipanteService participanteService;
 
@@ -256,6 +269,25 @@ class ParticipanteServiceTest {
                 eq("Respuesta"), anyString());
     }
 
+    @Test
+    @DisplayName("Guardar respuestas persiste el valor codificado junto al ingresado")
+    void testGuardarRespuestas_GuardaValorCodificado() {
+        variable.setCodigoVariable("fuma");
+        variable.setOpciones("No,Si");
+        when(participanteRepository.findById(1)).thenReturn(Optional.of(participante));
+        when(usuarioRepository.findById(1)).thenReturn(Optional.of(reclutador));
+        when(variableRepository.findById(1)).thenReturn(Optional.of(variable));
+        when(respuestaRepository.save(any(Respuesta.class))).thenAnswer(i -> i.getArgument(0));
+
+        participanteService.guardarRespuestas(1, Map.of("1", "Si"), 1, null, null, null, null);
+
+        ArgumentCaptor<Respuesta> captor = ArgumentCaptor.forClass(Respuesta.class);
+        verify(respuestaRepository).save(captor.capture());
+        assertEquals("Si", captor.getValue().getValorIngresado());
+        assertEquals("1", captor.getValue().getValorCodificado());
+        assertEquals(variableCodingService.huella(variable), captor.getValue().getHuellaCodificacion());
+    }
+
     @Test
     @DisplayName("Lanzar excepción cuando participante no existe al guardar respuestas")
     void testGuardarRespuestas_ParticipanteNoEncontrado() {
@@ -461,4 +493,17 @@ class ParticipanteServiceTest {
 
         assertEquals(EstadoFicha.INCOMPLETA, participante.getEstadoFicha());
     }
+
+    @Test
+    @DisplayName("Eliminar participante deja tombstone para la exportación incremental")
+    void testEliminarParticipante_RegistraTombstone() {
+        when(participanteRepository.findById(1)).thenReturn(Optional.of(participante));
+
+        participanteService.eliminarParticipante(1);
+
+        verify(participanteEliminadoRepository).save(argThat(e -> e.getIdParticipante().equals(1)
+                && "CS1".equals(e.getCodigoParticipante())));
+        verify(participanteRepository).delete(participante);
+        verify(studyDataVersion).bump();
+    }
 }
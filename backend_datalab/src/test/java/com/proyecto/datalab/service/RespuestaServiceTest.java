@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.proyecto.datalab.dto.RespuestaUpdateRequest;
@@ -24,6 +25,7 @@ import com.proyecto.datalab.enums.GrupoParticipante;
 import com.proyecto.datalab.repository.ParticipanteRepository;
 import com.proyecto.datalab.repository.RespuestaRepository;
 import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.export.StudyDataVersion;
 
 /**
  * Pruebas unitarias para RespuestaService
@@ -40,6 +42,12 @@ class RespuestaServiceTest {
     @Mock
     private VariableRepository variableRepository;
 
+    @Mock
+    private StudyDataVersion studyDataVersion;
+
+    @Spy
+    private VariableCodingService variableCodingService;
+
     @InjectMocks
     private RespuestaService respuestaService;
 
@@ -95,6 +103,7 @@ class RespuestaServiceTest {
         verify(participanteRepository, times(1)).findById(1);
         verify(variableRepository, times(1)).findById(1);
         verify(respuestaRepository, times(1)).save(any(Respuesta.class));
+        verify(studyDataVersion, times(1)).bump();
     }
 
     @Test
@@ -112,6 +121,7 @@ class RespuestaServiceTest {
         verify(participanteRepository, times(1)).findById(999);
         verify(variableRepository, never()).findById(any());
         verify(respuestaRepository, never()).save(any());
+        verify(studyDataVersion, never()).bump();
     }
 
     @Test
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Optional;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +17,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import com.proyecto.datalab.dto.VariableCreateRequest;
 import com.proyecto.datalab.entity.Variable;
 import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.export.RecodificacionService;
+import com.proyecto.datalab.service.export.StudyDataVersion;
 
 /**
  * Pruebas unitarias para VariableService
@@ -26,6 +30,12 @@ class VariableServiceTest {
     @Mock
     private VariableRepository variableRepository;
 
+    @Mock
+    private StudyDataVersion studyDataVersion;
+
+    @Mock
+    private RecodificacionService recodificacionService;
+
     @InjectMocks
     private VariableService variableService;
 
@@ -404,6 +414,21 @@ class VariableServiceTest {
         verify(variableRepository, times(1)).save(any(Variable.class));
     }
 
+    // ==================== PRUEBAS ACTUALIZAR OPCIONES ====================
+
+    @Test
+    @DisplayName("Cambiar opciones programa la recodificación de las respuestas")
+    void testActualizarOpciones_ProgramaRecodificacion() {
+        when(variableRepository.findByCodigoVariable("VAR-EDAD")).thenReturn(Optional.of(variable));
+        when(variableRepository.save(any(Variable.class))).thenAnswer(i -> i.getArgument(0));
+
+        Variable resultado = variableService.actualizarOpciones("VAR-EDAD", "Joven,Adulto");
+
+        assertEquals("Joven,Adulto", resultado.getOpciones());
+        verify(studyDataVersion).bumpCatalogo();
+        verify(recodificacionService).programar();
+    }
+
     // ==================== MÉTODOS AUXILIARES ====================
 
     /**
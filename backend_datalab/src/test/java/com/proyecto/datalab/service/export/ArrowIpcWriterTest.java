@@ -0,0 +1,139 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.arrow.flatbuf.Block;
+import org.apache.arrow.flatbuf.DictionaryBatch;
+import org.apache.arrow.flatbuf.Footer;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.Type;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para ArrowIpcWriter
+ */
+class ArrowIpcWriterTest {
+
+    private static final List<String> OPCIONES = List.of("No", "Si");
+
+    private byte[] generar(boolean archivo) throws IOException {
+        List<ArrowIpcWriter.Columna> columnas = List.of(
+                ArrowIpcWriter.Columna.texto("CODIGO_PARTICIPANTE"),
+                ArrowIpcWriter.Columna.numerica("peso"),
+                ArrowIpcWriter.Columna.categorica("fuma", OPCIONES, raw -> OPCIONES.indexOf(raw.trim())));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArrowIpcWriter arrow = new ArrowIpcWriter(out, columnas, archivo, 2);
+        arrow.addRow(new String[] { "CS1", "70,5", "Si" });
+        arrow.addRow(new String[] { "CS2", null, "No" });
+        arrow.addRow(new String[] { "CS3", "abc", "Quizás" });
+        arrow.finish();
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("El archivo Feather tiene magia, footer con schema tipado y un bloque por lote")
+    void testArchivo() throws IOException {
+        byte[] dta = generar(true);
+        ByteBuffer buf = ByteBuffer.wrap(dta).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("ARROW1", new String(dta, 0, 6, StandardCharsets.US_ASCII));
+        assertEquals("ARROW1", new String(dta, dta.length - 6, 6, StandardCharsets.US_ASCII));
+
+        int largoFooter = buf.getInt(dta.length - 10);
+        Footer footer = Footer.getRootAsFooter(
+                ByteBuffer.wrap(dta, dta.length - 10 - largoFooter, largoFooter).slice().order(ByteOrder.LITTLE_ENDIAN));
+        Schema schema = footer.schema();
+        assertEquals(3, schema.fieldsLength());
+        assertEquals(Type.Utf8, schema.fields(0).typeType());
+        assertEquals(Type.FloatingPoint, schema.fields(1).typeType());
+        assertEquals(Type.Utf8, schema.fields(2).typeType());
+        assertEquals(32, schema.fields(2).dictionary().indexType().bitWidth());
+
+        // 3 filas en lotes de 2
+        assertEquals(2, footer.recordBatchesLength());
+        Block primero = footer.recordBatches(0);
+        assertEquals(0, primero.offset() % 8);
+        Message mensaje = mensaje(dta, (int) primero.offset());
+        assertEquals(MessageHeader.RecordBatch, mensaje.headerType());
+        RecordBatch lote = (RecordBatch) mensaje.header(new RecordBatch());
+        assertEquals(2, lote.length());
+        assertEquals(1, lote.nodes(1).nullCount());
+
+        // peso de la primera fila: buffer 4 (validez y offsets/datos de la columna 0, validez de la 1)
+        int cuerpo = (int) (primero.offset() + primero.metaDataLength());
+        assertEquals(70.5, buf.getDouble(cuerpo + (int) lote.buffers(4).offset()));
+        assertEquals(1, buf.getInt(cuerpo + (int) lote.buffers(6).offset()));
+
+        // El diccionario completo (opciones + valor agregado) va al final
+        assertEquals(1, footer.dictionariesLength());
+        Block bloque = footer.dictionaries(0);
+        DictionaryBatch diccionario = (DictionaryBatch) mensaje(dta, (int) bloque.offset())
+                .header(new DictionaryBatch());
+        assertEquals(2, diccionario.id());
+        assertFalse(diccionario.isDelta());
+        assertEquals(List.of("No", "Si", "Quizás"),
+                textos(dta, (int) (bloque.offset() + bloque.metaDataLength()), diccionario.data()));
+    }
+
+    @Test
+    @DisplayName("El stream envía el diccionario antes de los lotes y los valores nuevos como delta")
+    void testStream() throws IOException {
+        byte[] dta = generar(false);
+        ByteBuffer buf = ByteBuffer.wrap(dta).order(ByteOrder.LITTLE_ENDIAN);
+
+        List<Byte> tipos = new ArrayList<>();
+        List<String> delta = null;
+        int pos = 0;
+        while (true) {
+            assertEquals(-1, buf.getInt(pos));
+            int largo = buf.getInt(pos + 4);
+            if (largo == 0)
+                break;
+            Message mensaje = mensaje(dta, pos);
+            tipos.add(mensaje.headerType());
+            int cuerpo = pos + 8 + largo;
+            if (mensaje.headerType() == MessageHeader.DictionaryBatch) {
+                DictionaryBatch diccionario = (DictionaryBatch) mensaje.header(new DictionaryBatch());
+                if (diccionario.isDelta())
+                    delta = textos(dta, cuerpo, diccionario.data());
+            }
+            pos = cuerpo + (int) mensaje.bodyLength();
+        }
+        assertEquals(pos + 8, dta.length);
+        assertEquals(List.of(MessageHeader.Schema, MessageHeader.DictionaryBatch, MessageHeader.RecordBatch,
+                MessageHeader.DictionaryBatch, MessageHeader.RecordBatch), tipos);
+        assertEquals(List.of("Quizás"), delta);
+    }
+
+    private static Message mensaje(byte[] dta, int pos) {
+        ByteBuffer buf = ByteBuffer.wrap(dta).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(-1, buf.getInt(pos));
+        int largo = buf.getInt(pos + 4);
+        return Message.getRootAsMessage(ByteBuffer.wrap(dta, pos + 8, largo).slice().order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    // Valores de una columna utf8 sin nulos: buffers 1 (offsets) y 2 (datos)
+    private static List<String> textos(byte[] dta, int cuerpo, RecordBatch lote) {
+        ByteBuffer buf = ByteBuffer.wrap(dta).order(ByteOrder.LITTLE_ENDIAN);
+        int offsets = cuerpo + (int) lote.buffers(1).offset();
+        int datos = cuerpo + (int) lote.buffers(2).offset();
+        List<String> valores = new ArrayList<>();
+        for (int i = 0; i < lote.length(); i++) {
+            int desde = buf.getInt(offsets + 4 * i);
+            int hasta = buf.getInt(offsets + 4 * (i + 1));
+            valores.add(new String(dta, datos + desde, hasta - desde, StandardCharsets.UTF_8));
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,108 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.proyecto.datalab.dto.CrfTupla;
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.enums.GrupoParticipante;
+import com.proyecto.datalab.repository.RespuestaLecturaRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pruebas unitarias para CrfExportService
+ */
+@ExtendWith(MockitoExtension.class)
+class CrfExportServiceTest {
+
+    @Mock
+    private RespuestaLecturaRepository respuestaLecturaRepository;
+
+    @Mock
+    private CrfPdfService crfPdfService;
+
+    private CrfExportService crfExportService;
+
+    @BeforeEach
+    void setUp() {
+        crfExportService = new CrfExportService(respuestaLecturaRepository, crfPdfService, new CrfPdfRenderer(),
+                new ExportMetrics(new SimpleMeterRegistry(), 30000, 60), 2);
+
+        Variable edad = new Variable();
+        edad.setIdVariable(1);
+        edad.setCodigoVariable("edad");
+        edad.setEnunciado("Edad");
+        edad.setAplicaA("Ambos");
+        when(crfPdfService.plantilla()).thenReturn(CrfTemplate.of(ExportPlan.of(List.of(edad)), 1L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        crfExportService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Genera un PDF por participante dentro del ZIP, respetando el filtro")
+    void testWriteZip() throws IOException {
+        ParticipanteFiltro filtro = ParticipanteFiltro.builder().grupo(GrupoParticipante.CASO).build();
+        // Más participantes que PDF pendientes permitidos para ejercitar el límite
+        Stream.Builder<CrfTupla> filas = Stream.builder();
+        for (int id = 1; id <= 10; id++)
+            filas.add(new CrfTupla(id, "CS" + id, "Participante " + id, "CASO", 1, String.valueOf(40 + id)));
+        filas.add(new CrfTupla(11, null, null, "CASO", null, null));
+        when(respuestaLecturaRepository.streamCrfTuplas(filtro)).thenReturn(filas.build());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        crfExportService.writeZip(out, filtro);
+
+        Set<String> nombres = new HashSet<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                nombres.add(entry.getName());
+                byte[] contenido = zip.readAllBytes();
+                assertTrue(new String(contenido, 0, 5, StandardCharsets.US_ASCII).startsWith("%PDF-"));
+            }
+        }
+        assertEquals(11, nombres.size());
+        assertTrue(nombres.contains("crf_CS1.pdf"));
+        assertTrue(nombres.contains("crf_CS10.pdf"));
+        assertTrue(nombres.contains("crf_11.pdf"));
+        verify(respuestaLecturaRepository).streamCrfTuplas(eq(filtro));
+    }
+
+    @Test
+    @DisplayName("Sin participantes produce un ZIP vacío válido")
+    void testWriteZip_Vacio() throws IOException {
+        when(respuestaLecturaRepository.streamCrfTuplas(any())).thenReturn(Stream.empty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        crfExportService.writeZip(out, new ParticipanteFiltro());
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertNull(zip.getNextEntry());
+        }
+    }
+}
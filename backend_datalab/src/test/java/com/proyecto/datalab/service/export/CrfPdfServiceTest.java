@@ -0,0 +1,110 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.proyecto.datalab.dto.CrfTupla;
+import com.proyecto.datalab.dto.ParticipanteCabecera;
+import com.proyecto.datalab.dto.RespuestasVersion;
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.enums.GrupoParticipante;
+import com.proyecto.datalab.repository.RespuestaLecturaRepository;
+import com.proyecto.datalab.repository.RespuestaRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pruebas unitarias para CrfPdfService
+ */
+@ExtendWith(MockitoExtension.class)
+class CrfPdfServiceTest {
+
+    @Mock
+    private ExportService exportService;
+
+    @Mock
+    private RespuestaRepository respuestaRepository;
+
+    @Mock
+    private RespuestaLecturaRepository respuestaLecturaRepository;
+
+    @Mock
+    private StudyDataVersion studyDataVersion;
+
+    private CrfPdfService crfPdfService;
+    private ParticipanteCabecera participante;
+    private Variable edad;
+    private Variable embarazo;
+
+    @BeforeEach
+    void setUp() {
+        crfPdfService = new CrfPdfService(exportService, respuestaRepository, respuestaLecturaRepository,
+                new CrfPdfRenderer(), studyDataVersion, new ExportMetrics(new SimpleMeterRegistry(), 30000, 60), 10);
+
+        edad = new Variable();
+        edad.setIdVariable(1);
+        edad.setCodigoVariable("edad");
+        edad.setEnunciado("Edad");
+        edad.setAplicaA("Ambos");
+
+        embarazo = new Variable();
+        embarazo.setIdVariable(2);
+        embarazo.setCodigoVariable("semanas_gestacion");
+        embarazo.setEnunciado("Semanas de gestación");
+        embarazo.setAplicaA("CASO");
+
+        participante = new ParticipanteCabecera(7, "CT7", null, GrupoParticipante.CONTROL,
+                LocalDateTime.of(2025, 1, 1, 10, 0));
+    }
+
+    @Test
+    @DisplayName("La plantilla filtra las variables por grupo y se reutiliza mientras no cambie el catálogo")
+    void testPlantilla() {
+        when(studyDataVersion.catalogo()).thenReturn(1L, 1L, 2L);
+        when(exportService.getAllVariablesSorted()).thenReturn(List.of(edad, embarazo));
+
+        CrfTemplate plantilla = crfPdfService.plantilla();
+        assertSame(plantilla, crfPdfService.plantilla());
+        assertNotSame(plantilla, crfPdfService.plantilla());
+        verify(exportService, times(2)).getAllVariablesSorted();
+
+        assertArrayEquals(new int[] { 0, 1 }, plantilla.layout("CASO").columnas());
+        assertArrayEquals(new int[] { 0 }, plantilla.layout("CONTROL").columnas());
+        assertArrayEquals(new int[] { 0 }, plantilla.layout(null).columnas());
+    }
+
+    @Test
+    @DisplayName("Una reimpresión sale del caché y una respuesta modificada la invalida")
+    void testPdfParticipante_Cache() throws Exception {
+        when(studyDataVersion.catalogo()).thenReturn(1L);
+        when(exportService.getAllVariablesSorted()).thenReturn(List.of(edad, embarazo));
+        when(respuestaLecturaRepository.findCrfTuplas(7))
+                .thenReturn(List.of(new CrfTupla(7, "CT7", null, "CONTROL", 1, "41")));
+        LocalDateTime t0 = LocalDateTime.of(2025, 1, 2, 9, 0);
+        when(respuestaRepository.findVersionByParticipante(7)).thenReturn(
+                new RespuestasVersion(1L, t0),
+                new RespuestasVersion(1L, t0),
+                new RespuestasVersion(1L, t0.plusMinutes(5)));
+
+        byte[] primero = crfPdfService.pdfParticipante(participante);
+        assertTrue(new String(primero, 0, 5, StandardCharsets.US_ASCII).startsWith("%PDF-"));
+        assertSame(primero, crfPdfService.pdfParticipante(participante));
+        verify(respuestaLecturaRepository, times(1)).findCrfTuplas(anyInt());
+
+        assertNotSame(primero, crfPdfService.pdfParticipante(participante));
+        verify(respuestaLecturaRepository, times(2)).findCrfTuplas(anyInt());
+        verify(exportService, times(1)).getAllVariablesSorted();
+    }
+}
@@ -0,0 +1,68 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para CsvWriter
+ */
+class CsvWriterTest {
+
+    private static String escribir(char separador, String... campos) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter csv = new CsvWriter(out, separador, false);
+        for (String campo : campos)
+            csv.campo(campo);
+        csv.finFila();
+        csv.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Solo entre comillas los valores con separador, comillas o saltos de línea")
+    void testEscapado() throws Exception {
+        assertEquals("a,,\"b,c\",\"di \"\"x\"\"\",\"l1\nl2\",\"r\r\",ñandú\n",
+                escribir(',', "a", null, "b,c", "di \"x\"", "l1\nl2", "r\r", "ñandú"));
+        // Con punto y coma la coma ya no obliga a usar comillas
+        assertEquals("b,c;\"d;e\"\n", escribir(';', "b,c", "d;e"));
+    }
+
+    @Test
+    @DisplayName("Codifica UTF-8 igual que String.getBytes, también al cruzar el borde del buffer")
+    void testUtf8() throws Exception {
+        String muestra = "Año ñ € 😀 \uD800 fin";
+        assertEquals(new String(muestra.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+                escribir(',', muestra).stripTrailing());
+
+        // Valor mayor que el buffer: se vuelca en varias partes sin partir caracteres
+        String largo = "é😀\"".repeat(30_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter csv = new CsvWriter(out);
+        csv.campo(largo);
+        csv.finFila();
+        csv.flush();
+        String esperado = "\"" + largo.replace("\"", "\"\"") + "\"\n";
+        assertArrayEquals(esperado.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("BOM al inicio y separador inválido rechazado")
+    void testBomYSeparador() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter csv = new CsvWriter(out, '\t', true);
+        csv.campo("a");
+        csv.campo("b");
+        csv.finFila();
+        csv.flush();
+        assertArrayEquals(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a', '\t', 'b', '\n' },
+                out.toByteArray());
+
+        assertThrows(IllegalArgumentException.class, () -> new CsvWriter(out, '"', false));
+        assertThrows(IllegalArgumentException.class, () -> new CsvWriter(out, 'é', false));
+    }
+}
@@ -0,0 +1,97 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.service.VariableCodingService;
+
+/**
+ * Pruebas unitarias para DataDictionaryService
+ */
+@ExtendWith(MockitoExtension.class)
+class DataDictionaryServiceTest {
+
+    @Mock
+    private ExportService exportService;
+
+    @Mock
+    private StudyDataVersion studyDataVersion;
+
+    private DataDictionaryService dataDictionaryService;
+    private Variable fuma;
+
+    @BeforeEach
+    void setUp() {
+        dataDictionaryService = new DataDictionaryService(exportService, new VariableCodingService(),
+                studyDataVersion);
+
+        fuma = new Variable();
+        fuma.setIdVariable(1);
+        fuma.setCodigoVariable("fuma");
+        fuma.setEnunciado("¿Fuma, actualmente?");
+        fuma.setTipoDato("Texto");
+        fuma.setOpciones("No,Si");
+        fuma.setSeccion("Hábitos");
+        fuma.setOrdenEnunciado(1);
+    }
+
+    @Test
+    @DisplayName("Los artefactos se generan una vez por versión del catálogo")
+    void testGeneraSoloAlCambiarCatalogo() {
+        when(studyDataVersion.catalogo()).thenReturn(5L, 5L, 5L, 6L);
+        when(exportService.getAllVariablesSorted()).thenReturn(List.of(fuma));
+
+        DataDictionaryService.Artefacto pdf = dataDictionaryService.get(DataDictionaryService.Formato.PDF);
+        assertTrue(new String(pdf.contenido(), 0, 5, StandardCharsets.US_ASCII).startsWith("%PDF-"));
+        assertEquals("\"diccionario-pdf-5\"", pdf.etag());
+        assertSame(pdf, dataDictionaryService.get(DataDictionaryService.Formato.PDF));
+        assertEquals(5L, dataDictionaryService.get(DataDictionaryService.Formato.CSV).version());
+        verify(exportService, times(1)).getAllVariablesSorted();
+
+        assertEquals(6L, dataDictionaryService.get(DataDictionaryService.Formato.PDF).version());
+        verify(exportService, times(2)).getAllVariablesSorted();
+    }
+
+    @Test
+    @DisplayName("El codebook CSV y JSON incluye opciones y codificación")
+    void testCodebook() throws Exception {
+        when(studyDataVersion.catalogo()).thenReturn(1L);
+        when(exportService.getAllVariablesSorted()).thenReturn(List.of(fuma));
+
+        String csv = new String(dataDictionaryService.get(DataDictionaryService.Formato.CSV).contenido(),
+                StandardCharsets.UTF_8);
+        String[] lineas = csv.split("\n", 2);
+        assertEquals("codigo_variable,enunciado,seccion,tipo_dato,aplica_a,es_obligatoria,orden_enunciado,"
+                + "opciones,codificacion", lineas[0]);
+        assertEquals("fuma,\"¿Fuma, actualmente?\",Hábitos,Texto,,false,1,\"No,Si\",\"0: No\n1: Si\"\n", lineas[1]);
+
+        JsonNode json = new ObjectMapper()
+                .readTree(dataDictionaryService.get(DataDictionaryService.Formato.JSON).contenido());
+        assertEquals(1, json.get("version").asLong());
+        JsonNode variable = json.get("variables").get(0);
+        assertEquals("fuma", variable.get("codigoVariable").asText());
+        assertEquals("Si", variable.get("opciones").get(1).asText());
+        assertEquals("1: Si", variable.get("codificacion").get(1).asText());
+    }
+
+    @Test
+    @DisplayName("Formato desconocido es un error de argumento")
+    void testFormatoInvalido() {
+        assertEquals(DataDictionaryService.Formato.JSON, DataDictionaryService.Formato.parse(null));
+        assertEquals(DataDictionaryService.Formato.CSV, DataDictionaryService.Formato.parse("csv"));
+        assertThrows(IllegalArgumentException.class, () -> DataDictionaryService.Formato.parse("xml"));
+    }
+}
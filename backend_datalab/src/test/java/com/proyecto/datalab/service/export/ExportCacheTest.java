@@ -0,0 +1,172 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas unitarias para ExportCache
+ */
+class ExportCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private ExportCache exportCache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        exportCache = new ExportCache(dir.toString(), true, 24, 1);
+    }
+
+    private void escribir(ExportFormat formato, long version, byte[] contenido) throws IOException {
+        exportCache.writeThrough(formato, "", version, exportCache.nuevaGeneracion(), new ByteArrayOutputStream(),
+                out -> out.write(contenido));
+    }
+
+    @Test
+    @DisplayName("Escribe al cliente y deja la copia en caché para la misma versión")
+    void testWriteThrough_GuardaCopia() throws IOException {
+        ByteArrayOutputStream cliente = new ByteArrayOutputStream();
+
+        exportCache.writeThrough(ExportFormat.CSV, "", 5L, exportCache.nuevaGeneracion(), cliente,
+                out -> out.write("a,b\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("a,b\n", cliente.toString(StandardCharsets.UTF_8));
+        Path cached = exportCache.find(ExportFormat.CSV, "", 5L).orElseThrow().path();
+        assertEquals("a,b\n", Files.readString(cached));
+        assertTrue(exportCache.find(ExportFormat.CSV, "", 6L).isEmpty());
+        assertTrue(exportCache.find(ExportFormat.EXCEL, "", 5L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Una exportación fallida no deja archivo en caché")
+    void testWriteThrough_FalloDescarta() throws IOException {
+        assertThrows(IOException.class, () -> exportCache.writeThrough(ExportFormat.CSV, "", 5L,
+                exportCache.nuevaGeneracion(), new ByteArrayOutputStream(), out -> {
+                    out.write('x');
+                    throw new IOException("cliente desconectado");
+                }));
+
+        assertTrue(exportCache.find(ExportFormat.CSV, "", 5L).isEmpty());
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Si el cliente corta, la exportación se completa en caché y se informa el error del cliente")
+    void testWriteThrough_ClienteDesconectado() throws IOException {
+        OutputStream cliente = new OutputStream() {
+            private int escritos;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++escritos > 2)
+                    throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> exportCache.writeThrough(ExportFormat.CSV, "", 5L,
+                exportCache.nuevaGeneracion(), cliente, out -> out.write("a,b\nc,d\n".getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals("Broken pipe", e.getMessage());
+        Path cached = exportCache.find(ExportFormat.CSV, "", 5L).orElseThrow().path();
+        assertEquals("a,b\nc,d\n", Files.readString(cached));
+    }
+
+    @Test
+    @DisplayName("Retención: descarta lo que no se usa hace más de las horas configuradas y lo menos usado si excede el tamaño")
+    void testAplicarRetencion() throws IOException {
+        byte[] contenido = new byte[400 * 1024];
+        escribir(ExportFormat.CSV, 5L, contenido);
+        escribir(ExportFormat.EXCEL, 5L, contenido);
+        escribir(ExportFormat.STATA_DTA, 5L, new byte[] { '1' });
+        Path csv = exportCache.find(ExportFormat.CSV, "", 5L).orElseThrow().path();
+        Path excel = exportCache.find(ExportFormat.EXCEL, "", 5L).orElseThrow().path();
+        Path stata = exportCache.find(ExportFormat.STATA_DTA, "", 5L).orElseThrow().path();
+        Instant ahora = Instant.now();
+        Files.setLastModifiedTime(stata, FileTime.from(ahora.minus(Duration.ofHours(25))));
+        Files.setLastModifiedTime(csv, FileTime.from(ahora.minus(Duration.ofHours(2))));
+        Files.setLastModifiedTime(excel, FileTime.from(ahora.minus(Duration.ofHours(1))));
+        escribir(ExportFormat.FEATHER, 5L, contenido);
+
+        // stata vencida; el CSV es el menos usado y sin él el total vuelve a caber en 1 MB
+        assertFalse(Files.exists(stata));
+        assertFalse(Files.exists(csv));
+        assertTrue(Files.exists(excel));
+        assertTrue(exportCache.find(ExportFormat.FEATHER, "", 5L).isPresent());
+    }
+
+    @Test
+    @DisplayName("Una versión nueva elimina las entradas anteriores")
+    void testWriteThrough_PurgaVersionesAnteriores() throws IOException {
+        escribir(ExportFormat.CSV, 5L, new byte[] { '1' });
+        escribir(ExportFormat.EXCEL, 5L, new byte[] { '1' });
+        escribir(ExportFormat.CSV, 6L, new byte[] { '2' });
+
+        assertTrue(exportCache.find(ExportFormat.CSV, "", 5L).isEmpty());
+        assertTrue(exportCache.find(ExportFormat.EXCEL, "", 5L).isEmpty());
+        assertTrue(exportCache.find(ExportFormat.CSV, "", 6L).isPresent());
+    }
+
+    @Test
+    @DisplayName("El ETag cambia con la versión, el filtro y la generación")
+    void testEtag() {
+        String base = exportCache.etag(ExportFormat.CSV, "", 5L, "g1");
+
+        assertTrue(base.startsWith("\"") && base.endsWith("\""));
+        assertEquals(base, exportCache.etag(ExportFormat.CSV, "", 5L, "g1"));
+        assertNotEquals(base, exportCache.etag(ExportFormat.CSV, "", 5L, "g2"));
+        assertNotEquals(base, exportCache.etag(ExportFormat.CSV, "", 6L, "g1"));
+        assertNotEquals(base, exportCache.etag(ExportFormat.CSV, "grupo=CASO", 5L, "g1"));
+        assertNotEquals(base, exportCache.etag(ExportFormat.CSV_CODIFICADO, "", 5L, "g1"));
+        assertTrue(exportCache.etag(ExportFormat.CSV, "", 5L, null).startsWith("W/"));
+    }
+
+    @Test
+    @DisplayName("Regenerar una entrada descartada en la misma versión publica otra generación y borra la anterior")
+    void testWriteThrough_NuevaGeneracion() throws IOException {
+        escribir(ExportFormat.EXCEL, 5L, new byte[] { 1 });
+        ExportCache.Archivo primera = exportCache.find(ExportFormat.EXCEL, "", 5L).orElseThrow();
+        escribir(ExportFormat.EXCEL, 5L, new byte[] { 2 });
+        ExportCache.Archivo segunda = exportCache.find(ExportFormat.EXCEL, "", 5L).orElseThrow();
+
+        assertNotEquals(primera.generacion(), segunda.generacion());
+        assertNotEquals(exportCache.etag(ExportFormat.EXCEL, "", 5L, primera.generacion()),
+                exportCache.etag(ExportFormat.EXCEL, "", 5L, segunda.generacion()));
+        assertFalse(Files.exists(primera.path()));
+        assertArrayEquals(new byte[] { 2 }, Files.readAllBytes(segunda.path()));
+    }
+
+    @Test
+    @DisplayName("Una entrada que se está enviando no se purga hasta cerrar la lectura")
+    void testLeer_ReservaLaEntrada() throws IOException {
+        escribir(ExportFormat.CSV, 5L, new byte[] { '1' });
+        ExportCache.Archivo archivo = exportCache.find(ExportFormat.CSV, "", 5L).orElseThrow();
+
+        try (ExportCache.Lectura lectura = exportCache.leer(archivo)) {
+            escribir(ExportFormat.CSV, 6L, new byte[] { '2' });
+            Files.setLastModifiedTime(archivo.path(), FileTime.from(Instant.now().minus(Duration.ofHours(25))));
+            exportCache.aplicarRetencion();
+            assertEquals("1", Files.readString(lectura.getPath()));
+        }
+
+        exportCache.aplicarRetencion();
+        assertFalse(Files.exists(archivo.path()));
+        assertTrue(exportCache.find(ExportFormat.CSV, "", 6L).isPresent());
+    }
+}
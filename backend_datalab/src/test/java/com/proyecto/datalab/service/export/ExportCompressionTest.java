@@ -0,0 +1,76 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para ExportCompression
+ */
+class ExportCompressionTest {
+
+    private static final String CSV = "CODIGO_PARTICIPANTE,edad\nCS1,50\nCT2,\n".repeat(100);
+
+    private ExportWriter csv() {
+        return out -> out.write(CSV.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Negocia según el parámetro compress y luego Accept-Encoding")
+    void testNegociar() {
+        assertEquals(ExportCompression.ZIP, ExportCompression.negociar("zip", "gzip"));
+        assertEquals(ExportCompression.NONE, ExportCompression.negociar("none", "gzip"));
+        assertEquals(ExportCompression.GZIP, ExportCompression.negociar(null, "gzip, deflate, br"));
+        assertEquals(ExportCompression.GZIP, ExportCompression.negociar(null, "br;q=1.0, gzip;q=0.8"));
+        assertEquals(ExportCompression.NONE, ExportCompression.negociar(null, "gzip;q=0"));
+        assertEquals(ExportCompression.NONE, ExportCompression.negociar(null, "identity"));
+        assertEquals(ExportCompression.NONE, ExportCompression.negociar(null, null));
+        assertThrows(IllegalArgumentException.class, () -> ExportCompression.negociar("rar", null));
+    }
+
+    @Test
+    @DisplayName("gzip produce un stream que se descomprime al contenido original")
+    void testWrite_Gzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ExportCompression.GZIP.write(out, "datos.csv", 1, csv());
+
+        assertTrue(out.size() < CSV.length());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("zip contiene una única entrada con el nombre del archivo")
+    void testWrite_Zip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ExportCompression.ZIP.write(out, "datos.csv", 9, csv());
+
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = in.getNextEntry();
+            assertEquals("datos.csv", entry.getName());
+            assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            assertNull(in.getNextEntry());
+        }
+    }
+
+    @Test
+    @DisplayName("Cada variante tiene su propio ETag y nombre de archivo")
+    void testEtagYNombre() {
+        assertEquals("\"csv-todos-5\"", ExportCompression.NONE.etag("\"csv-todos-5\""));
+        assertEquals("\"csv-todos-5-gzip\"", ExportCompression.GZIP.etag("\"csv-todos-5\""));
+        assertEquals("datos.csv", ExportCompression.GZIP.fileName("datos.csv"));
+        assertEquals("datos.zip", ExportCompression.ZIP.fileName("datos.csv"));
+    }
+}
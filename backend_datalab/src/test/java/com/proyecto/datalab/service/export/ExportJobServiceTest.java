@@ -0,0 +1,204 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.proyecto.datalab.dto.CsvOpciones;
+import com.proyecto.datalab.entity.Rol;
+import com.proyecto.datalab.entity.Usuario;
+import com.proyecto.datalab.enums.EstadoExportJob;
+import com.proyecto.datalab.service.AuditoriaService;
+
+/**
+ * Pruebas unitarias para ExportJobService
+ */
+@ExtendWith(MockitoExtension.class)
+class ExportJobServiceTest {
+
+    @Mock
+    private ExportService exportService;
+
+    @Mock
+    private AuditoriaService auditoriaService;
+
+    @TempDir
+    Path spoolDir;
+
+    private ExportJobService exportJobService;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exportJobService = new ExportJobService(exportService, auditoriaService,
+                spoolDir.toString(), 1, 1, 24);
+        usuario = new Usuario();
+        usuario.setIdUsuario(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportJobService.shutdown();
+    }
+
+    private void awaitTerminado(ExportJob job) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!job.isTerminado() && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isTerminado(), "El job no terminó a tiempo");
+    }
+
+    @Test
+    @DisplayName("Job completado deja el archivo en el spool y audita inicio y fin")
+    void testSubmit_Completado() throws Exception {
+        when(exportService.countParticipantes(null)).thenReturn(2L);
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(4);
+            ExportProgress progress = inv.getArgument(5);
+            out.write("a,b\n".getBytes(StandardCharsets.UTF_8));
+            progress.onRow();
+            progress.onRow();
+            return null;
+        }).when(exportService).export(eq(ExportFormat.CSV), any(), any(), any(), any(), any());
+
+        ExportJob job = exportJobService.submit(ExportFormat.CSV, null, null, null, usuario);
+        awaitTerminado(job);
+
+        assertEquals(EstadoExportJob.COMPLETADO, job.getEstado());
+        assertEquals(2, job.getProgress().getFilas());
+        assertEquals(2, job.getProgress().getTotalFilas());
+        assertEquals(4, job.getProgress().getBytes());
+        assertEquals("a,b\n", Files.readString(job.getArchivo()));
+        verify(auditoriaService).registrarAccion(eq(usuario), isNull(), eq("EXPORTAR"), anyString(), anyString());
+        verify(auditoriaService).registrarAccion(eq(usuario), isNull(), eq("EXPORTAR_FIN"), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Las opciones CSV llegan a la exportación y un separador inválido se rechaza al encolar")
+    void testSubmit_OpcionesCsv() throws Exception {
+        CsvOpciones opciones = CsvOpciones.builder().separador(";").bom(true).build();
+        ExportJob job = exportJobService.submit(ExportFormat.CSV, null, null, opciones, usuario);
+        awaitTerminado(job);
+        verify(exportService).export(eq(ExportFormat.CSV), isNull(), isNull(), same(opciones), any(), any());
+
+        CsvOpciones invalidas = CsvOpciones.builder().separador("#").build();
+        assertThrows(IllegalArgumentException.class,
+                () -> exportJobService.submit(ExportFormat.CSV, null, null, invalidas, usuario));
+        verify(exportService, times(1)).export(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Sin usuario no se encola; cada usuario ve solo sus jobs y un administrador ve todos")
+    void testSubmit_DuenoDelJob() throws Exception {
+        assertThrows(IllegalArgumentException.class,
+                () -> exportJobService.submit(ExportFormat.CSV, null, null, null, null));
+
+        Usuario otro = new Usuario();
+        otro.setIdUsuario(2);
+        Usuario admin = new Usuario();
+        admin.setIdUsuario(3);
+        admin.setRol(Rol.builder().nombreRol(Rol.ADMINISTRADOR).build());
+
+        ExportJob job = exportJobService.submit(ExportFormat.CSV, null, null, null, usuario);
+        awaitTerminado(job);
+
+        assertSame(job, exportJobService.find(job.getId(), usuario).orElseThrow());
+        assertTrue(exportJobService.find(job.getId(), otro).isEmpty());
+        assertTrue(exportJobService.find(job.getId(), null).isEmpty());
+        assertTrue(exportJobService.find(job.getId(), admin).isPresent());
+        assertEquals(List.of(job), exportJobService.findAll(usuario));
+        assertTrue(exportJobService.findAll(otro).isEmpty());
+        assertEquals(List.of(job), exportJobService.findAll(admin));
+    }
+
+    @Test
+    @DisplayName("Rechaza jobs cuando la cola está llena y permite cancelar el que está en cola")
+    void testSubmit_ColaLlenaYCancelar() throws Exception {
+        CountDownLatch iniciado = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        doAnswer(inv -> {
+            iniciado.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(exportService).export(any(), any(), any(), any(), any(), any());
+
+        ExportJob enProceso = exportJobService.submit(ExportFormat.CSV, null, null, null, usuario);
+        assertTrue(iniciado.await(5, TimeUnit.SECONDS));
+        ExportJob enCola = exportJobService.submit(ExportFormat.EXCEL, null, null, null, usuario);
+
+        assertThrows(RejectedExecutionException.class,
+                () -> exportJobService.submit(ExportFormat.CSV_CODIFICADO, null, null, null, usuario));
+
+        assertTrue(exportJobService.cancel(enCola.getId()));
+        assertEquals(EstadoExportJob.CANCELADO, enCola.getEstado());
+
+        liberar.countDown();
+        awaitTerminado(enProceso);
+        assertEquals(EstadoExportJob.COMPLETADO, enProceso.getEstado());
+        verify(exportService, times(1)).export(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Cancelar un job en proceso lo detiene en la siguiente fila y borra el archivo parcial")
+    void testCancel_EnProceso() throws Exception {
+        CountDownLatch iniciado = new CountDownLatch(1);
+        doAnswer(inv -> {
+            ExportProgress progress = inv.getArgument(5);
+            iniciado.countDown();
+            while (true) {
+                progress.onRow();
+                Thread.sleep(5);
+            }
+        }).when(exportService).export(any(), any(), any(), any(), any(), any());
+
+        ExportJob job = exportJobService.submit(ExportFormat.CSV, null, null, null, usuario);
+        assertTrue(iniciado.await(5, TimeUnit.SECONDS));
+        assertTrue(exportJobService.cancel(job.getId()));
+        awaitTerminado(job);
+
+        assertEquals(EstadoExportJob.CANCELADO, job.getEstado());
+        assertNull(job.getArchivo());
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("El spool se vacía al arrancar y purgeExpired borra archivos huérfanos vencidos")
+    void testPurgeSpool() throws Exception {
+        Path anterior = Files.writeString(spoolDir.resolve("00000000-0000-0000-0000-000000000000-datos.csv"), "a");
+        Path parcial = Files.writeString(spoolDir.resolve("00000000-0000-0000-0000-000000000001.part"), "a");
+        new ExportJobService(exportService, auditoriaService, spoolDir.toString(), 1, 1, 24).shutdown();
+        assertFalse(Files.exists(anterior));
+        assertFalse(Files.exists(parcial));
+
+        Path vencido = Files.writeString(spoolDir.resolve("11111111-1111-1111-1111-111111111111.part"), "a");
+        Files.setLastModifiedTime(vencido, FileTime.from(Instant.now().minus(Duration.ofHours(25))));
+        Path reciente = Files.writeString(spoolDir.resolve("22222222-2222-2222-2222-222222222222.part"), "a");
+        exportJobService.purgeExpired();
+        assertFalse(Files.exists(vencido));
+        assertTrue(Files.exists(reciente));
+    }
+}
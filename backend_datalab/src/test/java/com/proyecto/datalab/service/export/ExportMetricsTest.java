@@ -0,0 +1,81 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.enums.GrupoParticipante;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pruebas unitarias para ExportMetrics
+ */
+class ExportMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private ExportMetrics exportMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        exportMetrics = new ExportMetrics(registry, 0, 60);
+    }
+
+    @Test
+    @DisplayName("Registra duración, filas, celdas y bytes etiquetados por formato y campos del filtro")
+    void testMedir() throws Exception {
+        ParticipanteFiltro filtro = ParticipanteFiltro.builder().grupo(GrupoParticipante.CASO).build();
+        ExportProgress progress = new ExportProgress();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportMetrics.medicion("CSV", filtro).columnas(3).medir(out, progress, o -> {
+            o.write("abc\n".getBytes(StandardCharsets.UTF_8));
+            progress.onRow();
+            progress.onRow();
+        });
+
+        assertEquals("abc\n", out.toString(StandardCharsets.UTF_8));
+        assertEquals(1, registry.get(ExportMetrics.DURACION)
+                .tags("formato", "CSV", "filtro", "grupo", "origen", "base", "resultado", "ok").timer().count());
+        assertEquals(2, registry.get(ExportMetrics.FILAS).tag("formato", "CSV").counter().count());
+        assertEquals(8, registry.get(ExportMetrics.CELDAS).tag("formato", "CSV").counter().count());
+        assertEquals(4, registry.get(ExportMetrics.BYTES).tag("formato", "CSV").counter().count());
+
+        List<Map<String, Object>> latencias = exportMetrics.resumenLatencias();
+        assertEquals(1, latencias.size());
+        assertEquals("CSV", latencias.get(0).get("formato"));
+        assertEquals(1L, latencias.get(0).get("cantidad"));
+        assertTrue(latencias.get(0).containsKey("p95_ms"));
+    }
+
+    @Test
+    @DisplayName("Errores y cancelaciones se registran con su resultado y se propagan")
+    void testMedir_ErrorYCancelacion() {
+        ExportProgress progress = new ExportProgress();
+        assertThrows(IOException.class, () -> exportMetrics.medicion("NDJSON", null)
+                .medir(progress, () -> {
+                    throw new IOException("cliente desconectado");
+                }));
+        assertThrows(CancellationException.class, () -> exportMetrics.medicion("NDJSON", null)
+                .medir(progress, () -> {
+                    throw new CancellationException();
+                }));
+
+        assertEquals(1, registry.get(ExportMetrics.DURACION)
+                .tags("formato", "NDJSON", "filtro", "ninguno", "resultado", "error").timer().count());
+        assertEquals(1, registry.get(ExportMetrics.DURACION)
+                .tags("formato", "NDJSON", "resultado", "cancelado").timer().count());
+        assertTrue(exportMetrics.resumenLatencias().isEmpty());
+    }
+}
@@ -0,0 +1,145 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Pruebas unitarias para ExportRangeResponder
+ */
+class ExportRangeResponderTest {
+
+    private static final String ETAG = "\"csv-todos-5\"";
+
+    @TempDir
+    Path dir;
+
+    private final ExportRangeResponder responder = new ExportRangeResponder();
+    private ExportCache exportCache;
+    private ExportCache.Archivo archivo;
+    private HttpHeaders headers;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exportCache = new ExportCache(dir.toString(), true, 24, 100);
+        exportCache.writeThrough(ExportFormat.CSV, "", 5L, exportCache.nuevaGeneracion(),
+                new ByteArrayOutputStream(), out -> out.write("0123456789".getBytes(StandardCharsets.US_ASCII)));
+        archivo = exportCache.find(ExportFormat.CSV, "", 5L).orElseThrow();
+        headers = new HttpHeaders();
+        headers.setETag(ETAG);
+        request = new MockHttpServletRequest("GET", "/api/export/csv");
+        response = new MockHttpServletResponse();
+    }
+
+    private String enviar() throws Exception {
+        ExportProgress escritos = new ExportProgress();
+        try (ExportCache.Lectura lectura = exportCache.leer(archivo)) {
+            responder.enviar(request, response, lectura, headers, escritos);
+        }
+        assertEquals(response.getContentAsByteArray().length, escritos.getBytes());
+        return response.getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Sin Range envía el archivo completo anunciando soporte de rangos")
+    void testCompleto() throws Exception {
+        assertEquals("0123456789", enviar());
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals(10, response.getContentLengthLong());
+    }
+
+    @Test
+    @DisplayName("Range retoma desde el byte pedido, también con sufijo")
+    void testRango() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=4-");
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+        assertEquals("456789", enviar());
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 4-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(6, response.getContentLengthLong());
+
+        request = new MockHttpServletRequest("GET", "/api/export/csv");
+        response = new MockHttpServletResponse();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        assertEquals("789", enviar());
+        assertEquals("bytes 7-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    @DisplayName("If-Range de otra versión, varios rangos o Range inválido envían el archivo completo")
+    void testRangoIgnorado() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=4-");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"csv-todos-4\"");
+        assertEquals("0123456789", enviar());
+        assertEquals(200, response.getStatus());
+
+        for (String range : new String[] { "bytes=0-1,4-5", "filas=1-2" }) {
+            request = new MockHttpServletRequest("GET", "/api/export/csv");
+            response = new MockHttpServletResponse();
+            request.addHeader(HttpHeaders.RANGE, range);
+            assertEquals("0123456789", enviar(), range);
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Rango fuera del archivo responde 416 con el largo")
+    void testRangoNoSatisfacible() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        assertEquals("", enviar());
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    @DisplayName("Con sendfile el contenedor recibe un enlace que sobrevive a la purga de la entrada")
+    void testSendfile() throws Exception {
+        request.setAttribute(ExportRangeResponder.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        ExportProgress escritos = new ExportProgress();
+
+        try (ExportCache.Lectura lectura = exportCache.leer(archivo)) {
+            responder.enviar(request, response, lectura, headers, escritos);
+        }
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(4, escritos.getBytes());
+        assertEquals(2L, request.getAttribute(ExportRangeResponder.SENDFILE_START));
+        assertEquals(6L, request.getAttribute(ExportRangeResponder.SENDFILE_END));
+
+        // Una versión nueva purga la entrada antes de que el contenedor abra el archivo
+        Path enlace = Path.of((String) request.getAttribute(ExportRangeResponder.SENDFILE_FILENAME));
+        assertNotEquals(archivo.path().toAbsolutePath(), enlace);
+        exportCache.writeThrough(ExportFormat.CSV, "", 6L, exportCache.nuevaGeneracion(),
+                new ByteArrayOutputStream(), out -> out.write('x'));
+        assertFalse(Files.exists(archivo.path()));
+        assertEquals("0123456789", Files.readString(enlace));
+    }
+
+    @Test
+    @DisplayName("Si el archivo ya no existe la lectura falla antes de escribir la respuesta")
+    void testArchivoEliminado() throws Exception {
+        Files.delete(archivo.path());
+
+        assertThrows(NoSuchFileException.class, () -> exportCache.leer(archivo));
+        assertFalse(response.isCommitted());
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+}
@@ -0,0 +1,491 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.proyecto.datalab.dto.CsvOpciones;
+import com.proyecto.datalab.dto.ParticipanteFiltro;
+import com.proyecto.datalab.dto.RegistroTupla;
+import com.proyecto.datalab.dto.RespuestaLargaTupla;
+import com.proyecto.datalab.dto.RespuestaTupla;
+import com.proyecto.datalab.dto.VariableSeleccion;
+import com.proyecto.datalab.entity.ParticipanteEliminado;
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.enums.GrupoParticipante;
+import com.proyecto.datalab.repository.ParticipanteEliminadoRepository;
+import com.proyecto.datalab.repository.RespuestaLecturaRepository;
+import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.VariableCodingService;
+import com.proyecto.datalab.web.dto.ResumenCodificadoDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pruebas unitarias para ExportService
+ * Cubre la generación en streaming de CSV y Excel
+ */
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    @Mock
+    private RespuestaLecturaRepository respuestaLecturaRepository;
+
+    @Mock
+    private VariableRepository variableRepository;
+
+    @Mock
+    private ParticipanteEliminadoRepository participanteEliminadoRepository;
+
+    @Spy
+    private VariableCodingService variableCodingService;
+
+    @Spy
+    private ExportMetrics exportMetrics = new ExportMetrics(new SimpleMeterRegistry(), 30000, 60);
+
+    @InjectMocks
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(exportService, "excelRowWindow", 10);
+
+        Variable edad = variable(1, "edad", "Numero", null, 1);
+        Variable nombre = variable(2, "nombre_completo", "Texto", null, 2);
+        Variable fuma = variable(3, "fuma", "Texto", "No,Si", 3);
+        fuma.setSeccion("Hábitos");
+        when(variableRepository.findAll()).thenReturn(List.of(fuma, nombre, edad));
+    }
+
+    private Variable variable(int id, String codigo, String tipo, String opciones, int orden) {
+        Variable v = new Variable();
+        v.setIdVariable(id);
+        v.setCodigoVariable(codigo);
+        v.setTipoDato(tipo);
+        v.setOpciones(opciones);
+        v.setOrdenEnunciado(orden);
+        v.setAplicaA("Ambos");
+        return v;
+    }
+
+    private void mockCursor() {
+        when(respuestaLecturaRepository.streamTuplas(isNull(), isNull(), anyBoolean())).thenReturn(Stream.of(
+                new RespuestaTupla(1, "CS1", 1, "edad", "50"),
+                new RespuestaTupla(1, "CS1", 2, "nombre_completo", "Ana, Pérez"),
+                new RespuestaTupla(1, "CS1", 3, "fuma", "Si"),
+                new RespuestaTupla(2, "CT2", null, null, null),
+                new RespuestaTupla(3, "CT3", 1, "edad", "30")));
+    }
+
+    @Test
+    @DisplayName("CSV crudo agrupa respuestas por participante e incluye participantes sin respuestas")
+    void testWriteCsv_Raw() throws Exception {
+        mockCursor();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.CSV, null, null, out, new ExportProgress());
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("CODIGO_PARTICIPANTE,edad,nombre_completo,fuma", lines[0]);
+        assertEquals("CS1,50,\"Ana, Pérez\",Si", lines[1]);
+        assertEquals("CT2,,,", lines[2]);
+        assertEquals("CT3,30,,", lines[3]);
+    }
+
+    @Test
+    @DisplayName("CSV codificado excluye campos sensibles y codifica valores")
+    void testWriteCsv_Coded() throws Exception {
+        mockCursor();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.CSV_CODIFICADO, null, null, out, new ExportProgress());
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("CODIGO_PARTICIPANTE,edad,fuma", lines[0]);
+        assertEquals("CS1,1,1", lines[1]);
+        assertEquals("CT2,,", lines[2]);
+        assertEquals("CT3,0,", lines[3]);
+    }
+
+    @Test
+    @DisplayName("CSV codificado lee el valor guardado vigente y recodifica el vencido")
+    void testWriteCsv_CodedUsaValorGuardado() throws Exception {
+        Variable edad = variable(1, "edad", "Numero", null, 1);
+        Variable fuma = variable(3, "fuma", "Texto", "No,Si", 3);
+        int huellaEdad = variableCodingService.huella(edad);
+        int huellaFumaVencida = variableCodingService.huella(fuma) + 1;
+        when(respuestaLecturaRepository.streamTuplas(null, null, true)).thenReturn(Stream.of(
+                new RespuestaTupla(1, "CS1", 1, "edad", "50", "guardado", huellaEdad),
+                new RespuestaTupla(1, "CS1", 3, "fuma", "Si", "vencido", huellaFumaVencida),
+                new RespuestaTupla(2, "CT2", 3, "fuma", "No", null, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.CSV_CODIFICADO, null, null, out, new ExportProgress());
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("CS1,guardado,1", lines[1]);
+        assertEquals("CT2,,0", lines[2]);
+    }
+
+    @Test
+    @DisplayName("El filtro de participantes se pasa a la consulta del cursor")
+    void testExport_ConFiltro() throws Exception {
+        ParticipanteFiltro filtro = ParticipanteFiltro.builder()
+                .grupo(GrupoParticipante.CASO)
+                .fechaInclusionDesde(LocalDate.of(2025, 1, 1))
+                .build();
+        when(respuestaLecturaRepository.streamTuplas(filtro, null, false)).thenReturn(Stream.of(
+                new RespuestaTupla(1, "CS1", 1, "edad", "50")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.CSV, filtro, null, out, new ExportProgress());
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("CS1,50,,", lines[1]);
+        verify(respuestaLecturaRepository).streamTuplas(filtro, null, false);
+    }
+
+    @Test
+    @DisplayName("CSV con punto y coma y BOM para Excel")
+    void testExport_CsvConSeparadorYBom() throws Exception {
+        mockCursor();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.CSV, null, null, CsvOpciones.builder().separador(";").bom(true).build(),
+                out, new ExportProgress());
+
+        byte[] bytes = out.toByteArray();
+        assertArrayEquals(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF }, Arrays.copyOf(bytes, 3));
+        String[] lines = new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8).split("\n");
+        assertEquals("CODIGO_PARTICIPANTE;edad;nombre_completo;fuma", lines[0]);
+        assertEquals("CS1;50;Ana, Pérez;Si", lines[1]);
+    }
+
+    @Test
+    @DisplayName("La selección de variables mantiene el orden y solo lee esas respuestas")
+    void testExport_ConSeleccion() throws Exception {
+        VariableSeleccion seleccion = VariableSeleccion.builder()
+                .seccion(List.of("hábitos"))
+                .codigoVariable(List.of("EDAD"))
+                .build();
+        when(respuestaLecturaRepository.streamTuplas(null, List.of(1, 3), false)).thenReturn(Stream.of(
+                new RespuestaTupla(1, "CS1", 1, "edad", "50"),
+                new RespuestaTupla(1, "CS1", 3, "fuma", "Si")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.CSV, null, seleccion, out, new ExportProgress());
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("CODIGO_PARTICIPANTE,edad,fuma", lines[0]);
+        assertEquals("CS1,50,Si", lines[1]);
+    }
+
+    @Test
+    @DisplayName("Una selección sin variables exportables se rechaza antes de escribir")
+    void testValidarSeleccion_SinColumnas() {
+        VariableSeleccion soloSensibles = VariableSeleccion.builder()
+                .codigoVariable(List.of("nombre_completo"))
+                .build();
+
+        assertDoesNotThrow(() -> exportService.validarSeleccion(ExportFormat.CSV, soloSensibles));
+        assertThrows(IllegalArgumentException.class,
+                () -> exportService.validarSeleccion(ExportFormat.EXCEL, soloSensibles));
+    }
+
+    @Test
+    @DisplayName("Excel codificado mantiene filas de totales como fórmulas sobre los datos")
+    void testWriteExcel_CodedSummaryFormulas() throws Exception {
+        mockCursor();
+        when(respuestaLecturaRepository.countParticipantes(null)).thenReturn(3L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.EXCEL_CODIFICADO, null, null, out, new ExportProgress());
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = wb.getSheet("Datos Codificados");
+            assertEquals("edad", sheet.getRow(0).getCell(1).getStringCellValue());
+            assertEquals("COUNTIF(B5:B7,0)", sheet.getRow(1).getCell(1).getCellFormula());
+            assertEquals("COUNTIF(B5:B7,1)", sheet.getRow(2).getCell(1).getCellFormula());
+            assertEquals("COUNTBLANK(C5:C7)", sheet.getRow(3).getCell(2).getCellFormula());
+
+            Row first = sheet.getRow(4);
+            assertEquals("CS1", first.getCell(0).getStringCellValue());
+            assertEquals(1.0, first.getCell(1).getNumericCellValue());
+            assertNull(sheet.getRow(5).getCell(1));
+            assertEquals(0.0, sheet.getRow(6).getCell(1).getNumericCellValue());
+
+            Sheet resumen = wb.getSheet("Resumen");
+            assertEquals("edad", resumen.getRow(1).getCell(0).getStringCellValue());
+            assertEquals(1.0, resumen.getRow(1).getCell(1).getNumericCellValue());
+            assertEquals(1.0, resumen.getRow(1).getCell(2).getNumericCellValue());
+            assertEquals(1.0, resumen.getRow(1).getCell(3).getNumericCellValue());
+            assertEquals("0=1; 1=1", resumen.getRow(1).getCell(4).getStringCellValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Resumen codificado cuenta ceros, unos, vacíos y frecuencias en una pasada")
+    void testGetCodedSummary() throws Exception {
+        mockCursor();
+
+        List<ResumenCodificadoDTO> resumen = exportService.getCodedSummary();
+
+        assertEquals(2, resumen.size());
+        ResumenCodificadoDTO fuma = resumen.get(1);
+        assertEquals("fuma", fuma.getCodigoVariable());
+        assertEquals(0, fuma.getTotal0());
+        assertEquals(1, fuma.getTotal1());
+        assertEquals(2, fuma.getVacios());
+        assertEquals(Map.of("0", 0L, "1", 1L), fuma.getFrecuencias());
+    }
+
+    @Test
+    @DisplayName("Excel crudo escribe números como celdas numéricas")
+    void testWriteExcel_Raw() throws Exception {
+        mockCursor();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.EXCEL, null, null, out, new ExportProgress());
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = wb.getSheet("Datos Completos");
+            assertEquals(4, sheet.getPhysicalNumberOfRows());
+            assertEquals(50.0, sheet.getRow(1).getCell(1).getNumericCellValue());
+            assertEquals("Si", sheet.getRow(1).getCell(2).getStringCellValue());
+        }
+        verify(respuestaLecturaRepository, never()).countParticipantes(any());
+    }
+
+    @Test
+    @DisplayName("Excel tipado por variable: decimales con coma, fechas y hoja de calidad con los mal formados")
+    void testWriteExcel_TiposYCalidad() throws Exception {
+        Variable edad = variable(1, "edad", "Numero", null, 1);
+        Variable peso = variable(2, "peso", "Decimal", null, 2);
+        Variable fecha = variable(3, "fecha_inclusion", "Fecha", null, 3);
+        when(variableRepository.findAll()).thenReturn(List.of(edad, peso, fecha));
+        when(respuestaLecturaRepository.streamTuplas(isNull(), isNull(), anyBoolean())).thenReturn(Stream.of(
+                new RespuestaTupla(1, "CS1", 1, "edad", "cincuenta"),
+                new RespuestaTupla(1, "CS1", 2, "peso", "70,5"),
+                new RespuestaTupla(1, "CS1", 3, "fecha_inclusion", "2024-02-29"),
+                new RespuestaTupla(2, "CT2", 1, "edad", "40"),
+                new RespuestaTupla(2, "CT2", 2, "peso", " 81 "),
+                new RespuestaTupla(2, "CT2", 3, "fecha_inclusion", "31/12/2024")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ExportFormat.EXCEL, null, null, out, new ExportProgress());
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = wb.getSheet("Datos Completos");
+            Row cs1 = sheet.getRow(1);
+            assertEquals("cincuenta", cs1.getCell(1).getStringCellValue());
+            assertEquals(70.5, cs1.getCell(2).getNumericCellValue());
+            assertEquals(LocalDate.of(2024, 2, 29), cs1.getCell(3).getLocalDateTimeCellValue().toLocalDate());
+            Row ct2 = sheet.getRow(2);
+            assertEquals(40.0, ct2.getCell(1).getNumericCellValue());
+            assertEquals(81.0, ct2.getCell(2).getNumericCellValue());
+            assertEquals("31/12/2024", ct2.getCell(3).getStringCellValue());
+
+            Sheet calidad = wb.getSheet("Calidad de datos");
+            assertEquals(3, calidad.getPhysicalNumberOfRows());
+            assertEquals("edad", calidad.getRow(1).getCell(0).getStringCellValue());
+            assertEquals("Número", calidad.getRow(1).getCell(1).getStringCellValue());
+            assertEquals(1.0, calidad.getRow(1).getCell(2).getNumericCellValue());
+            assertEquals("CS1", calidad.getRow(1).getCell(3).getStringCellValue());
+            assertEquals("cincuenta", calidad.getRow(1).getCell(4).getStringCellValue());
+            assertEquals("fecha_inclusion", calidad.getRow(2).getCell(0).getStringCellValue());
+            assertEquals("Fecha", calidad.getRow(2).getCell(1).getStringCellValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Formato largo: una fila por respuesta leída en orden, sin campos sensibles y con el codificado vigente")
+    void testExport_CsvLargo() throws Exception {
+        Variable fuma = variableRepository.findAll().get(0);
+        int huellaFuma = variableCodingService.huella(fuma);
+        when(respuestaLecturaRepository.streamRespuestasLargo(isNull(), isNull())).thenReturn(Stream.of(
+                new RespuestaLargaTupla(1, "CS1", "CASO", 1, "50", null, null),
+                new RespuestaLargaTupla(1, "CS1", "CASO", 2, "Ana, Pérez", null, null),
+                new RespuestaLargaTupla(1, "CS1", "CASO", 3, "Si", "01", huellaFuma),
+                new RespuestaLargaTupla(3, "CT3", "CONTROL", 1, "30", "9", huellaFuma)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportProgress progress = new ExportProgress();
+
+        exportService.export(ExportFormat.CSV_LARGO, null, null, out, progress);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertArrayEquals(new String[] {
+                "codigo_participante,grupo,codigo_variable,seccion,valor,valor_codificado",
+                "CS1,CASO,edad,,50,1",
+                "CS1,CASO,fuma,Hábitos,Si,01",
+                "CT3,CONTROL,edad,,30,0" }, lines);
+        assertEquals(2, progress.getFilas());
+        verify(respuestaLecturaRepository, never()).streamTuplas(any(), any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("El formato largo en un paquete se escribe con su propia lectura")
+    void testExportBundle_ConFormatoLargo() throws Exception {
+        mockCursor();
+        when(respuestaLecturaRepository.streamRespuestasLargo(isNull(), isNull())).thenReturn(Stream.of(
+                new RespuestaLargaTupla(1, "CS1", "CASO", 1, "50", null, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            exportService.exportBundle(List.of(ExportFormat.CSV, ExportFormat.CSV_LARGO), null, null, zip,
+                    new ExportProgress());
+        }
+
+        Map<String, String> entradas = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null;)
+                entradas.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(List.of("datos_completos.csv", "datos_largo.csv"), List.copyOf(entradas.keySet()));
+        assertTrue(entradas.get("datos_completos.csv").startsWith("CODIGO_PARTICIPANTE,edad"));
+        assertEquals("codigo_participante,grupo,codigo_variable,seccion,valor,valor_codificado\nCS1,CASO,edad,,50,1\n",
+                entradas.get("datos_largo.csv"));
+    }
+
+    private void mockCambios(LocalDateTime desde) {
+        ParticipanteEliminado eliminado = new ParticipanteEliminado();
+        eliminado.setIdParticipante(4);
+        eliminado.setCodigoParticipante("CS4");
+        eliminado.setFechaEliminacion(LocalDateTime.of(2026, 1, 2, 10, 0));
+        when(participanteEliminadoRepository.findByFechaEliminacionGreaterThanEqualOrderByFechaEliminacion(desde))
+                .thenReturn(List.of(eliminado));
+        when(respuestaLecturaRepository.streamTuplasModificadasDesde(desde)).thenReturn(Stream.of(
+                new RespuestaTupla(1, "CS1", 1, "edad", "50"),
+                new RespuestaTupla(1, "CS1", 2, "nombre_completo", "Ana, Pérez"),
+                new RespuestaTupla(3, "CT3", 3, "fuma", "No")));
+    }
+
+    @Test
+    @DisplayName("Cambios en CSV: bajas primero y luego filas completas de los modificados")
+    void testWriteCambios_Csv() throws Exception {
+        LocalDateTime desde = LocalDateTime.of(2026, 1, 1, 0, 0);
+        mockCambios(desde);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeCambios(out, desde, ExportService.CambiosFormato.CSV);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("OPERACION,CODIGO_PARTICIPANTE,edad,nombre_completo,fuma", lines[0]);
+        assertEquals("DELETE,CS4,,,", lines[1]);
+        assertEquals("UPSERT,CS1,50,\"Ana, Pérez\",", lines[2]);
+        assertEquals("UPSERT,CT3,,,No", lines[3]);
+        verify(respuestaLecturaRepository, never()).streamTuplas(any(), any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Cambios en NDJSON: un objeto por línea, sin valores nulos")
+    void testWriteCambios_Ndjson() throws Exception {
+        LocalDateTime desde = LocalDateTime.of(2026, 1, 1, 0, 0);
+        mockCambios(desde);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeCambios(out, desde, ExportService.CambiosFormato.NDJSON);
+
+        String texto = out.toString(StandardCharsets.UTF_8);
+        assertTrue(texto.endsWith("\n"));
+        String[] lines = texto.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"op\":\"delete\",\"codigo_participante\":\"CS4\",\"fecha_eliminacion\":\"2026-01-02T10:00\"}",
+                lines[0]);
+        assertEquals("{\"op\":\"upsert\",\"codigo_participante\":\"CS1\","
+                + "\"valores\":{\"edad\":\"50\",\"nombre_completo\":\"Ana, Pérez\"}}", lines[1]);
+        assertEquals("{\"op\":\"upsert\",\"codigo_participante\":\"CT3\",\"valores\":{\"fuma\":\"No\"}}",
+                lines[2]);
+    }
+
+    @Test
+    @DisplayName("NDJSON por keyset: un objeto por participante con cursor para retomar")
+    void testWriteNdjson() throws Exception {
+        when(respuestaLecturaRepository.streamRegistros(null, null, 1, 2)).thenReturn(Stream.of(
+                new RegistroTupla(2, "CT2", "CONTROL", "INCOMPLETA", null, null),
+                new RegistroTupla(3, "CT3", "CONTROL", "COMPLETA", 1, "30"),
+                new RegistroTupla(3, "CT3", "CONTROL", "COMPLETA", 3, "No")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeNdjson(out, null, null, NdjsonCursor.decodificar(NdjsonCursor.codificar(1)), 2,
+                new ExportProgress());
+
+        String texto = out.toString(StandardCharsets.UTF_8);
+        assertTrue(texto.endsWith("\n"));
+        String[] lines = texto.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"codigo_participante\":\"CT2\",\"grupo\":\"CONTROL\",\"estado_ficha\":\"INCOMPLETA\","
+                + "\"respuestas\":{},\"cursor\":\"" + NdjsonCursor.codificar(2) + "\"}", lines[0]);
+        assertEquals("{\"codigo_participante\":\"CT3\",\"grupo\":\"CONTROL\",\"estado_ficha\":\"COMPLETA\","
+                + "\"respuestas\":{\"edad\":\"30\",\"fuma\":\"No\"},\"cursor\":\"" + NdjsonCursor.codificar(3) + "\"}",
+                lines[1]);
+        assertEquals(3, NdjsonCursor.decodificar(NdjsonCursor.codificar(3)));
+
+        // Un cursor alterado es un error de argumento
+        assertThrows(IllegalArgumentException.class, () -> NdjsonCursor.decodificar("no-es-un-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> NdjsonCursor.decodificar("cDk5OTk5OTk5OTk5"));
+    }
+
+    @Test
+    @DisplayName("El paquete genera varios formatos en un ZIP con una sola lectura de la base")
+    void testExportBundle() throws Exception {
+        mockCursor();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            exportService.exportBundle(List.of(ExportFormat.CSV, ExportFormat.CSV_CODIFICADO, ExportFormat.EXCEL),
+                    null, null, zip, new ExportProgress());
+        }
+
+        Map<String, byte[]> entradas = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null)
+                entradas.put(entry.getName(), zip.readAllBytes());
+        }
+        assertEquals(List.of("datos_completos.csv", "datos_codificados.csv", "datos_completos.xlsx"),
+                List.copyOf(entradas.keySet()));
+
+        String[] crudo = new String(entradas.get("datos_completos.csv"), StandardCharsets.UTF_8).split("\n");
+        assertEquals("CS1,50,\"Ana, Pérez\",Si", crudo[1]);
+        String[] codificado = new String(entradas.get("datos_codificados.csv"), StandardCharsets.UTF_8).split("\n");
+        assertEquals("CODIGO_PARTICIPANTE,edad,fuma", codificado[0]);
+        assertEquals("CS1,1,1", codificado[1]);
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(entradas.get("datos_completos.xlsx")))) {
+            Sheet sheet = wb.getSheetAt(0);
+            assertEquals("fuma", sheet.getRow(0).getCell(2).getStringCellValue());
+            assertEquals(3, sheet.getLastRowNum());
+        }
+
+        verify(respuestaLecturaRepository, times(1)).streamTuplas(isNull(), isNull(), eq(true));
+        verify(variableRepository, times(1)).findAll();
+    }
+}
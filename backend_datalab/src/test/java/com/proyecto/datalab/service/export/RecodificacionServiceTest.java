@@ -0,0 +1,90 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.proyecto.datalab.entity.Variable;
+import com.proyecto.datalab.repository.RespuestaCodificacionRepository;
+import com.proyecto.datalab.repository.RespuestaCodificacionRepository.HuellaGuardada;
+import com.proyecto.datalab.repository.RespuestaCodificacionRepository.Pendiente;
+import com.proyecto.datalab.repository.RespuestaCodificacionRepository.Recodificada;
+import com.proyecto.datalab.repository.VariableRepository;
+import com.proyecto.datalab.service.VariableCodingService;
+
+/**
+ * Pruebas unitarias para RecodificacionService
+ */
+@ExtendWith(MockitoExtension.class)
+class RecodificacionServiceTest {
+
+    @Mock
+    private RespuestaCodificacionRepository respuestaCodificacionRepository;
+
+    @Mock
+    private VariableRepository variableRepository;
+
+    private final VariableCodingService variableCodingService = new VariableCodingService();
+    private RecodificacionService recodificacionService;
+    private Variable fuma;
+    private Variable edad;
+
+    @BeforeEach
+    void setUp() {
+        recodificacionService = new RecodificacionService(respuestaCodificacionRepository, variableRepository,
+                variableCodingService, 2);
+
+        fuma = new Variable();
+        fuma.setIdVariable(1);
+        fuma.setCodigoVariable("fuma");
+        fuma.setOpciones("No,Si");
+
+        edad = new Variable();
+        edad.setIdVariable(2);
+        edad.setCodigoVariable("edad");
+    }
+
+    @Test
+    @DisplayName("Solo se recodifican las variables con huella vencida, por lotes")
+    void testRecodificar_SoloVencidas() {
+        int huellaFuma = variableCodingService.huella(fuma);
+        when(variableRepository.findAll()).thenReturn(List.of(fuma, edad));
+        when(respuestaCodificacionRepository.findHuellas()).thenReturn(List.of(
+                new HuellaGuardada(1, huellaFuma + 1),
+                new HuellaGuardada(1, null),
+                new HuellaGuardada(2, variableCodingService.huella(edad))));
+        when(respuestaCodificacionRepository.findPendientes(1, huellaFuma, 0, 2)).thenReturn(List.of(
+                new Pendiente(10, "Si"), new Pendiente(11, "No")));
+        when(respuestaCodificacionRepository.findPendientes(1, huellaFuma, 11, 2)).thenReturn(List.of(
+                new Pendiente(15, "sí")));
+        when(respuestaCodificacionRepository.actualizar(anyList())).thenAnswer(i -> i.<List<?>>getArgument(0).size());
+
+        assertEquals(3, recodificacionService.recodificar());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Recodificada>> captor = ArgumentCaptor.forClass(List.class);
+        verify(respuestaCodificacionRepository, times(2)).actualizar(captor.capture());
+        assertEquals(new Recodificada(10, "Si", "1", huellaFuma), captor.getAllValues().get(0).get(0));
+        assertEquals(new Recodificada(11, "No", "0", huellaFuma), captor.getAllValues().get(0).get(1));
+        assertEquals(new Recodificada(15, "sí", "1", huellaFuma), captor.getAllValues().get(1).get(0));
+        verify(respuestaCodificacionRepository, never()).findPendientes(eq(2), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("La huella cambia con las opciones de la variable")
+    void testHuella_CambiaConOpciones() {
+        int antes = variableCodingService.huella(fuma);
+        fuma.setOpciones("Si,No");
+        assertNotEquals(antes, variableCodingService.huella(fuma));
+    }
+}
@@ -0,0 +1,142 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para StataDtaWriter
+ */
+class StataDtaWriterTest {
+
+    private static final List<String> OPCIONES = List.of("No", "Si");
+
+    private byte[] generar(String[]... filas) throws IOException {
+        List<StataDtaWriter.Columna> columnas = List.of(
+                StataDtaWriter.Columna.cadena("codigo_participante", "Código", 10),
+                StataDtaWriter.Columna.numerica("peso", "Peso (kg)"),
+                StataDtaWriter.Columna.categorica("fuma", "¿Fuma?", OPCIONES, raw -> OPCIONES.indexOf(raw.trim())),
+                StataDtaWriter.Columna.texto("1 observación", "Observaciones"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StataDtaWriter dta = new StataDtaWriter("Prueba", columnas)) {
+            for (String[] fila : filas)
+                dta.addRow(fila);
+            dta.writeTo(out);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("El mapa apunta a cada sección y los tipos y valores quedan en la fila")
+    void testEstructura() throws IOException {
+        byte[] dta = generar(
+                new String[] { "CS1", "70,5", "Si", "Sin novedades" },
+                new String[] { "CS2", "abc", "Quizás", null });
+        ByteBuffer buf = ByteBuffer.wrap(dta).order(ByteOrder.LITTLE_ENDIAN);
+        String texto = new String(dta, StandardCharsets.ISO_8859_1);
+
+        assertTrue(texto.startsWith("<stata_dta><header><release>118</release><byteorder>LSF</byteorder><K>"));
+        int k = buf.getShort(texto.indexOf("<K>") + 3);
+        long n = buf.getLong(texto.indexOf("<N>") + 3);
+        assertEquals(4, k);
+        assertEquals(2, n);
+
+        String[] secciones = { "<stata_dta>", "<map>", "<variable_types>", "<varnames>", "<sortlist>",
+                "<formats>", "<value_label_names>", "<variable_labels>", "<characteristics>", "<data>",
+                "<strls>", "<value_labels>", "</stata_dta>" };
+        int mapa = texto.indexOf("<map>") + 5;
+        for (int i = 0; i < secciones.length; i++)
+            assertEquals(texto.indexOf(secciones[i]), buf.getLong(mapa + i * 8), secciones[i]);
+        assertEquals(dta.length, buf.getLong(mapa + 13 * 8));
+
+        int tipos = texto.indexOf("<variable_types>") + 16;
+        assertEquals(10, buf.getShort(tipos) & 0xFFFF);
+        assertEquals(65526, buf.getShort(tipos + 2) & 0xFFFF);
+        assertEquals(65530, buf.getShort(tipos + 4) & 0xFFFF);
+        assertEquals(32768, buf.getShort(tipos + 6) & 0xFFFF);
+
+        // Nombre inválido corregido
+        int nombres = texto.indexOf("<varnames>") + 10;
+        assertEquals("v_1_observación", cadena(dta, nombres + 3 * 129, 129));
+
+        // Fila 1: "CS1", 70.5, código 1 y strL (v=4, o=1)
+        int datos = texto.indexOf("<data>") + 6;
+        int ancho = 10 + 8 + 1 + 8;
+        assertEquals("CS1", cadena(dta, datos, 10));
+        assertEquals(70.5, buf.getDouble(datos + 10));
+        assertEquals(1, dta[datos + 18]);
+        assertEquals(4L | (1L << 16), buf.getLong(datos + 19));
+
+        // Fila 2: número inválido = faltante, valor fuera de las opciones = código nuevo, strL vacío
+        assertEquals(0x7FE0000000000000L, buf.getLong(datos + ancho + 10));
+        assertEquals(2, dta[datos + ancho + 18]);
+        assertEquals(0L, buf.getLong(datos + ancho + 19));
+
+        int strls = texto.indexOf("<strls>") + 7;
+        assertEquals("GSO", texto.substring(strls, strls + 3));
+        assertEquals(4, buf.getInt(strls + 3));
+        assertEquals(1L, buf.getLong(strls + 7));
+        assertEquals(130, dta[strls + 15] & 0xFF);
+        int largo = buf.getInt(strls + 16);
+        assertEquals("Sin novedades", new String(dta, strls + 20, largo - 1, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Las etiquetas de valor incluyen las opciones y los valores agregados")
+    void testEtiquetasValor() throws IOException {
+        byte[] dta = generar(new String[] { "CS1", "1", "Quizás", "x" });
+        ByteBuffer buf = ByteBuffer.wrap(dta).order(ByteOrder.LITTLE_ENDIAN);
+        String texto = new String(dta, StandardCharsets.ISO_8859_1);
+
+        int nombresEtiqueta = texto.indexOf("<value_label_names>") + 19;
+        assertEquals("", cadena(dta, nombresEtiqueta + 129, 129));
+        assertEquals("fuma", cadena(dta, nombresEtiqueta + 2 * 129, 129));
+
+        int lbl = texto.indexOf("<lbl>") + 5;
+        int largoTabla = buf.getInt(lbl);
+        assertEquals("fuma", cadena(dta, lbl + 4, 129));
+        int tabla = lbl + 4 + 129 + 3;
+        int n = buf.getInt(tabla);
+        int txtlen = buf.getInt(tabla + 4);
+        assertEquals(3, n);
+        assertEquals(8 + 8 * n + txtlen, largoTabla);
+
+        int txt = tabla + 8 + 8 * n;
+        Set<String> etiquetas = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, buf.getInt(tabla + 8 + 4 * n + 4 * i));
+            etiquetas.add(cadena(dta, txt + buf.getInt(tabla + 8 + 4 * i), txtlen));
+        }
+        assertEquals(Set.of("No", "Si", "Quizás"), etiquetas);
+        assertEquals("</lbl>", texto.substring(txt + txtlen, txt + txtlen + 6));
+    }
+
+    @Test
+    @DisplayName("Los nombres de variable se sanean y no se repiten")
+    void testNombreStata() {
+        Set<String> usados = new HashSet<>();
+        assertEquals("presion_arterial", StataDtaWriter.nombreStata("presion arterial", usados));
+        assertEquals("presion_arterial_2", StataDtaWriter.nombreStata("presion-arterial", usados));
+        assertEquals("v_int", StataDtaWriter.nombreStata("int", usados));
+        assertEquals(32, StataDtaWriter.nombreStata("x".repeat(40), usados).length());
+        assertEquals(32, StataDtaWriter.nombreStata("x".repeat(40), usados).length());
+    }
+
+    // Cadena terminada en cero dentro de un campo de largo fijo
+    private static String cadena(byte[] dta, int desde, int largo) {
+        int fin = desde;
+        while (fin < desde + largo && dta[fin] != 0)
+            fin++;
+        return new String(dta, desde, fin - desde, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,55 @@
+package com.proyecto.datalab.service.export;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para ValorParser
+ */
+class ValorParserTest {
+
+    @Test
+    @DisplayName("Números con punto o coma, signo, exponente y espacios; NaN si están mal formados")
+    void testNumero() {
+        assertEquals(42.0, ValorParser.numero("42"));
+        assertEquals(-7.0, ValorParser.numero(" -7 "));
+        assertEquals(70.5, ValorParser.numero("70,5"));
+        assertEquals(0.25, ValorParser.numero(".25"));
+        assertEquals(1500.0, ValorParser.numero("1,5e3"));
+        assertEquals(123456789012345678.0, ValorParser.numero("123456789012345678"));
+
+        for (String invalido : new String[] { null, "", "  ", "-", "abc", "1.234,5", "12a", "1e", "e5", "NaN",
+                "Infinity", "1d", "0x1p3" })
+            assertTrue(Double.isNaN(ValorParser.numero(invalido)), invalido);
+    }
+
+    @Test
+    @DisplayName("Códigos enteros no negativos sin signo ni espacios")
+    void testCodigo() {
+        assertEquals(0, ValorParser.codigo("0"));
+        assertEquals(12, ValorParser.codigo("12"));
+        assertEquals(-1, ValorParser.codigo(null));
+        assertEquals(-1, ValorParser.codigo(""));
+        assertEquals(-1, ValorParser.codigo("-1"));
+        assertEquals(-1, ValorParser.codigo(" 1"));
+        assertEquals(-1, ValorParser.codigo("Si"));
+        assertEquals(-1, ValorParser.codigo("1234567890"));
+    }
+
+    @Test
+    @DisplayName("Fechas ISO válidas en el calendario")
+    void testFecha() {
+        assertEquals(LocalDate.of(2024, 2, 29), ValorParser.fecha("2024-02-29"));
+        assertEquals(LocalDate.of(1999, 12, 31), ValorParser.fecha(" 1999-12-31 "));
+        assertNull(ValorParser.fecha("2023-02-29"));
+        assertNull(ValorParser.fecha("2024-13-01"));
+        assertNull(ValorParser.fecha("2024-04-31"));
+        assertNull(ValorParser.fecha("31/12/2024"));
+        assertNull(ValorParser.fecha("2024-1-5"));
+        assertNull(ValorParser.fecha(null));
+    }
+}
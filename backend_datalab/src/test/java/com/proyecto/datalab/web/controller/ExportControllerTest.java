@@ -0,0 +1,84 @@
+package com.proyecto.datalab.web.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.proyecto.datalab.repository.ParticipanteRepository;
+import com.proyecto.datalab.repository.UsuarioRepository;
+import com.proyecto.datalab.service.AuditoriaService;
+import com.proyecto.datalab.service.export.CrfExportService;
+import com.proyecto.datalab.service.export.CrfPdfService;
+import com.proyecto.datalab.service.export.DataDictionaryService;
+import com.proyecto.datalab.service.export.ExportCache;
+import com.proyecto.datalab.service.export.ExportFormat;
+import com.proyecto.datalab.service.export.ExportMetrics;
+import com.proyecto.datalab.service.export.ExportRangeResponder;
+import com.proyecto.datalab.service.export.ExportService;
+import com.proyecto.datalab.service.export.StudyDataVersion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pruebas de ExportController sobre MockMvc: descargas desde el caché con
+ * ETag y Range.
+ */
+class ExportControllerTest {
+
+    @TempDir
+    Path dir;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ExportCache exportCache = new ExportCache(dir.toString(), true, 24, 100);
+        StudyDataVersion studyDataVersion = new StudyDataVersion();
+        // Exportación ya en caché para la versión actual y sin filtro
+        exportCache.writeThrough(ExportFormat.CSV, "", studyDataVersion.current(), exportCache.nuevaGeneracion(),
+                java.io.OutputStream.nullOutputStream(),
+                out -> out.write("CODIGO_PARTICIPANTE,edad\nCS1,50\n".getBytes(StandardCharsets.UTF_8)));
+
+        ExportController controller = new ExportController(mock(ParticipanteRepository.class),
+                mock(AuditoriaService.class), mock(UsuarioRepository.class), mock(ExportService.class), exportCache,
+                studyDataVersion, mock(CrfExportService.class), mock(CrfPdfService.class),
+                mock(DataDictionaryService.class), new ExportMetrics(new SimpleMeterRegistry(), 30000, 60),
+                new ExportRangeResponder());
+        ReflectionTestUtils.setField(controller, "compressionLevel", 6);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    @DisplayName("Retomar con Range + If-Range del primer ETag responde 206 con un solo ETag")
+    void testCsv_RetomaConRange() throws Exception {
+        MockHttpServletResponse primera = mockMvc.perform(get("/api/export/csv")).andReturn().getResponse();
+        assertEquals(200, primera.getStatus());
+        assertEquals(1, primera.getHeaders(HttpHeaders.ETAG).size());
+        String etag = primera.getHeader(HttpHeaders.ETAG);
+        assertEquals("CODIGO_PARTICIPANTE,edad\nCS1,50\n", primera.getContentAsString(StandardCharsets.UTF_8));
+
+        MockHttpServletResponse retomada = mockMvc.perform(get("/api/export/csv")
+                .header(HttpHeaders.RANGE, "bytes=25-")
+                .header(HttpHeaders.IF_RANGE, etag))
+                .andReturn().getResponse();
+
+        assertEquals(206, retomada.getStatus());
+        assertEquals(1, retomada.getHeaders(HttpHeaders.ETAG).size());
+        assertEquals(etag, retomada.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes 25-31/32", retomada.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("CS1,50\n", retomada.getContentAsString(StandardCharsets.UTF_8));
+    }
+}